@@ -0,0 +1,78 @@
+import Crawler.Crawler;
+import Infrastructure.Filesystem;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Crawls a local stand-in site with different parallelism caps. Every page answers after a fixed delay, like a
+ * remote server would, and links to a few other pages, so the throughput shows how well the crawler overlaps
+ * round trips.
+ *
+ * java CrawlBenchmark [pages] [latency_ms]
+ */
+public class CrawlBenchmark {
+
+    private static final int LINKS_PER_PAGE = 4;
+
+    public static void main(String[] args) throws IOException {
+        int pages = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        int latency = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+
+        ExecutorService serverThreads = Executors.newCachedThreadPool();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 128);
+        String root = "http://localhost:" + server.getAddress().getPort() + "/";    // the crawler stays below the root
+
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            int number = path.startsWith("/page/") ? Integer.parseInt(path.substring("/page/".length())) : 0;
+            StringBuilder html = new StringBuilder("<html><body><p>page " + number + " lorem ipsum dolor</p>");
+            for (int i = 1; i <= LINKS_PER_PAGE; i++) {
+                html.append("<a href=\"/page/").append(number * LINKS_PER_PAGE + i).append("\">next</a>");
+            }
+            byte[] body = html.append("</body></html>").toString().getBytes(StandardCharsets.UTF_8);
+
+            sleep(latency);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(serverThreads);
+        server.start();
+
+        new File(System.getProperty("user.dir"), "files").mkdirs();   // the scraper appends to files/scrape
+
+        try {
+            System.out.println(pages + " pages, " + latency + " ms per request");
+            for (int parallelism : new int[] { 1, 2, 4, 8, 16, 32 }) {
+                Filesystem.deleteFile("scrape");
+                long start = System.nanoTime();
+                new Crawler(root, pages, parallelism).crawl();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("  parallelism %2d: %7.1f pages/s%n", parallelism, pages / seconds);
+            }
+        }
+        finally {
+            Filesystem.deleteFile("scrape");
+            server.stop(0);
+            serverThreads.shutdown();
+        }
+    }
+
+    private static void sleep(int milliseconds) {
+        try {
+            Thread.sleep(milliseconds);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import Index.InvertedIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the cost per candidate word of the original full matrix Levenshtein distance with the thresholded
+ * SimilarWords.distance, the way retrieveSimilarWords uses them: every vocabulary word is compared with a
+ * misspelled query and only distances up to 2 matter.
+ *
+ * Run from src/main/java after compiling the benchmarks directory alongside the sources:
+ * java EditDistanceBenchmark ../../../TestInput/itcwww-small.txt ../../../TestInput/itcwww-medium.txt
+ */
+public class EditDistanceBenchmark {
+
+    private static final int QUERIES = 200;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java EditDistanceBenchmark <input_file> [<input_file> ...]");
+            return;
+        }
+
+        for (String filename : args) {
+            InvertedIndex index = Setup.initialise(filename);
+            List<String> vocabulary = new ArrayList<String>(index.keySet());
+
+            if (vocabulary.isEmpty()) continue;
+
+            List<String> queries = misspell(vocabulary);
+            long candidates = (long) queries.size() * vocabulary.size();
+            long full = 0, bounded = 0;
+
+            for (int round = 0; round < ROUNDS; round++) {  // the first round warms up the JIT and is not counted
+                long start = System.nanoTime();
+                int fullMatches = runFull(queries, vocabulary);
+                long middle = System.nanoTime();
+                int boundedMatches = runBounded(queries, vocabulary);
+                long end = System.nanoTime();
+
+                if (fullMatches != boundedMatches) throw new IllegalStateException("The kernels disagree on " + filename);
+                if (round == 0) continue;
+
+                full += middle - start;
+                bounded += end - middle;
+            }
+
+            double fullPerCandidate = (double) full / (ROUNDS - 1) / candidates;
+            double boundedPerCandidate = (double) bounded / (ROUNDS - 1) / candidates;
+
+            System.out.println(filename + ": " + vocabulary.size() + " words, " + queries.size() + " queries");
+            System.out.printf("  full matrix: %8.1f ns per candidate%n", fullPerCandidate);
+            System.out.printf("  bounded:     %8.1f ns per candidate (%.1fx)%n", boundedPerCandidate, fullPerCandidate / boundedPerCandidate);
+        }
+    }
+
+    /**
+     * @return vocabulary words with one or two random edits, the kind of query that ends up asking for suggestions
+     */
+    private static List<String> misspell(List<String> vocabulary) {
+
+        Random random = new Random(42);
+        List<String> queries = new ArrayList<String>();
+
+        for (int i = 0; i < QUERIES; i++) {
+            StringBuilder word = new StringBuilder(vocabulary.get(random.nextInt(vocabulary.size())));
+            for (int edits = 1 + random.nextInt(2); edits > 0; edits--) {
+                int position = random.nextInt(word.length() + 1);
+                char letter = (char) ('a' + random.nextInt(26));
+                if (position == word.length()) word.append(letter);
+                else if (random.nextBoolean()) word.setCharAt(position, letter);
+                else word.insert(position, letter);
+            }
+            queries.add(word.toString());
+        }
+        return queries;
+    }
+
+    private static int runFull(List<String> queries, List<String> vocabulary) {
+        int matches = 0;
+        for (String query : queries)
+            for (String word : vocabulary)
+                if (fullDistance(query, word) <= 2) matches++;
+        return matches;
+    }
+
+    private static int runBounded(List<String> queries, List<String> vocabulary) {
+        int matches = 0;
+        for (String query : queries) {
+            String lowerCase = query.toLowerCase();
+            for (String word : vocabulary)
+                if (SimilarWords.distance(lowerCase, word.toLowerCase(), 2) <= 2) matches++;
+        }
+        return matches;
+    }
+
+    /**
+     * The distance SimilarWords used before, kept as the baseline.
+     */
+    private static int fullDistance(String a, String b) {
+        a = a.toLowerCase();
+        b = b.toLowerCase();
+        int [] costs = new int [b.length() + 1];
+        for (int j = 0; j < costs.length; j++)
+            costs[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            costs[0] = i;
+            int nw = i - 1;
+            for (int j = 1; j <= b.length(); j++) {
+                int cj = Math.min(1 + Math.min(costs[j], costs[j - 1]), a.charAt(i - 1) == b.charAt(j - 1) ? nw : nw + 1);
+                nw = costs[j];
+                costs[j] = cj;
+            }
+        }
+        return costs[b.length()];
+    }
+}
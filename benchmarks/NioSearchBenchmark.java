@@ -0,0 +1,86 @@
+import Index.InvertedIndex;
+import Infrastructure.NioSearchClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Measures the latency of single word lookups through a NioSearchServer on the loopback interface, and the
+ * throughput of a client that keeps many requests in flight on one connection. The server runs in the same JVM.
+ * The search cache is cleared before every round, so every query is evaluated.
+ *
+ * Run from src/main/java after compiling the benchmarks directory alongside the sources:
+ * java NioSearchBenchmark ../../../TestInput/itcwww-medium.txt
+ */
+public class NioSearchBenchmark {
+
+    private static final int QUERIES = 5000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        if (args.length != 1) {
+            System.out.println("Usage: java NioSearchBenchmark <input_file>");
+            return;
+        }
+
+        InvertedIndex index = Setup.initialise(args[0]);
+        List<String> queries = queries(index);
+        Setup.publish(index);
+
+        try (NioSearchServer server = new NioSearchServer(0).start();
+             NioSearchClient client = new NioSearchClient(new InetSocketAddress("localhost", server.getPort())))
+        {
+            System.out.println(args[0] + ": " + queries.size() + " single word queries, " + ROUNDS + " rounds");
+
+            long[] latencies = new long[queries.size() * (ROUNDS - 1)];
+
+            for (int round = 0; round < ROUNDS; round++) {  // the first round warms up the JIT and is not counted
+                Searcher.getCache().clear();
+
+                for (int i = 0; i < queries.size(); i++) {
+                    long start = System.nanoTime();
+                    client.search(queries.get(i));
+                    long latency = System.nanoTime() - start;
+                    if (round > 0) latencies[(round - 1) * queries.size() + i] = latency;
+                }
+            }
+            Arrays.sort(latencies);
+            System.out.printf("  one at a time: p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999), latencies[latencies.length - 1] / 1000.0);
+
+            Searcher.getCache().clear();
+            long start = System.nanoTime();
+            List<CompletableFuture<HashSet<String>>> results = new ArrayList<CompletableFuture<HashSet<String>>>();
+            for (String query : queries) results.add(client.searchAsync(query));
+            for (CompletableFuture<HashSet<String>> result : results) result.get();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("  all in flight: %.0f queries per second%n", queries.size() / seconds);
+        }
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))] / 1000.0;
+    }
+
+    /**
+     * @return words of the index picked at random, most of them rare, as typed lookups are
+     */
+    private static List<String> queries(InvertedIndex index) {
+
+        List<String> words = new ArrayList<String>(index.keySet());
+        Random random = new Random(42);
+        List<String> queries = new ArrayList<String>();
+
+        for (int i = 0; i < QUERIES && !words.isEmpty(); i++) queries.add(words.get(random.nextInt(words.size())));
+
+        return queries;
+    }
+}
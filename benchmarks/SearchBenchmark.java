@@ -0,0 +1,205 @@
+import Index.InvertedIndex;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures the hot paths of the engine on one or more corpora and reports them as JSON, so the numbers of two
+ * versions can be compared by a script:
+ *
+ * - how fast Setup.initialise loads the corpus,
+ * - how much heap the loaded index takes,
+ * - the latency of single word, AND and OR queries with Searcher.search,
+ * - the latency of SimilarWords.retrieveSimilarWords for misspelled words.
+ *
+ * Every measurement is repeated; the first round warms up the JIT and is not counted. The search cache is
+ * cleared before every round, so every query is evaluated. Latencies are in microseconds. The heap size is the
+ * difference in used heap after a garbage collection with the index cleared and loaded, so it is approximate.
+ *
+ * Run from src/main/java after compiling the benchmarks directory alongside the sources:
+ * java SearchBenchmark --output medium.json ../../../TestInput/itcwww-small.txt ../../../TestInput/itcwww-medium.txt
+ */
+public class SearchBenchmark {
+
+    private static final int QUERIES = 500;
+    private static final int SUGGESTIONS = 50;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+
+        String output = null;
+        List<String> filenames = new ArrayList<String>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--output") && i + 1 < args.length) output = args[++i];
+            else filenames.add(args[i]);
+        }
+
+        if (filenames.isEmpty()) {
+            System.out.println("Usage: java SearchBenchmark [--output <json_file>] <input_file> [<input_file> ...]");
+            return;
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"java\": ").append(quote(System.getProperty("java.version")))
+                .append(", \"cores\": ").append(Runtime.getRuntime().availableProcessors())
+                .append(", \"corpora\": [");
+
+        for (int i = 0; i < filenames.size(); i++) {
+            if (i > 0) json.append(",");
+            json.append("\n  ").append(measure(filenames.get(i)));
+        }
+        json.append("\n]}\n");
+
+        if (output == null) {
+            System.out.print(json);
+            return;
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8)) {
+            out.write(json.toString());
+        }
+        System.out.println("Wrote " + output);
+    }
+
+    /**
+     * @return the measurements of a corpus as a JSON object
+     */
+    private static String measure(String filename) {
+
+        long bytes = new File(filename).length();
+        long loading = 0;
+        InvertedIndex index = null;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            index = Setup.initialise(filename);
+            if (round > 0) loading += System.nanoTime() - start;
+        }
+        double seconds = loading / 1e9 / (ROUNDS - 1);
+
+        index.clear();
+        long withoutIndex = usedHeap();
+        index = Setup.initialise(filename);
+        long heapBytes = usedHeap() - withoutIndex;
+
+        List<String> words = new ArrayList<String>();
+        List<String> frequent = new ArrayList<String>();
+        for (String word : index.keySet()) {
+            words.add(word);
+            if (index.documentFrequency(word) * 20 >= index.documentCount()) frequent.add(word);
+        }
+        if (frequent.isEmpty()) frequent = words;
+
+        Random random = new Random(42);
+        List<String> single = new ArrayList<String>(), and = new ArrayList<String>(), or = new ArrayList<String>();
+
+        for (int i = 0; i < QUERIES && !words.isEmpty(); i++) {
+            single.add(words.get(random.nextInt(words.size())));
+            and.add(frequent.get(random.nextInt(frequent.size())) + " AND " + frequent.get(random.nextInt(frequent.size())));
+            or.add(frequent.get(random.nextInt(frequent.size())) + " OR " + frequent.get(random.nextInt(frequent.size())));
+        }
+        List<String> misspelled = misspell(words, random);
+
+        return "{\"file\": " + quote(filename)
+                + ", \"bytes\": " + bytes
+                + ", \"pages\": " + index.documentCount()
+                + ", \"words\": " + index.wordCount()
+                + ", \"load\": {\"seconds\": " + number(seconds)
+                + ", \"pagesPerSecond\": " + number(index.documentCount() / seconds)
+                + ", \"megabytesPerSecond\": " + number(bytes / 1e6 / seconds) + "}"
+                + ", \"heapBytes\": " + heapBytes
+                + ", \"search\": {\"single\": " + latencies(single, index, false)
+                + ", \"and\": " + latencies(and, index, false)
+                + ", \"or\": " + latencies(or, index, false) + "}"
+                + ", \"suggest\": " + latencies(misspelled, index, true) + "}";
+    }
+
+    /**
+     * Runs every query once per round and reports the mean and percentiles of the counted rounds.
+     */
+    private static String latencies(List<String> queries, InvertedIndex index, boolean suggest) {
+
+        if (queries.isEmpty()) return "null";
+
+        long[] nanos = new long[queries.size() * (ROUNDS - 1)];
+        int count = 0;
+        long total = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            Searcher.getCache().clear();
+
+            for (String query : queries) {
+                long start = System.nanoTime();
+                if (suggest) SimilarWords.retrieveSimilarWords(index, query);
+                else Searcher.search(query, index);
+                long time = System.nanoTime() - start;
+
+                if (round == 0) continue;
+                nanos[count++] = time;
+                total += time;
+            }
+        }
+        Arrays.sort(nanos);
+
+        return "{\"queries\": " + queries.size()
+                + ", \"meanMicros\": " + number(total / 1000.0 / count)
+                + ", \"p50Micros\": " + number(percentile(nanos, 0.50))
+                + ", \"p90Micros\": " + number(percentile(nanos, 0.90))
+                + ", \"p99Micros\": " + number(percentile(nanos, 0.99))
+                + ", \"maxMicros\": " + number(nanos[nanos.length - 1] / 1000.0) + "}";
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))] / 1000.0;
+    }
+
+    /**
+     * @return vocabulary words with one or two random edits, the kind of query that ends up asking for suggestions
+     */
+    private static List<String> misspell(List<String> vocabulary, Random random) {
+
+        List<String> queries = new ArrayList<String>();
+
+        for (int i = 0; i < SUGGESTIONS && !vocabulary.isEmpty(); i++) {
+            StringBuilder word = new StringBuilder(vocabulary.get(random.nextInt(vocabulary.size())));
+            for (int edits = 1 + random.nextInt(2); edits > 0; edits--) {
+                int position = random.nextInt(word.length() + 1);
+                char letter = (char) ('a' + random.nextInt(26));
+                if (position == word.length()) word.append(letter);
+                else if (random.nextBoolean()) word.setCharAt(position, letter);
+                else word.insert(position, letter);
+            }
+            queries.add(word.toString());
+        }
+        return queries;
+    }
+
+    private static long usedHeap() {
+
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++) System.gc();
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    /**
+     * @return the text as a JSON string; file names and version strings need no escapes beyond these
+     */
+    private static String quote(String text) {
+        return "\"" + text.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
@@ -0,0 +1,91 @@
+import Index.InvertedIndex;
+import Index.ShardedIndex;
+import Query.RankedSearcher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how query latency falls as a corpus is split into more shards. Every shard count runs the same
+ * queries, one at a time, so the speedup comes from running the shards of a single query in parallel. The
+ * result caches are cleared before every round, so every query is evaluated.
+ *
+ * Run from src/main/java after compiling the benchmarks directory alongside the sources:
+ * java ShardBenchmark ../../../TestInput/itcwww-medium.txt 1 2 4 8
+ */
+public class ShardBenchmark {
+
+    private static final int QUERIES = 200;
+    private static final int ROUNDS = 5;
+    private static final int K = 10;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java ShardBenchmark <input_file> [<shard count> ...]");
+            return;
+        }
+
+        List<Integer> shardCounts = new ArrayList<Integer>();
+        for (int i = 1; i < args.length; i++) shardCounts.add(Integer.parseInt(args[i]));
+        if (shardCounts.isEmpty()) {
+            for (int shards = 1; shards <= ShardedIndex.defaultShardCount(); shards *= 2) shardCounts.add(shards);
+        }
+
+        List<String> queries = queries(Setup.initialise(args[0]));
+
+        System.out.println(args[0] + ": " + queries.size() + " queries, " + ShardedIndex.defaultShardCount() + " threads");
+
+        double single = 0;
+
+        for (int shards : shardCounts) {
+            ShardedIndex index = ShardedIndex.load(args[0], shards);
+            long unranked = 0, ranked = 0;
+
+            for (int round = 0; round < ROUNDS; round++) {  // the first round warms up the JIT and is not counted
+                Searcher.getCache().clear();
+                RankedSearcher.getCache().clear();
+
+                long start = System.nanoTime();
+                for (String query : queries) Searcher.search(query, index);
+                long middle = System.nanoTime();
+                for (String query : queries) RankedSearcher.search(query, index, K);
+                long end = System.nanoTime();
+
+                if (round == 0) continue;
+
+                unranked += middle - start;
+                ranked += end - middle;
+            }
+
+            double booleanPerQuery = (double) unranked / (ROUNDS - 1) / queries.size() / 1000;
+            double rankedPerQuery = (double) ranked / (ROUNDS - 1) / queries.size() / 1000;
+            if (single == 0) single = booleanPerQuery + rankedPerQuery;
+
+            System.out.printf("  %2d shards: %8.1f us boolean, %8.1f us ranked per query (%.1fx)%n",
+                    shards, booleanPerQuery, rankedPerQuery, single / (booleanPerQuery + rankedPerQuery));
+        }
+    }
+
+    /**
+     * @return OR queries of frequent words, which match a large part of the corpus and are worth parallelising
+     */
+    private static List<String> queries(InvertedIndex index) {
+
+        List<String> frequent = new ArrayList<String>();
+        for (String word : index.keySet()) {
+            if (index.documentFrequency(word) * 20 >= index.documentCount()) frequent.add(word);
+        }
+
+        Random random = new Random(42);
+        List<String> queries = new ArrayList<String>();
+
+        for (int i = 0; i < QUERIES && !frequent.isEmpty(); i++) {
+            String one = frequent.get(random.nextInt(frequent.size()));
+            String two = frequent.get(random.nextInt(frequent.size()));
+            queries.add((i % 2 == 0) ? one + " OR " + two : one + " " + two);
+        }
+        return queries;
+    }
+}
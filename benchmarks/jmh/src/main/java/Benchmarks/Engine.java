@@ -0,0 +1,104 @@
+package Benchmarks;
+
+import Index.InvertedIndex;
+import Index.SearchIndex;
+import Query.QueryCache;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The entry points of the engine the benchmarks measure, and the queries they run.
+ *
+ * Setup, Searcher and SimilarWords are in the unnamed package, which a JMH benchmark cannot be in and cannot
+ * import from, so they are called through method handles. The handles are constants, which the JIT inlines like a
+ * direct call.
+ */
+final class Engine {
+
+    static final MethodHandle INITIALISE = find("Setup", "initialise", InvertedIndex.class, String.class);
+    static final MethodHandle PUBLISH = find("Setup", "publish", void.class, SearchIndex.class);
+    static final MethodHandle SEARCH = find("Searcher", "search", HashSet.class, String.class, SearchIndex.class);
+    static final MethodHandle SEARCH_CACHE = find("Searcher", "getCache", QueryCache.class);
+    static final MethodHandle SIMILAR_WORDS = find("SimilarWords", "retrieveSimilarWords", HashSet.class, SearchIndex.class, String.class);
+
+    private Engine() {}
+
+    /**
+     * Loads the corpus the way the engine does at start up, see Setup.initialise.
+     */
+    static InvertedIndex initialise(String filename) throws Throwable {
+
+        InvertedIndex index = (InvertedIndex) INITIALISE.invokeExact(filename);
+
+        if (index.documentCount() == 0) throw new IllegalStateException("Could not load " + filename + ", run from the root of the repository");
+
+        return index;
+    }
+
+    /**
+     * Publishes an empty index in place of the one Setup.initialise published last, so that one can be collected.
+     */
+    static void unpublish() throws Throwable {
+        PUBLISH.invokeExact((SearchIndex) new InvertedIndex());
+    }
+
+    /**
+     * @param kind single, and or or
+     * @return single words, or pairs of words that occur on at least one page in twenty, joined by AND or OR
+     */
+    static List<String> queries(InvertedIndex index, String kind, int count) {
+
+        List<String> words = new ArrayList<String>(index.keySet());
+        List<String> frequent = new ArrayList<String>();
+        for (String word : words) {
+            if (index.documentFrequency(word) * 20 >= index.documentCount()) frequent.add(word);
+        }
+        if (frequent.isEmpty()) frequent = words;
+
+        Random random = new Random(42);
+        List<String> queries = new ArrayList<String>(count);
+
+        for (int i = 0; i < count; i++) {
+            if (kind.equals("single")) queries.add(words.get(random.nextInt(words.size())));
+            else queries.add(frequent.get(random.nextInt(frequent.size())) + " " + kind.toUpperCase() + " " + frequent.get(random.nextInt(frequent.size())));
+        }
+        return queries;
+    }
+
+    /**
+     * @return vocabulary words with one or two random edits, the kind of query that ends up asking for suggestions
+     */
+    static List<String> misspelled(InvertedIndex index, int count) {
+
+        List<String> vocabulary = new ArrayList<String>(index.keySet());
+        Random random = new Random(42);
+        List<String> queries = new ArrayList<String>(count);
+
+        for (int i = 0; i < count; i++) {
+            StringBuilder word = new StringBuilder(vocabulary.get(random.nextInt(vocabulary.size())));
+            for (int edits = 1 + random.nextInt(2); edits > 0; edits--) {
+                int position = random.nextInt(word.length() + 1);
+                char letter = (char) ('a' + random.nextInt(26));
+                if (position == word.length()) word.append(letter);
+                else if (random.nextBoolean()) word.setCharAt(position, letter);
+                else word.insert(position, letter);
+            }
+            queries.add(word.toString());
+        }
+        return queries;
+    }
+
+    private static MethodHandle find(String className, String name, Class<?> returnType, Class<?>... parameterTypes) {
+        try {
+            return MethodHandles.publicLookup().findStatic(Class.forName(className), name, MethodType.methodType(returnType, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
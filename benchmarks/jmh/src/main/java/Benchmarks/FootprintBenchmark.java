@@ -0,0 +1,76 @@
+package Benchmarks;
+
+import Index.InvertedIndex;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The heap a loaded index takes: the used heap after a garbage collection with the index loaded, less the used
+ * heap before it was loaded. It is reported as the heapBytes secondary result, next to the time of the load.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FootprintBenchmark {
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long heapBytes;
+        public long pages;
+
+        private long before;
+
+        @Setup(Level.Iteration)
+        public void measureBefore() throws Throwable {
+            Engine.unpublish();
+            heapBytes = 0;
+            pages = 0;
+            before = usedHeap();
+        }
+
+        void measureAfter(InvertedIndex index) {
+            heapBytes = usedHeap() - before;
+            pages = index.documentCount();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Corpus {
+
+        @Param({ "TestInput/itcwww-small.txt", "TestInput/itcwww-medium.txt" })
+        public String corpus;
+    }
+
+    @Benchmark
+    public InvertedIndex load(Corpus corpus, Footprint footprint) throws Throwable {
+        InvertedIndex index = Engine.initialise(corpus.corpus);
+        footprint.measureAfter(index);
+        return index;
+    }
+
+    private static long usedHeap() {
+
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++) System.gc();
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
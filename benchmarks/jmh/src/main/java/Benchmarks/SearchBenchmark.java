@@ -0,0 +1,66 @@
+package Benchmarks;
+
+import Index.InvertedIndex;
+import Query.QueryCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency of Searcher.search for single words, AND and OR of two frequent words. Every invocation runs a batch
+ * of different queries with the result cache cleared first, so every query is evaluated; the score is the time
+ * per query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int QUERIES = 500;
+
+    @Param({ "TestInput/itcwww-small.txt", "TestInput/itcwww-medium.txt" })
+    public String corpus;
+
+    @Param({ "single", "and", "or" })
+    public String kind;
+
+    private InvertedIndex index;
+    private List<String> queries;
+    private QueryCache<?> cache;
+
+    @Setup
+    public void load() throws Throwable {
+        index = Engine.initialise(corpus);
+        queries = Engine.queries(index, kind, QUERIES);
+        cache = (QueryCache<?>) Engine.SEARCH_CACHE.invokeExact();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() {
+        cache.clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void search(Blackhole results) throws Throwable {
+        for (String query : queries) results.consume((HashSet) Engine.SEARCH.invokeExact(query, (Index.SearchIndex) index));
+    }
+}
@@ -0,0 +1,52 @@
+package Benchmarks;
+
+import Index.InvertedIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency of SimilarWords.retrieveSimilarWords for misspelled words, per word.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SuggestBenchmark {
+
+    private static final int WORDS = 50;
+
+    @Param({ "TestInput/itcwww-small.txt", "TestInput/itcwww-medium.txt" })
+    public String corpus;
+
+    private InvertedIndex index;
+    private List<String> words;
+
+    @Setup
+    public void load() throws Throwable {
+        index = Engine.initialise(corpus);
+        words = Engine.misspelled(index, WORDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public void retrieveSimilarWords(Blackhole results) throws Throwable {
+        for (String word : words) results.consume((HashSet) Engine.SIMILAR_WORDS.invokeExact((Index.SearchIndex) index, word));
+    }
+}
@@ -0,0 +1,205 @@
+import Index.SearchIndex;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays a file of queries, one per line, such as a query log, and measures how fast they are answered.
+ *
+ * The queries are searched in parallel on a pool of threads, but their results are written in the order of the
+ * file: a line with the number of results and the query, followed by the urls, one per line and indented by a
+ * tab, unless only the counts are asked for. At most a few hundred queries per thread are read ahead, so a log
+ * of any length can be replayed.
+ */
+public class BatchSearch {
+
+    private static final int QUERIES_AHEAD_PER_THREAD = 256;
+
+    private final SearchIndex index;
+    private final int threads;
+    private final boolean countsOnly;
+
+    /**
+     * @param index
+     * @param threads the number of queries searched at once
+     * @param countsOnly whether to write just the number of results of every query, and not the urls
+     */
+    public BatchSearch(SearchIndex index, int threads, boolean countsOnly) {
+        this.index = index;
+        this.threads = Math.max(1, threads);
+        this.countsOnly = countsOnly;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Searches every non-empty line of the input and writes the results to the output, which is flushed but not
+     * closed.
+     *
+     * @param queries
+     * @param out
+     * @return the throughput and latencies of the queries
+     * @throws IOException if the queries cannot be read or the results cannot be written
+     */
+    public Report run(BufferedReader queries, Writer out) throws IOException {
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<Answer>> ahead = new ArrayDeque<Future<Answer>>();
+        long[] latencies = new long[1024];
+        int count = 0;
+        long start = System.nanoTime();
+
+        try {
+            for (String line; (line = queries.readLine()) != null; ) {
+                String query = line.trim();
+
+                if (query.isEmpty()) continue;
+
+                ahead.add(pool.submit(() -> search(query)));
+
+                if (ahead.size() < threads * QUERIES_AHEAD_PER_THREAD) continue;
+
+                if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                latencies[count++] = write(ahead.poll(), out);
+            }
+
+            while (!ahead.isEmpty()) {
+                if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                latencies[count++] = write(ahead.poll(), out);
+            }
+            out.flush();
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        return new Report(Arrays.copyOf(latencies, count), System.nanoTime() - start, threads);
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    private Answer search(String query) {
+
+        long start = System.nanoTime();
+        HashSet<String> urls = Searcher.search(query, index);
+
+        return new Answer(query, urls, System.nanoTime() - start);
+    }
+
+    /**
+     * @return the latency of the query
+     */
+    private long write(Future<Answer> pending, Writer out) throws IOException {
+
+        Answer answer;
+
+        try {
+            answer = pending.get();
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("A query failed", e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a query", e);
+        }
+
+        out.write(Integer.toString((answer.urls == null) ? 0 : answer.urls.size()));
+        out.write('\t');
+        out.write(answer.query);
+        out.write('\n');
+
+        if (!countsOnly && answer.urls != null) {
+            for (String url : answer.urls) {
+                out.write('\t');
+                out.write(url);
+                out.write('\n');
+            }
+        }
+        return answer.nanos;
+    }
+
+
+    private static class Answer {
+
+        final String query;
+        final HashSet<String> urls;
+        final long nanos;
+
+        Answer(String query, HashSet<String> urls, long nanos) {
+            this.query = query;
+            this.urls = urls;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * How fast a batch of queries was answered. Latencies are measured per query, from the start to the end of its
+     * search, so they do not include the time it waited for a thread.
+     */
+    public static class Report {
+
+        private final long[] latencies;    // sorted, in nanoseconds
+        private final long elapsed;
+        private final int threads;
+
+        Report(long[] latencies, long elapsed, int threads) {
+            Arrays.sort(latencies);
+            this.latencies = latencies;
+            this.elapsed = elapsed;
+            this.threads = threads;
+        }
+
+        public int getQueries() {
+            return latencies.length;
+        }
+
+        public double getQueriesPerSecond() {
+            return (elapsed == 0) ? 0 : latencies.length * 1e9 / elapsed;
+        }
+
+        /**
+         * @param fraction from 0 to 1, e.g. 0.99 for the 99th percentile
+         * @return the latency in microseconds that the fraction of queries took at most, 0 if there were none
+         */
+        public double getLatency(double fraction) {
+
+            if (latencies.length == 0) return 0;
+
+            int rank = (int) Math.ceil(fraction * latencies.length) - 1;
+
+            return latencies[Math.max(0, Math.min(latencies.length - 1, rank))] / 1000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d queries in %.2f s on %d thread(s): %.0f queries per second%n" +
+                            "latency p50 %.1f us, p95 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us",
+                    latencies.length, elapsed / 1e9, threads, getQueriesPerSecond(),
+                    getLatency(0.50), getLatency(0.95), getLatency(0.99), getLatency(0.999), getLatency(1));
+        }
+    }
+}
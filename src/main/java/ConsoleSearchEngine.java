@@ -1,30 +1,76 @@
+import Index.SearchIndex;
+import Index.ShardedIndex;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.Scanner;
 
 public class ConsoleSearchEngine {
     
-    private static LinkedHashMap<String, HashSet> searchIndex;
+    private static SearchIndex searchIndex;
     
     public static void main(String[] args) throws IOException {
-        if (args.length != 1) {
-            System.out.println("Usage: java ConsoleSearchEngine <input_file>");
+        boolean offHeap = false;
+        boolean positions = false;
+        int shards = 0;
+        String batch = null;
+        String output = null;
+        int threads = ShardedIndex.defaultShardCount();
+        boolean counts = false;
+        String filename = null;
+        boolean valid = true;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--off-heap")) offHeap = true;
+            else if (args[i].equals("--positions")) positions = true;
+            else if (args[i].equals("--shards") && i + 1 < args.length) shards = parseShards(args[++i]);
+            else if (args[i].equals("--batch") && i + 1 < args.length) batch = args[++i];
+            else if (args[i].equals("--threads") && i + 1 < args.length) threads = parseShards(args[++i]);
+            else if (args[i].equals("--output") && i + 1 < args.length) output = args[++i];
+            else if (args[i].equals("--counts")) counts = true;
+            else if (filename == null && !args[i].startsWith("--")) filename = args[i];
+            else valid = false;
+        }
+
+        if (!valid || filename == null || shards < 0 || threads < 0 || (offHeap && shards > 0)
+                || (batch == null && (output != null || counts))) {
+            System.out.println("Usage: java ConsoleSearchEngine [--off-heap | --shards <n>] [--positions] [--batch <query_file> [--threads <n>] [--output <file>] [--counts]] <input_file|index_file>");
             System.out.println("Example: java ConsoleSearchEngine TestInput/itcwww-tiny.txt");
+            System.out.println("--off-heap keeps a loaded corpus outside the Java heap");
+            System.out.println("--shards splits a loaded corpus into n shards that are searched in parallel, 0 for one per core");
+            System.out.println("--positions records where the words of a loaded corpus occur, so phrases match exactly, at about 40% more memory");
+            System.out.println("--batch searches every line of the query file, on n threads (0 for one per core), and reports the throughput and latencies");
+            System.out.println("--output writes the results of a batch to a file instead of the console, --counts only the number of results");
             return;
         }
         
         // Initialize the search index from the input file
-        System.out.println("Loading search index from: " + args[0]);
-        searchIndex = Setup.initialise(args[0]);
+        System.out.println("Loading search index from: " + filename);
+        if (offHeap) searchIndex = Setup.openOffHeap(filename, positions);
+        else if (shards > 0) searchIndex = Setup.openSharded(filename, shards, positions);
+        else searchIndex = Setup.open(filename, positions);
         
-        if (searchIndex == null || searchIndex.isEmpty()) {
+        if (searchIndex == null || searchIndex.wordCount() == 0) {
             System.out.println("Failed to load search index. Please check the input file.");
             return;
         }
         
         System.out.println("Search index loaded successfully!");
-        System.out.println("Available words in index: " + searchIndex.size());
+        System.out.println("Available words in index: " + searchIndex.wordCount());
+
+        if (batch != null) {
+            runBatch(batch, output, threads, counts);
+            return;
+        }
         
         // Start interactive search
         Scanner scanner = new Scanner(System.in);
@@ -34,6 +80,10 @@ public class ConsoleSearchEngine {
         System.out.println("  - Single word: 'word'");
         System.out.println("  - AND search: 'word1 AND word2'");
         System.out.println("  - OR search: 'word1 OR word2'");
+        System.out.println("  - NOT search: 'word1 NOT word2'");
+        System.out.println("  - Wildcard search: 'word*'");
+        System.out.println("  - Grouping and phrases: '(word1 OR word2) AND \"word3 word4\"'");
+        System.out.println("Enter ':stats' for the result cache statistics.");
         System.out.println();
         
         while (true) {
@@ -48,6 +98,11 @@ public class ConsoleSearchEngine {
             if (query.isEmpty()) {
                 continue;
             }
+
+            if (query.equals(":stats")) {
+                System.out.println("Result cache: " + Searcher.getCache() + "\n");
+                continue;
+            }
             
             // Perform search
             HashSet<String> results = Searcher.search(query, searchIndex);
@@ -59,6 +114,39 @@ public class ConsoleSearchEngine {
         scanner.close();
     }
     
+    /**
+     * Searches the queries of a file, with the results written to the output file or else the console, and
+     * prints how fast they were answered.
+     */
+    private static void runBatch(String queryFile, String outputFile, int threads, boolean counts) throws IOException {
+
+        OutputStream stream = (outputFile == null) ? System.out : new FileOutputStream(outputFile);
+
+        try (BufferedReader queries = new BufferedReader(new InputStreamReader(new FileInputStream(queryFile), StandardCharsets.UTF_8)))
+        {
+            Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16);
+            BatchSearch.Report report = new BatchSearch(searchIndex, threads, counts).run(queries, out);
+
+            System.out.println(report);
+            System.out.println("Result cache: " + Searcher.getCache());
+        }
+        finally {
+            if (outputFile != null) stream.close();
+        }
+    }
+
+    /**
+     * @return the number of shards or threads, one per core for 0, or -1 if it is not a number
+     */
+    private static int parseShards(String value) {
+        try {
+            int shards = Integer.parseInt(value);
+            return (shards == 0) ? ShardedIndex.defaultShardCount() : shards;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     private static void displayResults(String query, HashSet<String> results) {
         System.out.println("\nSearch query: \"" + query + "\"");
         System.out.println("----------------------------------------");
@@ -1,16 +1,24 @@
 package Crawler;
 
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Crawler {
 
+    public static final int DEFAULT_PARALLELISM = 8;
+
     private int MAX_PAGES_TO_SEARCH = 10;
-    private Set<String> pagesVisited = new HashSet<String>();
-    private List<String> pagesToVisit = new LinkedList<String>();
+    private int parallelism = DEFAULT_PARALLELISM;
+    private AtomicInteger pagesScraped = new AtomicInteger();
+    private Frontier pagesToVisit;
+    private AtomicInteger pagesInFlight = new AtomicInteger();
     private String rootUrl;
+    private IndexSink sink;
 
 
     /*
@@ -20,32 +28,109 @@ public class Crawler {
     |
     */
 
+    /**
+     * Crawls into the scrape file in the files directory.
+     *
+     * @param rootUrl
+     * @param numberOfPages
+     */
     public Crawler(String rootUrl, int numberOfPages) {
+        this(rootUrl, numberOfPages, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param rootUrl
+     * @param numberOfPages
+     * @param parallelism the maximum number of pages fetched at the same time
+     */
+    public Crawler(String rootUrl, int numberOfPages, int parallelism) {
+        this(rootUrl, numberOfPages, parallelism, new ScrapeFileSink("scrape"));
+    }
+
+    /**
+     * @param rootUrl
+     * @param numberOfPages
+     * @param parallelism the maximum number of pages fetched at the same time
+     * @param sink receives the scraped pages
+     */
+    public Crawler(String rootUrl, int numberOfPages, int parallelism, IndexSink sink) {
         this.rootUrl = rootUrl;
+        this.pagesToVisit = new Frontier(rootUrl);
         this.MAX_PAGES_TO_SEARCH = numberOfPages;
+        this.parallelism = Math.max(1, parallelism);
+        this.sink = sink;
     }
 
     /**
      * Crawls a website by following internal links while scraping the HTML.
      *
+     * Pages are fetched concurrently, up to the parallelism at a time. Only pages that were fetched and handed to the
+     * sink count towards numberOfPages: a fetch takes one page of the budget and gives it back if it fails, so
+     * exactly numberOfPages pages are scraped if the site has that many, however the fetches race. Only this thread
+     * takes urls off the frontier; the workers push the links they find onto it, which drops the ones seen before.
      */
     public void crawl() {
 
+        ExecutorService workers = newWorkers(parallelism);
+        Semaphore slots = new Semaphore(parallelism);
+        Semaphore budget = new Semaphore(MAX_PAGES_TO_SEARCH);
+
         pagesToVisit.add(rootUrl);
 
-        String currentUrl;
+        try
+        {
+            while( pagesScraped.get() < MAX_PAGES_TO_SEARCH )
+            {
+                // while the rest of the budget is being fetched, wait to see whether those fetches succeed
+                if(!budget.tryAcquire(10, TimeUnit.MILLISECONDS)) continue;
+
+                String currentUrl = nextUrl();
+                if(currentUrl == null) break; // the frontier is empty and no page in flight can add to it
+
+                slots.acquire();
+                pagesInFlight.incrementAndGet();
+                workers.execute(() -> {
+                    boolean scraped = false;
+                    try {
+                        Scraper scraper = new Scraper(sink);
+                        scraped = scraper.scrape(currentUrl);
+                        if (scraped) pagesScraped.incrementAndGet();
+                        for (String link : scraper.getLinks()) pagesToVisit.add(link);
+                    }
+                    finally {
+                        if (!scraped) budget.release();
+                        pagesInFlight.decrementAndGet();    // only after the links are on the frontier
+                        slots.release();
+                    }
+                });
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            workers.shutdown();
+            awaitTermination(workers);
+        }
 
-        while( pagesVisited.size() < MAX_PAGES_TO_SEARCH && ! pagesToVisit.isEmpty() )
+        try
+        {
+            sink.flush();
+        }
+        catch (IOException e)
         {
-            currentUrl = nextUrl();
-            if(currentUrl == null) break; // if current url is null there is no more urls to scrape
+            System.out.println("Error saving the crawled pages " + e);
+        }
+    }
 
-            Scraper scraper = new Scraper();
-            scraper.scrape(currentUrl);
 
-            pagesToVisit.addAll(scraper.getLinks());
-            pagesVisited.add(trimUrl(currentUrl));
-        }
+    /**
+     * @return the number of pages scraped so far
+     */
+    public int getPagesScraped() {
+        return pagesScraped.get();
     }
 
 
@@ -57,52 +142,56 @@ public class Crawler {
     */
 
     /**
-     * Gets the next url to be scraped
+     * Gets the next url to be scraped, waiting for the pages in flight if the frontier is empty.
      *
-     * @return
+     * @return the url, or null if there are no more urls to scrape
      */
-    private String nextUrl()
+    private String nextUrl() throws InterruptedException
     {
-        String nextUrl;
+        while (true)
+        {
+            String nextUrl = pagesToVisit.poll();
+            if (nextUrl != null) return nextUrl;
 
-        do{
-            nextUrl = pagesToVisit.remove(0);
-        }
-        while( ! urlIsValid(nextUrl) && ! pagesToVisit.isEmpty() );
+            // read the counter first: a page that has finished has already added its links
+            if (pagesInFlight.get() == 0 && pagesToVisit.isEmpty()) return null;
 
-        return pagesVisited.contains(nextUrl) ? null : nextUrl;
+            nextUrl = pagesToVisit.poll(10, TimeUnit.MILLISECONDS);
+            if (nextUrl != null) return nextUrl;
+        }
     }
 
     /**
-     * Checks if a url is valid to be scraped:
-     * It checks if we have already scraped the url and that the url is part of the original domain.
+     * Fetches block on the network, so each runs on a virtual thread where the JVM has them (Java 21+). Older JVMs
+     * get a pool of daemon threads sized to the parallelism.
      *
-     * @param nextUrl
+     * @param parallelism
      * @return
      */
-    private boolean urlIsValid(String nextUrl) {
-
-        String domain = trimUrl(rootUrl);
-        nextUrl = trimUrl(nextUrl);
-
-        return ( ! pagesVisited.contains(nextUrl) )  && nextUrl.contains(domain);
+    private static ExecutorService newWorkers(int parallelism)
+    {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            ThreadFactory daemons = runnable -> {
+                Thread thread = new Thread(runnable, "crawler");
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newFixedThreadPool(parallelism, daemons);
+        }
     }
 
-    /**
-     * remove http and www prefix and trailing slashes from url
-     *
-     * @param url
-     * @return
-     */
-    private String trimUrl(String url)
+    private static void awaitTermination(ExecutorService workers)
     {
-        url = url.replaceFirst("^(http://www\\.|http://|www\\.)", "");
-
-        if (url.endsWith("/")) {
-            url = url.substring(0, url.length() - 1); // remove last char
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
         }
-
-        return url;
     }
 
 }
@@ -0,0 +1,315 @@
+package Crawler;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The urls a crawl has yet to visit. Links are canonicalised and checked when they are added, so the queue only
+ * ever holds each page of the crawled site once:
+ *
+ * - the canonical form lower cases the scheme and host, drops default ports, fragments and trailing slashes, and
+ *   sorts the query parameters, so different spellings of one page compare equal;
+ * - links outside the root's site are rejected, as are links seen before. A page is seen before if it only
+ *   differs in its scheme or a www. prefix, the same as the site check, and is queued as first found. The seen set
+ *   stores a 64 bit fingerprint per url rather than the url, with a Bloom filter in front that answers for most new
+ *   urls without probing the set.
+ *
+ * Urls are handed out in the order they were found, breadth first. All methods are thread-safe.
+ */
+public class Frontier {
+
+    private static final int BLOOM_BITS = 1 << 23;     // 1 MB, about 1% false positives at 800k urls
+    private static final int BLOOM_HASHES = 7;
+
+    private final ArrayDeque<String> queue = new ArrayDeque<String>();
+    private final long[] bloom = new long[BLOOM_BITS / Long.SIZE];
+    private long[] fingerprints = new long[1024];       // open addressing, 0 marks a free slot
+    private int seen;
+    private final String rootHost;
+    private final int rootPort;
+    private final String rootPath;
+
+    /**
+     * @param rootUrl the url the crawl starts from. Only urls on its host, below its path, are accepted.
+     */
+    public Frontier(String rootUrl) {
+
+        URI root = parse(rootUrl);
+        if (root == null) throw new IllegalArgumentException("Invalid url " + rootUrl);
+
+        rootHost = withoutWww(root.getHost().toLowerCase(Locale.ROOT));
+        rootPort = port(root);
+        rootPath = path(root);
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * @param url
+     * @return true if the url was queued, false if it is invalid, outside the site or was seen before
+     */
+    public boolean add(String url) {
+
+        URI uri = parse(url);
+
+        if (uri == null || !inScope(uri)) return false;
+
+        String canonical = canonicalise(uri);
+        long fingerprint = fingerprint(siteKey(uri));
+
+        synchronized (this) {
+            if (!markSeen(fingerprint)) return false;
+
+            queue.addLast(canonical);
+            notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * @return the next url, or null if the queue is empty
+     */
+    public synchronized String poll() {
+        return queue.pollFirst();
+    }
+
+    /**
+     * Waits up to the timeout for a url to be queued.
+     *
+     * @param timeout
+     * @param unit
+     * @return the next url, or null if the queue is still empty
+     * @throws InterruptedException
+     */
+    public synchronized String poll(long timeout, TimeUnit unit) throws InterruptedException {
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (queue.isEmpty())
+        {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return null;
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return queue.pollFirst();
+    }
+
+    public synchronized boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    /**
+     * @return the number of urls waiting
+     */
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of distinct urls accepted so far
+     */
+    public synchronized int seen() {
+        return seen;
+    }
+
+    /**
+     * @param url
+     * @return the canonical form of an http or https url, or null if the url is not one
+     */
+    public static String canonicalise(String url) {
+        URI uri = parse(url);
+        return (uri == null) ? null : canonicalise(uri);
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * @return the normalised uri of an http or https url, or null if the url is not one
+     */
+    private static URI parse(String url) {
+
+        if (url == null) return null;
+
+        URI uri;
+        try {
+            uri = new URI(url.trim().replace(" ", "%20")).normalize();
+        }
+        catch (URISyntaxException e) {
+            return null;
+        }
+
+        String scheme = uri.getScheme();
+        if (scheme == null || uri.getHost() == null) return null;
+
+        scheme = scheme.toLowerCase(Locale.ROOT);
+        return (scheme.equals("http") || scheme.equals("https")) ? uri : null;
+    }
+
+    private static String canonicalise(URI uri) {
+
+        StringBuilder canonical = new StringBuilder();
+        canonical.append(uri.getScheme().toLowerCase(Locale.ROOT)).append("://").append(uri.getHost().toLowerCase(Locale.ROOT));
+
+        return appendRest(canonical, uri).toString();
+    }
+
+    /**
+     * @return the canonical form without the scheme and a www. prefix, what the seen set tells pages apart by
+     */
+    private static String siteKey(URI uri) {
+
+        StringBuilder key = new StringBuilder();
+        key.append(withoutWww(uri.getHost().toLowerCase(Locale.ROOT)));
+
+        return appendRest(key, uri).toString();
+    }
+
+    /**
+     * Appends the port if it is not the scheme's default, the path and the sorted query parameters.
+     */
+    private static StringBuilder appendRest(StringBuilder canonical, URI uri) {
+
+        int port = port(uri);
+        if (port != -1) canonical.append(':').append(port);
+
+        canonical.append(path(uri));
+
+        String query = uri.getRawQuery();
+        if (query != null && !query.isEmpty()) {
+            String[] parameters = query.split("&");
+            Arrays.sort(parameters);
+            canonical.append('?').append(String.join("&", parameters));
+        }
+        return canonical;
+    }
+
+    /**
+     * A url is in scope if it is on the root's host, ignoring a www. prefix, and its path is below the root's.
+     * http and https count as the same site.
+     */
+    private boolean inScope(URI uri) {
+
+        if (!withoutWww(uri.getHost().toLowerCase(Locale.ROOT)).equals(rootHost) || port(uri) != rootPort) return false;
+
+        String path = path(uri);
+        return rootPath.equals("/") || path.equals(rootPath) || path.startsWith(rootPath + "/");
+    }
+
+    /**
+     * Records the fingerprint in the Bloom filter and the exact set.
+     *
+     * @return false if it had been seen already
+     */
+    private boolean markSeen(long fingerprint) {
+
+        boolean maybeSeen = true;
+        long hash = fingerprint;
+
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (int) ((hash >>> 32) & (BLOOM_BITS - 1));
+            long mask = 1L << bit;
+            if ((bloom[bit >>> 6] & mask) == 0) {
+                maybeSeen = false;
+                bloom[bit >>> 6] |= mask;
+            }
+            hash += fingerprint >>> 17 | 1;     // derive the next probe from the fingerprint
+            hash = hash * 0x9E3779B97F4A7C15L;
+        }
+
+        if (maybeSeen && contains(fingerprint)) return false;
+
+        insert(fingerprint);
+        seen++;
+        return true;
+    }
+
+    private boolean contains(long fingerprint) {
+
+        int mask = fingerprints.length - 1;
+
+        for (int slot = (int) fingerprint & mask; fingerprints[slot] != 0; slot = (slot + 1) & mask)
+            if (fingerprints[slot] == fingerprint) return true;
+
+        return false;
+    }
+
+    private void insert(long fingerprint) {
+
+        if ((seen + 1) * 2 > fingerprints.length) {
+            long[] old = fingerprints;
+            fingerprints = new long[old.length * 2];
+            for (long existing : old) if (existing != 0) insert(existing);
+        }
+
+        int mask = fingerprints.length - 1;
+        int slot = (int) fingerprint & mask;
+
+        while (fingerprints[slot] != 0) slot = (slot + 1) & mask;
+
+        fingerprints[slot] = fingerprint;
+    }
+
+    /**
+     * 64 bit FNV-1a of the url with a final mix, never 0 since 0 marks free slots.
+     */
+    private static long fingerprint(String url) {
+
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < url.length(); i++) {
+            hash ^= url.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+
+        return (hash == 0) ? 1 : hash;
+    }
+
+    private static String withoutWww(String host) {
+        return host.startsWith("www.") ? host.substring(4) : host;
+    }
+
+    /**
+     * @return the explicit port if it is not the scheme's default, otherwise -1
+     */
+    private static int port(URI uri) {
+        int port = uri.getPort();
+        return (port == defaultPort(uri.getScheme().toLowerCase(Locale.ROOT))) ? -1 : port;
+    }
+
+    /**
+     * @return the raw path without trailing slashes, "/" for the root
+     */
+    private static String path(URI uri) {
+
+        String path = uri.getRawPath();
+        if (path == null || path.isEmpty()) return "/";
+
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') end--;
+
+        return path.substring(0, end);
+    }
+
+    private static int defaultPort(String scheme) {
+        return scheme.equals("https") ? 443 : 80;
+    }
+}
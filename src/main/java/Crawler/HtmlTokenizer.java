@@ -0,0 +1,306 @@
+package Crawler;
+
+import Index.Analyzer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits an HTML page into words and links in one pass over the stream, without building the page as a string.
+ *
+ * Words are runs of ASCII letters and digits in the text between tags, lower cased. Runs that touch other letters
+ * or underscores are not words, the same as the \b[a-zA-Z0-9]+\b pattern this replaces. The contents of script
+ * and style elements and of comments are skipped, and character references separate words. The href attribute of
+ * every tag is reported as a link, as written in the page.
+ *
+ * Given an analyzer, the text between tags and character references is run through it instead, so the words come
+ * out the same as the words of the corpus and of the queries analysed by it.
+ */
+public class HtmlTokenizer {
+
+    /**
+     * Receives the tokens of a page as they are read.
+     */
+    public interface Handler {
+
+        void word(String word);
+
+        void link(String href);
+    }
+
+    private static final int MIN_WORD_LENGTH = 3;
+    private static final int MAX_ENTITY_LENGTH = 10;
+
+    private final Reader in;
+    private final Handler handler;
+    private final Analyzer analyzer;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private int pushedBack = -1;
+    private final StringBuilder word = new StringBuilder();
+    private boolean asciiWord = true;
+    private final StringBuilder name = new StringBuilder();
+    private final StringBuilder value = new StringBuilder();
+
+    private HtmlTokenizer(Reader in, Handler handler, Analyzer analyzer) {
+        this.in = in;
+        this.handler = handler;
+        this.analyzer = analyzer;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Reads the page to the end, handing every word and link to the handler.
+     *
+     * @param in
+     * @param handler
+     * @throws IOException
+     */
+    public static void tokenize(Reader in, Handler handler) throws IOException {
+        new HtmlTokenizer(in, handler, null).run();
+    }
+
+    /**
+     * Reads the page to the end, handing the words the analyzer finds in the text and every link to the handler.
+     *
+     * @param in
+     * @param analyzer
+     * @param handler
+     * @throws IOException
+     */
+    public static void tokenize(Reader in, Analyzer analyzer, Handler handler) throws IOException {
+        new HtmlTokenizer(in, handler, analyzer).run();
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    private void run() throws IOException {
+
+        int c;
+
+        while ((c = read()) != -1)
+        {
+            if (c == '<') {
+                endWord();
+                tag();
+            }
+            else if (c == '&') {
+                endWord();
+                entity();
+            }
+            else {
+                text((char) c);
+            }
+        }
+        endWord();
+    }
+
+    private void text(char c) {
+
+        if (analyzer != null) {
+            word.append(c);
+        }
+        else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+            word.append(c);
+        }
+        else if (c >= 'A' && c <= 'Z') {
+            word.append((char) (c + ('a' - 'A')));
+        }
+        else if (c == '_' || Character.isLetterOrDigit(c)) {
+            word.append(c);
+            asciiWord = false;
+        }
+        else {
+            endWord();
+        }
+    }
+
+    private void endWord() {
+
+        if (analyzer != null) {
+            if (word.length() > 0) for (String analysed : analyzer.analyze(word)) handler.word(analysed);
+        }
+        else if (asciiWord && word.length() >= MIN_WORD_LENGTH) {
+            handler.word(word.toString());
+        }
+
+        word.setLength(0);
+        asciiWord = true;
+    }
+
+    /**
+     * Skips a character reference such as &amp; or &#229;.
+     */
+    private void entity() throws IOException {
+
+        for (int i = 0; i < MAX_ENTITY_LENGTH; i++) {
+            int c = read();
+            if (c == ';') return;
+            if (c == -1) return;
+            if (!(c == '#' || Character.isLetterOrDigit(c))) {
+                pushBack(c);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads a tag after its "<", reporting its href and skipping the contents of script and style elements.
+     */
+    private void tag() throws IOException {
+
+        int c = read();
+
+        if (c == '!') {
+            if ((c = read()) == '-' && (c = read()) == '-') skipPast("-->");
+            else if (c != '>') skipPast(">");
+            return;
+        }
+        if (c == '/' || c == '?') {
+            skipPast(">");
+            return;
+        }
+        if (!isAsciiLetter(c)) {    // a lone "<" in the text
+            pushBack(c);
+            return;
+        }
+
+        String tag = readName(c);
+
+        while (true)
+        {
+            c = read();
+            while (c != -1 && Character.isWhitespace(c)) c = read();
+
+            if (c == -1 || c == '>') break;
+            if (c == '/' || c == '"' || c == '\'') continue;
+
+            String attribute = readName(c);
+
+            c = read();
+            while (c != -1 && Character.isWhitespace(c)) c = read();
+
+            if (c != '=') {
+                pushBack(c);
+                continue;
+            }
+            String attributeValue = readValue();
+
+            if (attribute.equals("href") && !attributeValue.isEmpty()) handler.link(attributeValue);
+        }
+
+        if (c != -1 && (tag.equals("script") || tag.equals("style"))) {
+            skipPast("</" + tag);
+            skipPast(">");
+        }
+    }
+
+    /**
+     * Reads a tag or attribute name starting with c, lower cased. Stops before whitespace, "=", "/" or ">".
+     */
+    private String readName(int c) throws IOException {
+
+        name.setLength(0);
+
+        while (c != -1 && c != '=' && c != '>' && c != '/' && !Character.isWhitespace(c)) {
+            name.append(Character.toLowerCase((char) c));
+            c = read();
+        }
+        pushBack(c);
+
+        return name.toString();
+    }
+
+    /**
+     * Reads a quoted or unquoted attribute value after its "=".
+     */
+    private String readValue() throws IOException {
+
+        value.setLength(0);
+
+        int c = read();
+        while (c != -1 && Character.isWhitespace(c)) c = read();
+
+        if (c == '"' || c == '\'') {
+            int quote = c;
+            while ((c = read()) != -1 && c != quote) value.append((char) c);
+        }
+        else {
+            while (c != -1 && c != '>' && !Character.isWhitespace(c)) {
+                value.append((char) c);
+                c = read();
+            }
+            pushBack(c);
+        }
+        return value.toString().trim();
+    }
+
+    /**
+     * Skips the stream up to and including the terminator, compared ignoring case.
+     */
+    private void skipPast(String terminator) throws IOException {
+
+        int length = terminator.length();
+        char[] window = new char[length];
+        int seen = 0;
+        int c;
+
+        while ((c = read()) != -1)
+        {
+            window[seen++ % length] = Character.toLowerCase((char) c);
+
+            if (seen >= length && endsWith(window, seen, terminator)) return;
+        }
+    }
+
+    private static boolean endsWith(char[] window, int seen, String terminator) {
+
+        int length = terminator.length();
+
+        for (int i = 0; i < length; i++)
+            if (window[(seen - length + i) % length] != terminator.charAt(i)) return false;
+
+        return true;
+    }
+
+    private static boolean isAsciiLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private int read() throws IOException {
+
+        if (pushedBack != -1) {
+            int c = pushedBack;
+            pushedBack = -1;
+            return c;
+        }
+
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void pushBack(int c) {
+        pushedBack = c;
+    }
+}
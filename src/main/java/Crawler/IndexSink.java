@@ -0,0 +1,26 @@
+package Crawler;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the pages a crawl scrapes. Pages arrive from several crawler threads at once, so implementations have to
+ * be thread-safe.
+ */
+public interface IndexSink {
+
+    /**
+     * @param url the page
+     * @param words the words on the page, in order
+     * @throws IOException
+     */
+    void accept(String url, List<String> words) throws IOException;
+
+    /**
+     * Called once the crawl is done, to write out anything still buffered.
+     *
+     * @throws IOException
+     */
+    default void flush() throws IOException {
+    }
+}
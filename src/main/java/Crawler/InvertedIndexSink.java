@@ -0,0 +1,40 @@
+package Crawler;
+
+import Index.Analyzer;
+import Index.InvertedIndex;
+
+import java.util.List;
+
+/**
+ * Adds crawled pages straight to an in-memory index, so the pages can be searched as soon as the crawl is done
+ * without writing them out and loading them again.
+ */
+public class InvertedIndexSink implements IndexSink {
+
+    private final InvertedIndex index;
+
+    /**
+     * @param index the index to add to. Its words are the ones the Scraper analysed, with Analyzer.STANDARD.
+     */
+    public InvertedIndexSink(InvertedIndex index) {
+        this.index = index;
+        index.setAnalyzer(Analyzer.STANDARD);
+    }
+
+    /**
+     * Adds the page even if it has no words, so it gets the same id as when the scrape file is loaded.
+     */
+    public synchronized void accept(String url, List<String> words) {
+        index.getDocuments().add(url);
+        for (String word : words) {
+            index.add(word, url);
+        }
+    }
+
+    /**
+     * Trims the posting lists and computes the score bounds once all pages are in.
+     */
+    public synchronized void flush() {
+        index.finish();
+    }
+}
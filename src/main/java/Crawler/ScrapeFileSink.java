@@ -0,0 +1,44 @@
+package Crawler;
+
+import Infrastructure.Filesystem;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Appends crawled pages to a file in the corpus format ("*PAGE:" line followed by one word per line), which
+ * Setup.initialise can load later. Pages are collected in memory and written in batches, one file open per batch.
+ */
+public class ScrapeFileSink implements IndexSink {
+
+    private static final int BATCH_SIZE = 1 << 20;
+
+    private final String fileName;
+    private final StringBuilder batch = new StringBuilder();
+
+    /**
+     * @param fileName the name of the file in the files directory
+     */
+    public ScrapeFileSink(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public synchronized void accept(String url, List<String> words) throws IOException {
+
+        batch.append("*PAGE:").append(url).append('\n');
+
+        for (String word : words) {
+            batch.append(word).append('\n');
+        }
+
+        if (batch.length() >= BATCH_SIZE) flush();
+    }
+
+    public synchronized void flush() throws IOException {
+
+        if (batch.length() == 0) return;
+
+        Filesystem.writeToFileByName(fileName, batch.toString(), true);
+        batch.setLength(0);
+    }
+}
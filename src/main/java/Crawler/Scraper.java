@@ -1,6 +1,6 @@
 package Crawler;
 
-import Infrastructure.Filesystem;
+import Index.Analyzer;
 import org.jsoup.Connection;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -15,6 +15,7 @@ public class Scraper {
 
     public List<String> links = new LinkedList<String>(); // list of URLs
     public Document htmlDocument; // the html of the webpage
+    private IndexSink sink;
     private static final String USER_AGENT =
             "Mozilla/5.0 (Windows NT 6.1; WOW64) AppleWebKit/535.1 (KHTML, like Gecko) Chrome/13.0.782.112 Safari/535.1";
 
@@ -26,14 +27,28 @@ public class Scraper {
     |
     */
 
-    public void scrape(String url)
+    /**
+     * @param sink receives the words of every page scraped
+     */
+    public Scraper(IndexSink sink)
+    {
+        this.sink = sink;
+    }
+
+    /**
+     * Fetches the page, collects its links and hands its words to the sink.
+     *
+     * @param url
+     * @return false if the page could not be fetched or saved
+     */
+    public boolean scrape(String url)
     {
         try
         {
             Connection connection = Jsoup.connect(url).userAgent(USER_AGENT);
             Document htmlDocument = connection.get();
 
-            this.htmlDocument = Jsoup.parse(htmlDocument.toString());
+            this.htmlDocument = htmlDocument;
 
             Elements linksOnPage = htmlDocument.select("a[href]");
 
@@ -41,14 +56,23 @@ public class Scraper {
             {
                 this.links.add(link.absUrl("href"));
             }
-
-            saveToFile(url);
         }
         catch(IOException ioe)
         {
             System.out.println("Error in the HTTP request " + ioe);
+            return false;
         }
 
+        try
+        {
+            sink.accept(url, words());
+            return true;
+        }
+        catch(IOException ioe)
+        {
+            System.out.println("Error saving the page " + url + " " + ioe);
+            return false;
+        }
     }
 
     public List<String> getLinks()
@@ -63,18 +87,11 @@ public class Scraper {
 	|
 	*/
 
-    private void saveToFile(String url) throws IOException {
-
-        String[] words = htmlDocument.text().split(" ");
-
-        Filesystem.writeToFileByName("scrape", "*PAGE:" + url + "\n", true);
-
-        for (String word: words)
-        {
-            if (word != null) {
-                Filesystem.writeToFileByName("scrape", word + "\n", true);
-            }
-        }
+    /**
+     * @return the words of the page text, in order, analysed the same way as the corpus and the queries
+     */
+    private List<String> words() {
+        return Analyzer.STANDARD.analyze(htmlDocument.text());
     }
 
 }
@@ -0,0 +1,437 @@
+package Index;
+
+import java.nio.CharBuffer;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Turns text into the words that are indexed and searched for. The same analyzer has to run over the pages when
+ * they are indexed and over the words of a query, so that "IT", "it," and "It." all find the word "it".
+ *
+ * The text is split into tokens at every character that is not a letter, a digit or a combining mark, and every
+ * token is passed through the filters of the chain in order. A filter changes the token in place or drops it.
+ * Tokens are built in a char buffer that is reused for the whole text, so analysing text does not allocate unless
+ * the handler does.
+ *
+ * The standard chain normalises to Unicode NFC, so "højskolen" typed with a combining ring matches the composed
+ * form, and lower cases without regard to the default locale.
+ */
+public class Analyzer {
+
+    /**
+     * Receives the words of the text as they are found. The chars are only valid during the call.
+     */
+    public interface Handler {
+
+        void word(char[] chars, int length);
+    }
+
+    /**
+     * One step of the chain.
+     */
+    public interface Filter {
+
+        /**
+         * @param token
+         * @return false to drop the token
+         */
+        boolean apply(Token token);
+    }
+
+    /**
+     * The token being analysed, in a buffer that grows as needed.
+     */
+    public static final class Token {
+
+        private char[] chars = new char[32];
+        private int length;
+
+        public char[] chars() {
+            return chars;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public void setLength(int length) {
+            ensureCapacity(length);
+            this.length = length;
+        }
+
+        public void ensureCapacity(int capacity) {
+            if (capacity > chars.length) chars = Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+        }
+
+        void append(char c) {
+            ensureCapacity(length + 1);
+            chars[length++] = c;
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+
+    /**
+     * Composes the token to NFC. Text without characters from U+0300 up is NFC already, which covers the Danish
+     * letters, so only tokens with combining marks or other scripts go through the Normalizer.
+     */
+    public static final Filter NFC = new Filter() {
+        public boolean apply(Token token) {
+
+            char[] chars = token.chars();
+            int length = token.length();
+            int i = 0;
+
+            while (i < length && chars[i] < 0x300) i++;
+            if (i == length) return true;
+
+            String normalised = Normalizer.normalize(CharBuffer.wrap(chars, 0, length), Normalizer.Form.NFC);
+            token.setLength(normalised.length());
+            normalised.getChars(0, normalised.length(), token.chars(), 0);
+
+            return true;
+        }
+    };
+
+    /**
+     * Lower cases the token by the Unicode case mappings, the same in every locale (no dotless i in Turkish).
+     */
+    public static final Filter LOWER_CASE = new Filter() {
+        public boolean apply(Token token) {
+
+            char[] chars = token.chars();
+
+            for (int i = 0; i < token.length(); i++) {
+                char c = chars[i];
+                if (c < 0x80) {
+                    if (c >= 'A' && c <= 'Z') chars[i] = (char) (c + ('a' - 'A'));
+                }
+                else if (i + 1 < token.length() && Character.isSurrogatePair(c, chars[i + 1])) {
+                    int lower = Character.toLowerCase(Character.toCodePoint(c, chars[i + 1]));
+                    if (Character.isSupplementaryCodePoint(lower)) Character.toChars(lower, chars, i);
+                    i++;
+                }
+                else {
+                    chars[i] = Character.toLowerCase(c);
+                }
+            }
+            return true;
+        }
+    };
+
+    /**
+     * The standard chain: NFC and lower case, no stopwords.
+     */
+    public static final Analyzer STANDARD = new Analyzer(NFC, LOWER_CASE);
+
+    /**
+     * Splits at whitespace only and keeps the words as they are, for indexes of words that were never analysed, such
+     * as those built with InvertedIndex.add() or from a map in the old word -> urls format.
+     */
+    public static final Analyzer VERBATIM = new Analyzer(true);
+
+    // the flags of a chain, see flags(): a code per filter, 4 bits each from the lowest, and the way text is split
+    private static final int NFC_CODE = 1;
+    private static final int LOWER_CASE_CODE = 2;
+    private static final int STOPWORDS_CODE = 3;
+    private static final int MAX_FILTERS = 7;
+    private static final int SPLIT_AT_WHITESPACE = 1 << 28;
+
+    private final boolean splitAtWhitespace;
+    private final Filter[] filters;
+    private final ThreadLocal<Token> tokens = ThreadLocal.withInitial(Token::new);
+
+    /**
+     * @param filters the chain, applied in order
+     */
+    public Analyzer(Filter... filters) {
+        this(false, filters);
+    }
+
+    private Analyzer(boolean splitAtWhitespace, Filter... filters) {
+        this.splitAtWhitespace = splitAtWhitespace;
+        this.filters = filters.clone();
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * @param stopwords words that are not indexed, compared after the rest of the chain has run
+     * @return the standard chain followed by a stopword filter
+     */
+    public static Analyzer withStopwords(Collection<String> stopwords) {
+        return new Analyzer(NFC, LOWER_CASE, new Stopwords(stopwords));
+    }
+
+    /**
+     * Describes the chain in 32 bits, for the header of an index segment: the code of every filter in order, 4 bits
+     * each from the lowest, and whether text is split at whitespace only. The stopwords are not part of it, see
+     * stopwords().
+     *
+     * @return the flags, or -1 if the chain has a filter of its own, which cannot be described
+     */
+    public int flags() {
+
+        if (filters.length > MAX_FILTERS) return -1;
+
+        int flags = splitAtWhitespace ? SPLIT_AT_WHITESPACE : 0;
+
+        for (int i = 0; i < filters.length; i++) {
+            int code;
+            if (filters[i] == NFC) code = NFC_CODE;
+            else if (filters[i] == LOWER_CASE) code = LOWER_CASE_CODE;
+            else if (filters[i] instanceof Stopwords) code = STOPWORDS_CODE;
+            else return -1;
+            flags |= code << (4 * i);
+        }
+        return flags;
+    }
+
+    /**
+     * @return the words the chain drops, as they are after the rest of the chain, sorted. Empty if it drops none.
+     */
+    public List<String> stopwords() {
+
+        List<String> stopwords = new ArrayList<String>();
+
+        for (Filter filter : filters) {
+            if (filter instanceof Stopwords) stopwords.addAll(((Stopwords) filter).words());
+        }
+        Collections.sort(stopwords);
+
+        return stopwords;
+    }
+
+    /**
+     * Rebuilds the chain that flags() and stopwords() describe. The standard and verbatim chains come back as
+     * Analyzer.STANDARD and Analyzer.VERBATIM.
+     *
+     * @param flags
+     * @param stopwords
+     * @return the analyzer
+     * @throws IllegalArgumentException if the flags do not describe a chain
+     */
+    public static Analyzer fromFlags(int flags, Collection<String> stopwords) {
+
+        if (flags == STANDARD.flags() && stopwords.isEmpty()) return STANDARD;
+        if (flags == VERBATIM.flags() && stopwords.isEmpty()) return VERBATIM;
+        if ((flags & ~(SPLIT_AT_WHITESPACE | 0x0fffffff)) != 0) throw new IllegalArgumentException("Unknown analyzer flags " + flags);
+
+        List<Filter> filters = new ArrayList<Filter>();
+
+        for (int chain = flags & 0x0fffffff; chain != 0; chain >>>= 4) {
+            switch (chain & 0xf) {
+                case NFC_CODE: filters.add(NFC); break;
+                case LOWER_CASE_CODE: filters.add(LOWER_CASE); break;
+                case STOPWORDS_CODE: filters.add(new Stopwords(stopwords)); break;
+                default: throw new IllegalArgumentException("Unknown analyzer flags " + flags);
+            }
+        }
+        return new Analyzer((flags & SPLIT_AT_WHITESPACE) != 0, filters.toArray(new Filter[filters.size()]));
+    }
+
+    /**
+     * @param other
+     * @return true if both analyzers turn every text into the same words, as far as flags() can tell
+     */
+    public boolean sameAs(Analyzer other) {
+
+        if (other == this) return true;
+
+        int flags = flags();
+
+        return flags != -1 && flags == other.flags() && stopwords().equals(other.stopwords());
+    }
+
+    /**
+     * Splits the text into words and hands each of them to the handler.
+     *
+     * @param text
+     * @param handler
+     */
+    public void analyze(CharSequence text, Handler handler) {
+
+        Token token = tokens.get();
+        token.length = 0;
+
+        for (int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            char next = (i + 1 < text.length()) ? text.charAt(i + 1) : 0;
+
+            if (isWordChar(c, next)) {
+                token.append(c);
+                if (Character.isSurrogatePair(c, next)) token.append(text.charAt(++i));
+            }
+            else if (token.length > 0) {
+                emit(token, handler);
+            }
+        }
+        if (token.length > 0) emit(token, handler);
+    }
+
+    /**
+     * Splits part of a char array into words, for callers that decode their input into a buffer of their own.
+     *
+     * @param text
+     * @param offset
+     * @param length
+     * @param handler
+     */
+    public void analyze(char[] text, int offset, int length, Handler handler) {
+
+        Token token = tokens.get();
+        token.length = 0;
+
+        for (int i = offset, end = offset + length; i < end; i++)
+        {
+            char c = text[i];
+            char next = (i + 1 < end) ? text[i + 1] : 0;
+
+            if (isWordChar(c, next)) {
+                token.append(c);
+                if (Character.isSurrogatePair(c, next)) token.append(text[++i]);
+            }
+            else if (token.length > 0) {
+                emit(token, handler);
+            }
+        }
+        if (token.length > 0) emit(token, handler);
+    }
+
+    /**
+     * @param text
+     * @return the words of the text, in order
+     */
+    public List<String> analyze(CharSequence text) {
+
+        final List<String> words = new ArrayList<String>();
+
+        analyze(text, new Handler() {
+            public void word(char[] chars, int length) {
+                words.add(new String(chars, 0, length));
+            }
+        });
+        return words;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    private void emit(Token token, Handler handler) {
+
+        boolean keep = true;
+
+        for (int i = 0; i < filters.length && keep && token.length > 0; i++) keep = filters[i].apply(token);
+
+        if (keep && token.length > 0) handler.word(token.chars, token.length);
+
+        token.length = 0;
+    }
+
+    /**
+     * Letters, digits and the combining marks that belong to them, or anything but whitespace for the verbatim
+     * chain. ASCII is decided without a table lookup.
+     *
+     * @param c
+     * @param next the char after c, or 0 at the end of the text
+     * @return true if c belongs to a word
+     */
+    private boolean isWordChar(char c, char next) {
+
+        if (splitAtWhitespace) return !Character.isWhitespace(c);
+
+        if (c < 0x80) return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+
+        int codePoint = Character.isSurrogatePair(c, next) ? Character.toCodePoint(c, next) : c;
+
+        if (Character.isLetterOrDigit(codePoint)) return true;
+
+        int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK || type == Character.ENCLOSING_MARK;
+    }
+
+
+    /**
+     * Drops the tokens in a set of words. The set is an open addressing table of char arrays, so a token is looked
+     * up without making a String of it.
+     */
+    private static class Stopwords implements Filter {
+
+        private final char[][] table;
+
+        Stopwords(Collection<String> words) {
+
+            int capacity = Integer.highestOneBit(Math.max(words.size(), 1) * 4);
+            table = new char[capacity][];
+
+            for (String word : words) {
+                Token token = new Token();
+                for (int i = 0; i < word.length(); i++) token.append(word.charAt(i));
+                NFC.apply(token);
+                LOWER_CASE.apply(token);
+
+                int slot = hash(token.chars, token.length) & (capacity - 1);
+                while (table[slot] != null && !equals(table[slot], token.chars, token.length)) slot = (slot + 1) & (capacity - 1);
+                table[slot] = Arrays.copyOf(token.chars, token.length);
+            }
+        }
+
+        List<String> words() {
+
+            List<String> words = new ArrayList<String>();
+
+            for (char[] word : table) {
+                if (word != null) words.add(new String(word));
+            }
+            return words;
+        }
+
+        public boolean apply(Token token) {
+
+            int mask = table.length - 1;
+
+            for (int slot = hash(token.chars(), token.length()) & mask; table[slot] != null; slot = (slot + 1) & mask) {
+                if (equals(table[slot], token.chars(), token.length())) return false;
+            }
+            return true;
+        }
+
+        private static int hash(char[] chars, int length) {
+
+            int hash = 0;
+
+            for (int i = 0; i < length; i++) hash = 31 * hash + chars[i];
+
+            return hash ^ (hash >>> 16);
+        }
+
+        private static boolean equals(char[] word, char[] chars, int length) {
+
+            if (word.length != length) return false;
+
+            for (int i = 0; i < length; i++) {
+                if (word[i] != chars[i]) return false;
+            }
+            return true;
+        }
+    }
+}
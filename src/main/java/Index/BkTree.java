@@ -0,0 +1,247 @@
+package Index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * A BK-tree over the words of an index, used to find the words within a small edit distance of a misspelled query
+ * without comparing it against the whole vocabulary.
+ *
+ * Every child hangs off its parent under its edit distance to the parent. By the triangle inequality a word within
+ * distance r of the query can only be below a child whose edge differs by at most r from the query's distance to
+ * the parent, so a search for r = 1 or 2 only visits a small part of the tree.
+ *
+ * Words are compared ignoring case: the tree is built over the lower case forms and every node keeps the original
+ * words that share it. The tree refers to words by their number in a Words source and keeps nothing but int arrays
+ * itself, so a tree over an off-heap index adds no objects per word, not even while it is built: the words are
+ * grouped by lower case form in a table of word numbers and compared through the keys of the source. Nodes are
+ * stored in parallel arrays, children as a linked list of siblings.
+ */
+public class BkTree {
+
+    /**
+     * The words a tree is built over, by number.
+     */
+    public interface Words {
+
+        int size();
+
+        /**
+         * @param number
+         * @return the lower case form of the word. It may be a view that is only valid until the next call.
+         */
+        CharSequence key(int number);
+
+        String word(int number);
+    }
+
+    private final Words source;
+    private int[] nodeWords;    // the first word of every node
+    private int[] nextWords;    // per word, the next word with the same lower case form, or -1
+    private int[] edges;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] maxEdges;
+    private int size;
+
+    private BkTree(Words source) {
+        int capacity = Math.max(source.size(), 1);
+        this.source = source;
+        nodeWords = new int[capacity];
+        nextWords = new int[capacity];
+        edges = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        maxEdges = new int[capacity];
+        Arrays.fill(nextWords, -1);
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * @param words
+     * @return a tree holding the words
+     */
+    public static BkTree build(Iterable<String> words) {
+
+        final ArrayList<String> list = new ArrayList<String>();
+        final ArrayList<String> keys = new ArrayList<String>();
+
+        for (String word : words) {
+            list.add(word);
+            keys.add(word.toLowerCase());
+        }
+
+        return build(new Words() {
+            public int size() {
+                return list.size();
+            }
+
+            public CharSequence key(int number) {
+                return keys.get(number);
+            }
+
+            public String word(int number) {
+                return list.get(number);
+            }
+        });
+    }
+
+    /**
+     * The key of the word being inserted is copied into one reusable buffer, as the source may hand out a single
+     * view for all its keys. The table of nodes by lower case form holds node numbers, plus one so 0 is empty.
+     *
+     * @param words
+     * @return a tree holding the words of the source, which it keeps reading from
+     */
+    public static BkTree build(Words words) {
+
+        BkTree tree = new BkTree(words);
+        int[] nodes = new int[Integer.highestOneBit(Math.max(words.size(), 1) * 2) * 2];
+        int mask = nodes.length - 1;
+        StringBuilder key = new StringBuilder();
+
+        for (int number = 0; number < words.size(); number++) {
+            key.setLength(0);
+            key.append(words.key(number));
+
+            int slot = hash(key) & mask;
+            while (nodes[slot] != 0 && !equal(key, words.key(tree.nodeWords[nodes[slot] - 1]))) slot = (slot + 1) & mask;
+
+            if (nodes[slot] == 0) nodes[slot] = tree.insert(key, number) + 1;
+            else tree.addWord(nodes[slot] - 1, number);
+        }
+        return tree;
+    }
+
+    /**
+     * @return the number of distinct lower case words
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the words closest to the query, ignoring case. Words equal to the query are not suggestions and are
+     * skipped, so the result holds the words at the smallest distance between 1 and maxDistance.
+     *
+     * @param query
+     * @param maxDistance
+     * @return the closest words, empty if there are none within maxDistance
+     */
+    public HashSet<String> nearest(String query, int maxDistance) {
+
+        HashSet<String> nearest = new HashSet<String>();
+
+        if (size == 0) return nearest;
+
+        String key = query.toLowerCase();
+        int radius = maxDistance;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0)
+        {
+            int node = stack[--top];
+            // past radius + the largest edge below it neither the node nor its children can match
+            int distance = EditDistance.bounded(key, source.key(nodeWords[node]), radius + maxEdges[node]);
+
+            if (distance > 0 && distance <= radius) {
+                if (distance < radius) {    // everything found so far is further away
+                    nearest.clear();
+                    radius = distance;
+                }
+                collect(node, nearest);
+            }
+
+            for (int child = firstChild[node]; child != 0; child = nextSibling[child]) {
+                if (Math.abs(edges[child] - distance) <= radius) {
+                    if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+                    stack[top++] = child;
+                }
+            }
+        }
+        return nearest;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Walks down from the root along the edges matching the distance of the key to each node and appends the key
+     * as a new leaf.
+     *
+     * @return the new node
+     */
+    private int insert(CharSequence key, int word) {
+
+        int node = size++;
+        nodeWords[node] = word;
+
+        if (node == 0) return node;
+
+        int parent = 0;
+
+        while (true)
+        {
+            int distance = EditDistance.distance(key, source.key(nodeWords[parent]));
+            int child = firstChild[parent];
+
+            while (child != 0 && edges[child] != distance) child = nextSibling[child];
+
+            if (child == 0) {
+                edges[node] = distance;
+                nextSibling[node] = firstChild[parent];
+                firstChild[parent] = node;
+                maxEdges[parent] = Math.max(maxEdges[parent], distance);
+                return node;
+            }
+            parent = child;
+        }
+    }
+
+    /**
+     * Adds a word to the node of its lower case form, as the second in the node's list.
+     */
+    private void addWord(int node, int word) {
+        int first = nodeWords[node];
+        nextWords[word] = nextWords[first];
+        nextWords[first] = word;
+    }
+
+    private static int hash(CharSequence key) {
+
+        int hash = 0;
+
+        for (int i = 0; i < key.length(); i++) hash = 31 * hash + key.charAt(i);
+
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equal(CharSequence a, CharSequence b) {
+
+        if (a.length() != b.length()) return false;
+
+        for (int i = 0; i < a.length(); i++) {
+            if (a.charAt(i) != b.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private void collect(int node, HashSet<String> nearest) {
+        for (int word = nodeWords[node]; word != -1; word = nextWords[word]) nearest.add(source.word(word));
+    }
+}
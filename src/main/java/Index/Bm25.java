@@ -0,0 +1,37 @@
+package Index;
+
+/**
+ * The Okapi BM25 relevance function used to rank search results.
+ *
+ * The score of a word in a document is idf(word) * (K1 + 1) * weight, where the weight only depends on the
+ * word's frequency in the document and the length of the document. Keeping the weight separate from the idf
+ * lets the index store score upper bounds that stay valid for any query.
+ */
+public class Bm25 {
+
+    public static final float K1 = 1.2f;
+    public static final float B = 0.75f;
+
+    private Bm25() {}
+
+    /**
+     * @param frequency how often the word occurs in the document
+     * @param length the number of words in the document
+     * @param averageLength the average number of words per document
+     * @return the length normalised term frequency, always below 1
+     */
+    public static float weight(int frequency, int length, float averageLength) {
+        float norm = K1 * (1 - B + B * length / averageLength);
+        return frequency / (frequency + norm);
+    }
+
+    /**
+     * @param documentFrequency the number of documents containing the word
+     * @param documentCount the number of documents in the index
+     * @return the factor the weight of the word is multiplied with, idf(word) * (K1 + 1)
+     */
+    public static float idf(int documentFrequency, int documentCount) {
+        double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        return (float) (idf * (K1 + 1));
+    }
+}
@@ -0,0 +1,539 @@
+package Index;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads a corpus in the word-per-line format, where every page starts with a "*PAGE:url" line followed by its words.
+ *
+ * The file is memory mapped and split into chunks at page boundaries. The chunks are parsed in parallel on the
+ * common fork-join pool, each into its own partial index, and the partial indexes are merged in file order, so
+ * document ids come out the same as when reading the file from start to end. Words are looked up by their bytes,
+ * so a String is only created once per distinct word and chunk instead of once per line.
+ *
+ * Every line is run through the analyzer, which lower cases it and splits off punctuation, so one line can hold
+ * no word or several. A word's position is the number of words before it on its page, recorded if the index is
+ * positional. Lines are decoded into a reused char buffer and the words encoded back into a reused byte buffer.
+ */
+public class CorpusLoader {
+
+    private static final byte[] PAGE_MARKER = "*PAGE:".getBytes(StandardCharsets.UTF_8);
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final long MAX_CHUNK_SIZE = 1 << 28;
+    private static final int SCAN_WINDOW = 1 << 16;
+
+    private CorpusLoader() {}
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Adds every page of the file to the index, analysed by the standard analyzer.
+     *
+     * @param filename
+     * @param index
+     * @throws IOException if the file cannot be read
+     */
+    public static void load(String filename, InvertedIndex index) throws IOException {
+        load(filename, index, Analyzer.STANDARD);
+    }
+
+    /**
+     * Adds every page of the file to the index.
+     *
+     * @param filename
+     * @param index
+     * @param analyzer turns the lines into words. Queries have to be analysed the same way.
+     * @throws IOException if the file cannot be read
+     */
+    public static void load(String filename, InvertedIndex index, Analyzer analyzer) throws IOException {
+
+        load(filename, index, analyzer, 0, 1);
+    }
+
+    /**
+     * Adds one part of the file to the index, for a server that only holds that part. The file is divided into
+     * parts of about the same size in bytes, each starting at a page, so every page belongs to exactly one part
+     * and only that part of the file is read.
+     *
+     * @param filename
+     * @param index
+     * @param analyzer turns the lines into words. Queries have to be analysed the same way.
+     * @param part the part to load, from 0
+     * @param parts the number of parts
+     * @throws IOException if the file cannot be read
+     */
+    public static void load(String filename, InvertedIndex index, Analyzer analyzer, int part, int parts) throws IOException {
+        load(filename, index, analyzer, part, parts, 0);
+    }
+
+    /**
+     * Like load(filename, index, analyzer, part, parts), with chunks of about the given size.
+     *
+     * @param chunkSize the number of bytes per chunk, or 0 to pick it from the size of the file and the cores
+     */
+    static void load(String filename, InvertedIndex index, Analyzer analyzer, int part, int parts, long chunkSize) throws IOException {
+
+        if (part < 0 || part >= parts) throw new IllegalArgumentException("There is no part " + part + " of " + parts);
+
+        index.setAnalyzer(analyzer);
+
+        for (PartialIndex partial : parse(filename, part, parts, index.isPositional(), analyzer, chunkSize)) {
+            partial.mergeInto(index, 0, partial.documentCount());
+        }
+    }
+
+    /**
+     * Splits the pages of the file between the shards. Every shard gets a run of consecutive pages, about the same
+     * number of them, so the first shard holds the first pages of the file and the last shard the last ones.
+     *
+     * @param filename
+     * @param shards empty indexes, positional or not alike
+     * @param analyzer turns the lines into words. Queries have to be analysed the same way.
+     * @throws IOException if the file cannot be read
+     */
+    public static void load(String filename, InvertedIndex[] shards, Analyzer analyzer) throws IOException {
+
+        List<PartialIndex> partials = parse(filename, 0, 1, shards[0].isPositional(), analyzer, 0);
+        long total = 0;
+
+        for (InvertedIndex shard : shards) shard.setAnalyzer(analyzer);
+
+        for (PartialIndex partial : partials) total += partial.documentCount();
+
+        long perShard = (total + shards.length - 1) / shards.length;
+        int shard = 0;
+        long added = 0;   // to the shards before the current one and the current one
+
+        for (PartialIndex partial : partials) {
+            int from = 0;
+            while (from < partial.documentCount()) {
+                if (added == (shard + 1) * perShard) shard++;
+                int to = (int) Math.min(partial.documentCount(), from + (shard + 1) * perShard - added);
+                partial.mergeInto(shards[shard], from, to);
+                added += to - from;
+                from = to;
+            }
+        }
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Parses the chunks of one part of the file in parallel.
+     *
+     * @return the partial indexes of the chunks, in file order
+     */
+    private static List<PartialIndex> parse(String filename, int part, int parts, boolean positional, Analyzer analyzer, long chunkSize) throws IOException {
+
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel())
+        {
+            long size = channel.size();
+            long from = (part == 0) ? 0 : nextPage(channel, size / parts * part, size);
+            long to = (part == parts - 1) ? size : nextPage(channel, size / parts * (part + 1), size);
+            long[] boundaries = split(channel, from, to, ForkJoinPool.commonPool().getParallelism(), chunkSize);
+            List<ParseTask> tasks = new ArrayList<ParseTask>();
+
+            for (int i = 0; i + 1 < boundaries.length; i++) {
+                long length = boundaries[i + 1] - boundaries[i];
+                if (length > Integer.MAX_VALUE) throw new IOException("A page in " + filename + " is larger than 2GB");
+                tasks.add(new ParseTask(channel.map(FileChannel.MapMode.READ_ONLY, boundaries[i], length), positional, analyzer));
+            }
+
+            ForkJoinTask.invokeAll(tasks);
+
+            List<PartialIndex> partials = new ArrayList<PartialIndex>(tasks.size());
+            for (ParseTask task : tasks) partials.add(task.join());
+
+            return partials;
+        }
+    }
+
+    /**
+     * Splits the bytes from "from" to "to" into roughly equal chunks that all start at the beginning of a page (or
+     * at from).
+     *
+     * @param chunkSize the size of the chunks, or 0 for a few chunks per thread of at least MIN_CHUNK_SIZE
+     * @return the chunk offsets, starting with from and ending with to
+     */
+    private static long[] split(FileChannel channel, long from, long to, int parallelism, long chunkSize) throws IOException {
+
+        if (chunkSize <= 0) chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, (to - from) / (parallelism * 4L)));
+
+        List<Long> boundaries = new ArrayList<Long>();
+        boundaries.add(from);
+
+        long position = from + chunkSize;
+
+        while (position < to) {
+            long start = nextPage(channel, position, to);
+            if (start >= to) break;
+            boundaries.add(start);
+            position = start + chunkSize;
+        }
+        boundaries.add(to);
+
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) result[i] = boundaries.get(i);
+
+        return result;
+    }
+
+    /**
+     * @return the offset of the first "*PAGE:" line that starts after position, or size if there is none
+     */
+    private static long nextPage(FileChannel channel, long position, long size) throws IOException {
+
+        while (position < size)
+        {
+            int length = (int) Math.min(SCAN_WINDOW + PAGE_MARKER.length, size - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+            for (int i = 0; i < Math.min(SCAN_WINDOW, length); i++) {
+                if (window.get(i) == '\n' && startsWith(window, i + 1, length, PAGE_MARKER)) return position + i + 1;
+            }
+            position += SCAN_WINDOW;
+        }
+        return size;
+    }
+
+    private static boolean startsWith(MappedByteBuffer buffer, int offset, int limit, byte[] prefix) {
+
+        if (offset + prefix.length > limit) return false;
+
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(offset + i) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses one chunk of the file into a partial index.
+     */
+    private static class ParseTask extends RecursiveTask<PartialIndex> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final MappedByteBuffer chunk;
+        private final boolean positional;
+        private final Analyzer analyzer;
+
+        ParseTask(MappedByteBuffer chunk, boolean positional, Analyzer analyzer) {
+            this.chunk = chunk;
+            this.positional = positional;
+            this.analyzer = analyzer;
+        }
+
+        protected PartialIndex compute() {
+
+            PartialIndex partial = new PartialIndex(positional, analyzer);
+            int limit = chunk.limit();
+            int lineStart = 0;
+            int doc = -1;
+            byte[] line = new byte[256];
+
+            while (lineStart < limit)
+            {
+                int lineEnd = lineStart;
+                while (lineEnd < limit && chunk.get(lineEnd) != '\n') lineEnd++;
+
+                int length = lineEnd - lineStart;
+                if (length > 0 && chunk.get(lineEnd - 1) == '\r') length--;
+
+                if (length > line.length) line = new byte[Math.max(length, line.length * 2)];
+                for (int i = 0; i < length; i++) line[i] = chunk.get(lineStart + i);
+
+                if (startsWith(line, length, PAGE_MARKER)) {  // a url, every following word belongs to this page
+                    String url = new String(line, PAGE_MARKER.length, length - PAGE_MARKER.length, StandardCharsets.UTF_8);
+                    doc = partial.addDocument(url);
+                } else if (doc >= 0 && length > 0) {  // skip words before the first url
+                    partial.addLine(line, length, doc);
+                }
+                lineStart = lineEnd + 1;
+            }
+            return partial;
+        }
+
+        private static boolean startsWith(byte[] line, int length, byte[] prefix) {
+
+            if (length < prefix.length) return false;
+
+            for (int i = 0; i < prefix.length; i++) {
+                if (line[i] != prefix[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The words and pages of one chunk. Words are kept as bytes in an open addressing hash table,
+     * documents have ids local to the chunk until they are merged.
+     */
+    private static class PartialIndex implements Analyzer.Handler {
+
+        private final boolean positional;
+        private final Analyzer analyzer;
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private CharBuffer chars = CharBuffer.allocate(256);
+        private byte[] encoded = new byte[256];
+        private int currentDoc;
+        private final List<String> urls = new ArrayList<String>();
+        private final HashMap<String, Integer> docIds = new HashMap<String, Integer>();
+        private int[] lengths = new int[16];
+
+        private byte[] wordBytes = new byte[1 << 12];
+        private int wordBytesUsed;
+        private int[] wordOffsets = new int[64];
+        private int[] wordLengths = new int[64];
+        private PostingList[] postings = new PostingList[64];
+        private int wordCount;
+        private int[] table = new int[128];  // word number + 1, 0 is an empty slot
+
+        PartialIndex(boolean positional, Analyzer analyzer) {
+            this.positional = positional;
+            this.analyzer = analyzer;
+        }
+
+        int addDocument(String url) {
+
+            Integer id = docIds.get(url);
+
+            if (id != null) return id;
+
+            id = urls.size();
+            urls.add(url);
+            docIds.put(url, id);
+
+            if (id == lengths.length) lengths = Arrays.copyOf(lengths, id * 2);
+
+            return id;
+        }
+
+        /**
+         * Analyses a line of the page and adds its words. ASCII lines are widened to chars directly, other lines
+         * go through the UTF-8 decoder.
+         */
+        void addLine(byte[] bytes, int length, int doc) {
+
+            if (chars.capacity() < length) chars = CharBuffer.allocate(Math.max(length, chars.capacity() * 2));
+
+            char[] buffer = chars.array();
+            int i = 0;
+
+            while (i < length && bytes[i] >= 0) {
+                buffer[i] = (char) bytes[i];
+                i++;
+            }
+
+            int decoded = length;
+
+            if (i < length) {
+                chars.clear();
+                decoder.reset();
+                decoder.decode(ByteBuffer.wrap(bytes, 0, length), chars, true);
+                decoder.flush(chars);
+                decoded = chars.position();
+            }
+
+            currentDoc = doc;
+            analyzer.analyze(buffer, 0, decoded, this);
+        }
+
+        /**
+         * Receives the words of the line being added, encodes them as UTF-8 and adds them.
+         */
+        public void word(char[] word, int length) {
+
+            if (encoded.length < length * 3) encoded = new byte[length * 3];
+
+            int size = 0;
+
+            for (int i = 0; i < length; i++) {
+                char c = word[i];
+                if (c < 0x80) {
+                    encoded[size++] = (byte) c;
+                }
+                else if (c < 0x800) {
+                    encoded[size++] = (byte) (0xc0 | (c >> 6));
+                    encoded[size++] = (byte) (0x80 | (c & 0x3f));
+                }
+                else if (i + 1 < length && Character.isSurrogatePair(c, word[i + 1])) {
+                    int codePoint = Character.toCodePoint(c, word[++i]);
+                    encoded[size++] = (byte) (0xf0 | (codePoint >> 18));
+                    encoded[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    encoded[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    encoded[size++] = (byte) (0x80 | (codePoint & 0x3f));
+                }
+                else {
+                    encoded[size++] = (byte) (0xe0 | (c >> 12));
+                    encoded[size++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    encoded[size++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+            addWord(encoded, size, currentDoc);
+        }
+
+        private void addWord(byte[] bytes, int length, int doc) {
+
+            int hash = hash(bytes, length);
+            int mask = table.length - 1;
+            int slot = hash & mask;
+
+            while (table[slot] != 0) {
+                int word = table[slot] - 1;
+                if (equals(word, bytes, length)) {
+                    addOccurrence(word, doc);
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            int word = newWord(bytes, length);
+            table[slot] = word + 1;
+            addOccurrence(word, doc);
+
+            if (wordCount * 2 > table.length) rehash();
+        }
+
+        int documentCount() {
+            return urls.size();
+        }
+
+        /**
+         * Adds the documents of the chunk from local id from up to to to the index. Documents are mapped to their
+         * global ids, which are ascending as long as the chunks are merged in file order, so the posting lists are
+         * only appended to. A url that an earlier chunk already added keeps its id, and its words here get positions
+         * after the ones it has, like they would when reading the file in order.
+         */
+        void mergeInto(InvertedIndex index, int from, int to) {
+
+            DocumentDictionary documents = index.getDocuments();
+            int existing = documents.size();
+            int[] globalIds = new int[to - from];
+            int[] offsets = new int[to - from];   // the length of a page before this chunk
+
+            for (int doc = from; doc < to; doc++) {
+                int id = documents.add(urls.get(doc));
+                globalIds[doc - from] = id;
+                if (id < existing) offsets[doc - from] = documents.length(id);
+                documents.addLength(id, lengths[doc]);
+            }
+
+            for (int word = 0; word < wordCount; word++)
+            {
+                PostingList source = postings[word];
+                PostingList target = null;
+
+                for (int i = 0; i < source.size(); i++) {
+                    int doc = source.get(i);
+                    if (doc < from || doc >= to) continue;
+                    if (target == null) target = index.postingsFor(new String(wordBytes, wordOffsets[word], wordLengths[word], StandardCharsets.UTF_8));
+
+                    int id = globalIds[doc - from];
+                    if (id >= existing || source.positions() == null) {
+                        target.add(id, source, i);
+                    } else {
+                        for (int position : source.positions().get(i)) target.addPosition(id, offsets[doc - from] + position);
+                    }
+                }
+            }
+        }
+
+        private void addOccurrence(int word, int doc) {
+
+            if (positional) postings[word].addPosition(doc, lengths[doc]);
+            else postings[word].add(doc);
+
+            lengths[doc]++;
+        }
+
+        private int newWord(byte[] bytes, int length) {
+
+            if (wordCount == postings.length) {
+                wordOffsets = Arrays.copyOf(wordOffsets, wordCount * 2);
+                wordLengths = Arrays.copyOf(wordLengths, wordCount * 2);
+                postings = Arrays.copyOf(postings, wordCount * 2);
+            }
+            if (wordBytesUsed + length > wordBytes.length) {
+                wordBytes = Arrays.copyOf(wordBytes, Math.max(wordBytes.length * 2, wordBytesUsed + length));
+            }
+
+            System.arraycopy(bytes, 0, wordBytes, wordBytesUsed, length);
+            wordOffsets[wordCount] = wordBytesUsed;
+            wordLengths[wordCount] = length;
+            postings[wordCount] = new PostingList();
+            wordBytesUsed += length;
+
+            return wordCount++;
+        }
+
+        private boolean equals(int word, byte[] bytes, int length) {
+
+            if (wordLengths[word] != length) return false;
+
+            int offset = wordOffsets[word];
+
+            for (int i = 0; i < length; i++) {
+                if (wordBytes[offset + i] != bytes[i]) return false;
+            }
+            return true;
+        }
+
+        private void rehash() {
+
+            int[] old = table;
+            table = new int[old.length * 2];
+            int mask = table.length - 1;
+
+            for (int entry : old) {
+                if (entry == 0) continue;
+                int word = entry - 1;
+                int slot = hash(wordBytes, wordOffsets[word], wordLengths[word]) & mask;
+                while (table[slot] != 0) slot = (slot + 1) & mask;
+                table[slot] = entry;
+            }
+        }
+
+        private static int hash(byte[] bytes, int length) {
+            return hash(bytes, 0, length);
+        }
+
+        private static int hash(byte[] bytes, int offset, int length) {
+
+            int hash = 0x811c9dc5;  // FNV-1a
+
+            for (int i = offset; i < offset + length; i++) {
+                hash ^= bytes[i];
+                hash *= 0x01000193;
+            }
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
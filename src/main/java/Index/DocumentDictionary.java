@@ -0,0 +1,93 @@
+package Index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Maps every document url to a dense int id, so that posting lists only have to store ints.
+ * Ids are handed out in insertion order, starting at 0. The number of words in every document is kept for ranking.
+ */
+public class DocumentDictionary {
+
+    private ArrayList<String> urls = new ArrayList<String>();
+    private HashMap<String, Integer> ids = new HashMap<String, Integer>();
+    private int[] lengths = new int[16];
+    private long totalLength;
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Returns the id of the url, assigning the next free id if the url has not been seen before.
+     *
+     * @param url
+     * @return
+     */
+    public int add(String url) {
+
+        Integer id = ids.get(url);
+
+        if (id != null) return id;
+
+        id = urls.size();
+        urls.add(url);
+        ids.put(url, id);
+
+        if (id == lengths.length) lengths = Arrays.copyOf(lengths, id * 2);
+
+        return id;
+    }
+
+    /**
+     * @param url
+     * @return the id of the url or -1 if the url is unknown
+     */
+    public int lookup(String url) {
+        Integer id = ids.get(url);
+        return (id == null) ? -1 : id;
+    }
+
+    public String url(int id) {
+        return urls.get(id);
+    }
+
+    public int size() {
+        return urls.size();
+    }
+
+    /**
+     * Adds to the number of words of a document.
+     *
+     * @param id
+     * @param words
+     */
+    public void addLength(int id, int words) {
+        lengths[id] += words;
+        totalLength += words;
+    }
+
+    /**
+     * @param id
+     * @return the number of words in the document
+     */
+    public int length(int id) {
+        return lengths[id];
+    }
+
+    public float averageLength() {
+        return urls.isEmpty() ? 0 : (float) totalLength / urls.size();
+    }
+
+    public void clear() {
+        urls.clear();
+        ids.clear();
+        lengths = new int[16];
+        totalLength = 0;
+    }
+}
@@ -0,0 +1,187 @@
+package Index;
+
+/**
+ * Levenshtein distance with a threshold. Suggestions only care whether two words are within an edit distance or
+ * two, so the work stops as soon as the threshold can no longer be met:
+ *
+ * - words whose lengths differ by more than the threshold are rejected without looking at them;
+ * - words up to 64 characters use Myers' bit-parallel algorithm, one column of the matrix per machine word;
+ * - longer words only fill the diagonal band of the matrix the threshold allows (Ukkonen).
+ *
+ * Both kernels reuse per-thread buffers, so a comparison allocates nothing.
+ */
+public final class EditDistance {
+
+    private static final int ALPHABET = 256;
+
+    private static final ThreadLocal<long[]> MASKS = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[ALPHABET];
+        }
+    };
+
+    private static final ThreadLocal<int[]> ROW = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[128];
+        }
+    };
+
+    private EditDistance() {
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * @param a
+     * @param b
+     * @return the edit distance between the words, compared as they are
+     */
+    public static int distance(CharSequence a, CharSequence b) {
+        return bounded(a, b, Math.max(a.length(), b.length()));
+    }
+
+    /**
+     * @param a
+     * @param b
+     * @param max the threshold
+     * @return the edit distance between the words, or max + 1 if it is larger than max
+     */
+    public static int bounded(CharSequence a, CharSequence b, int max) {
+
+        if (a.length() > b.length()) {  // the shorter word is the pattern
+            CharSequence swap = a;
+            a = b;
+            b = swap;
+        }
+
+        if (b.length() - a.length() > max) return max + 1;
+        if (a.length() == 0) return b.length();
+
+        return (a.length() <= Long.SIZE) ? myers(a, b, max) : banded(a, b, max);
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Myers' bit-vector algorithm in Hyyrö's formulation. Bit i of the vertical delta vectors says whether the
+     * distance increases (pv) or decreases (mv) from row i to row i + 1 of the current column, and the distance
+     * itself is tracked at the last row. Every remaining column can lower it by at most one, which gives the early
+     * exit.
+     */
+    private static int myers(CharSequence pattern, CharSequence text, int max) {
+
+        long[] masks = MASKS.get();
+        int m = pattern.length();
+        int n = text.length();
+
+        for (int i = 0; i < m; i++) {
+            char c = pattern.charAt(i);
+            if (c < ALPHABET) masks[c] |= 1L << i;
+        }
+
+        long pv = -1L;
+        long mv = 0L;
+        long last = 1L << (m - 1);
+        int score = m;
+
+        for (int j = 0; j < n; j++) {
+            char c = text.charAt(j);
+            long eq = (c < ALPHABET) ? masks[c] : mask(pattern, c);
+
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+
+            if ((ph & last) != 0) score++;
+            else if ((mh & last) != 0) score--;
+
+            ph = (ph << 1) | 1L;    // the first row of the matrix increases by one per column
+            mh = mh << 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+
+            if (score - (n - j - 1) > max) {
+                score = max + 1;
+                break;
+            }
+        }
+
+        for (int i = 0; i < m; i++) {
+            char c = pattern.charAt(i);
+            if (c < ALPHABET) masks[c] = 0L;
+        }
+        return Math.min(score, max + 1);
+    }
+
+    /**
+     * The match mask of a character outside the lookup table.
+     */
+    private static long mask(CharSequence pattern, char c) {
+
+        long mask = 0L;
+
+        for (int i = 0; i < pattern.length(); i++)
+            if (pattern.charAt(i) == c) mask |= 1L << i;
+
+        return mask;
+    }
+
+    /**
+     * The row by row dynamic program, restricted to the cells within max of the diagonal. Cells outside the band
+     * count as max + 1, and the computation stops at the first row without a cell within the threshold.
+     */
+    private static int banded(CharSequence a, CharSequence b, int max) {
+
+        int m = a.length();
+        int n = b.length();
+        int over = max + 1;
+        int[] row = ROW.get();
+
+        if (row.length <= n) {
+            row = new int[Math.max(n + 1, row.length * 2)];
+            ROW.set(row);
+        }
+
+        for (int j = 0; j <= n; j++) row[j] = (j <= max) ? j : over;
+
+        for (int i = 1; i <= m; i++) {
+            int low = Math.max(1, i - max);
+            int high = Math.min(n, i + max);
+            int left = (low == 1 && i <= max) ? i : over;
+            int diagonal = row[low - 1];
+            int minimum = left;
+            char c = a.charAt(i - 1);
+
+            row[low - 1] = left;
+
+            for (int j = low; j <= high; j++) {
+                int up = row[j];
+                int value = Math.min(Math.min(up, left) + 1, (c == b.charAt(j - 1)) ? diagonal : diagonal + 1);
+                if (value > over) value = over;
+
+                diagonal = up;
+                row[j] = value;
+                left = value;
+                if (value < minimum) minimum = value;
+            }
+
+            if (minimum > max) return over;
+        }
+        return Math.min(row[n], over);
+    }
+}
@@ -0,0 +1,244 @@
+package Index;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The search index: maps every word to the posting list of the documents it occurs in.
+ * Documents are referenced by their id in the document dictionary instead of by url, so every url string
+ * is stored once no matter how many words the page contains.
+ *
+ * A positional index also records where on the page every word occurs, which phrase queries check.
+ */
+public class InvertedIndex extends LinkedHashMap<String, PostingList> implements SearchIndex {
+
+    private static final long serialVersionUID = 1L;
+
+    private DocumentDictionary documents = new DocumentDictionary();
+    private final boolean positional;
+    private Analyzer analyzer = Analyzer.VERBATIM;
+    private boolean finished;
+    private long generation;
+    private volatile TermDictionary terms;
+    private volatile BkTree fuzzy;
+
+    public InvertedIndex() {
+        this(false);
+    }
+
+    /**
+     * @param positional true to record the position of every word added with add()
+     */
+    public InvertedIndex(boolean positional) {
+        this.positional = positional;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Records that the word occurs on the page with the given url.
+     *
+     * @param word
+     * @param url
+     */
+    public void add(String word, String url) {
+
+        int doc = documents.add(url);
+        int position = documents.length(doc);
+        documents.addLength(doc, 1);
+
+        if (positional) postingsFor(word).addPosition(doc, position);
+        else postingsFor(word).add(doc);
+    }
+
+    /**
+     * Returns the posting list of the word, creating an empty one if the word is new.
+     * Documents added to the list directly have to be registered in the document dictionary as well.
+     *
+     * @param word
+     * @return
+     */
+    public PostingList postingsFor(String word) {
+
+        PostingList postings = get(word);
+
+        if (postings == null) {
+            postings = new PostingList();
+            put(word, postings);
+            fuzzy = null;
+        }
+        finished = false;
+        generation++;
+
+        return postings;
+    }
+
+    public DocumentDictionary getDocuments() {
+        return documents;
+    }
+
+    public PostingList postings(String word) {
+        return get(word);
+    }
+
+    public PositionList positions(String word) {
+        PostingList postings = get(word);
+        return (postings == null) ? null : postings.positions();
+    }
+
+    public boolean isPositional() {
+        return positional;
+    }
+
+    public Analyzer analyzer() {
+        return analyzer;
+    }
+
+    /**
+     * Records the analyzer the words added to the index come from. The corpus loader sets it; until then the words
+     * are taken as they were added, see Analyzer.VERBATIM.
+     *
+     * @param analyzer
+     */
+    public void setAnalyzer(Analyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    public int documentFrequency(String word) {
+        PostingList postings = get(word);
+        return (postings == null) ? 0 : postings.size();
+    }
+
+    public Iterable<String> words() {
+        return keySet();
+    }
+
+    /**
+     * Answered from the sorted term dictionary, which is built by finish() or on first use.
+     */
+    public List<String> wordsWithPrefix(String prefix, int limit) {
+        return getTerms().prefix(prefix, limit);
+    }
+
+    /**
+     * @return the words of the index in sorted order, rebuilt if words were added since it was last built
+     */
+    public TermDictionary getTerms() {
+
+        TermDictionary current = terms;
+
+        if (current == null || current.size() != size()) {
+            current = TermDictionary.build(keySet());
+            terms = current;
+        }
+        return current;
+    }
+
+    /**
+     * Answered from a BK-tree over the words, built on first use and dropped when words are added.
+     */
+    public HashSet<String> nearestWords(String word, int maxDistance) {
+
+        BkTree current = fuzzy;
+
+        if (current == null) {
+            current = BkTree.build(keySet());
+            fuzzy = current;
+        }
+        return current.nearest(word, maxDistance);
+    }
+
+    public int wordCount() {
+        return size();
+    }
+
+    public int documentCount() {
+        return documents.size();
+    }
+
+    public String url(int doc) {
+        return documents.url(doc);
+    }
+
+    public int documentLength(int doc) {
+        return documents.length(doc);
+    }
+
+    public float averageDocumentLength() {
+        return documents.averageLength();
+    }
+
+    public boolean hasScoreBounds() {
+        return finished;
+    }
+
+    /**
+     * Counts the changes made through postingsFor(), finish() and clear().
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Called once the index has been built: releases the spare capacity of every posting list, computes the
+     * score bounds used by ranked searches and builds the sorted term dictionary.
+     */
+    public void finish() {
+        finish(documents.averageLength());
+    }
+
+    /**
+     * Finishes an index that is one shard of a larger one, so its score bounds hold for the BM25 scores of the
+     * whole index.
+     *
+     * @param averageLength the average document length of the whole index
+     */
+    public void finish(float averageLength) {
+        for (PostingList postings : values()) {
+            postings.trim();
+            postings.computeBlockMaxWeights(documents, averageLength);
+        }
+        terms = TermDictionary.build(keySet());
+        finished = true;
+        generation++;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        documents.clear();
+        finished = false;
+        generation++;
+        terms = null;
+        fuzzy = null;
+    }
+
+    /**
+     * Returns the map as an InvertedIndex. Maps in the old word -> HashSet of urls format are converted.
+     *
+     * @param hashMap
+     * @return
+     */
+    public static InvertedIndex from(Map<String, ? extends Collection<String>> hashMap) {
+
+        Object map = hashMap;   // an index reaches here as a raw map from the old overloads
+        if (map instanceof InvertedIndex) return (InvertedIndex) map;
+
+        InvertedIndex index = new InvertedIndex();
+
+        for (Map.Entry<String, ? extends Collection<String>> entry : hashMap.entrySet()) {
+            for (String url : entry.getValue()) index.add(entry.getKey(), url);
+        }
+        index.finish();
+        return index;
+    }
+}
@@ -0,0 +1,58 @@
+package Index;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * An index made of parts that each hold a run of consecutive documents, the ids of a part continuing where the ones
+ * of the part before it end. Queries run on every part with its own posting lists, so the block maxima of the parts
+ * are kept, and the results are put back together: posting lists by gather(), ranked results by merging the best
+ * of every part. See ShardedIndex and SegmentedIndex.
+ */
+public interface PartitionedIndex extends SearchIndex {
+
+    /**
+     * Runs a task on every part. Each part is seen as an index of its own documents, numbered from 0, that answers
+     * documentFrequency() and collectionSize() for the whole index. Words that only occur in other parts have an
+     * empty posting list, so a query evaluates to null on a part only if it does on the whole index.
+     *
+     * @param task
+     * @return the results of the parts, in order
+     */
+    <T> List<T> scatter(Function<SearchIndex, T> task);
+
+    /**
+     * @param part
+     * @return the id in this index of the first document of the part
+     */
+    int docBase(int part);
+
+    /**
+     * Evaluates a query on every part and joins the results into ids of this index.
+     *
+     * @param evaluate a query, given a part
+     * @return the matching ids, or null if the query evaluated to null on every part
+     */
+    default PostingList gather(Function<SearchIndex, PostingList> evaluate) {
+
+        List<PostingList> lists = scatter(evaluate);
+        int size = 0, found = 0;
+
+        for (PostingList list : lists) {
+            if (list != null) { size += list.size(); found++; }
+        }
+
+        if (found == 0) return null;
+
+        int[] docs = new int[size];
+        int position = 0;
+
+        for (int i = 0; i < lists.size(); i++) {
+            PostingList list = lists.get(i);
+            if (list == null) continue;
+            int base = docBase(i);
+            for (int j = 0; j < list.size(); j++) docs[position++] = base + list.get(j);
+        }
+        return new PostingList(docs, size);
+    }
+}
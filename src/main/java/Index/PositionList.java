@@ -0,0 +1,166 @@
+package Index;
+
+import java.util.Arrays;
+
+/**
+ * The positions a word occurs at in each document of its posting list, in the same order as the list.
+ *
+ * Positions are counted in words from the start of the page. They are stored as varints, the first position of a
+ * document as it is and the others as the distance to the one before, so most positions take a single byte. The
+ * positions are kept apart from the document ids, so queries that do not need them never read them.
+ */
+public class PositionList {
+
+    private byte[] data;
+    private int used;
+    private int[] starts;
+    private int size;
+    private int last;
+
+    public PositionList() {
+        this.data = new byte[8];
+        this.starts = new int[2];
+    }
+
+    /**
+     * Wraps already encoded positions without copying them.
+     *
+     * @param data the varints of every document, one after the other
+     * @param used the number of bytes in use
+     * @param starts the offset of the first varint of every document
+     * @param size the number of documents
+     */
+    public PositionList(byte[] data, int used, int[] starts, int size) {
+        this.data = data;
+        this.used = used;
+        this.starts = starts;
+        this.size = size;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Adds a position to the last document, or starts the next document with it. Positions can only be appended.
+     *
+     * @param entry the position of the document in the posting list
+     * @param position
+     * @return false if the entry is neither the last nor the next one, or the position is not after the last
+     */
+    public boolean add(int entry, int position) {
+
+        if (entry == size) {
+            if (size == starts.length) starts = Arrays.copyOf(starts, size + (size >> 1) + 1);
+            starts[size++] = used;
+            write(position);
+        }
+        else if (entry == size - 1 && position > last) {
+            write(position - last);
+        }
+        else {
+            return false;
+        }
+        last = position;
+        return true;
+    }
+
+    /**
+     * Adds a position to an earlier document, or inserts a new document with it before the last one. This is for
+     * a page that is added to again after other pages, and moves the data of the documents after it.
+     *
+     * @param entry the position of the document in the posting list
+     * @param newEntry whether the document is inserted at entry instead of already being there
+     * @param position
+     * @return false if the position is not after the last one of the document
+     */
+    public boolean insert(int entry, boolean newEntry, int position) {
+
+        if (entry == (newEntry ? size : size - 1)) return add(entry, position);
+
+        int value = position;
+        int at = starts[newEntry ? entry : entry + 1];
+
+        if (!newEntry) {
+            int[] current = get(entry);
+            if (position <= current[current.length - 1]) return false;
+            value = position - current[current.length - 1];
+        }
+
+        int end = used;
+        used = at;
+        byte[] tail = Arrays.copyOfRange(data, at, end);
+        write(value);
+        int length = used - at;
+
+        if (used + tail.length > data.length) data = Arrays.copyOf(data, Math.max(used + tail.length, data.length * 2));
+        System.arraycopy(tail, 0, data, used, tail.length);
+        used += tail.length;
+
+        if (newEntry) {
+            if (size == starts.length) starts = Arrays.copyOf(starts, size + (size >> 1) + 1);
+            System.arraycopy(starts, entry, starts, entry + 1, size - entry);
+            starts[entry] = at;
+            size++;
+        }
+        for (int i = entry + 1; i < size; i++) starts[i] += length;
+
+        return true;
+    }
+
+    /**
+     * @param entry the position of the document in the posting list
+     * @return the positions of the word in the document, ascending
+     */
+    public int[] get(int entry) {
+
+        int offset = starts[entry];
+        int end = (entry + 1 < size) ? starts[entry + 1] : used;
+        int[] positions = new int[end - offset];     // at least one byte per position
+        int count = 0;
+        int position = 0;
+
+        while (offset < end) {
+            int value = 0, shift = 0, b;
+            do { b = data[offset++]; value |= (b & 0x7f) << shift; shift += 7; } while (b < 0);
+            position += value;
+            positions[count++] = position;
+        }
+        return (count == positions.length) ? positions : Arrays.copyOf(positions, count);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Shrinks the backing arrays to the data they hold. Called once loading has finished.
+     */
+    public void trim() {
+        if (data.length != used) data = Arrays.copyOf(data, used);
+        if (starts.length != size) starts = Arrays.copyOf(starts, size);
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    private void write(int value) {
+
+        if (used + 5 > data.length) data = Arrays.copyOf(data, Math.max(used + 5, data.length * 2));
+
+        while ((value & ~0x7f) != 0) {
+            data[used++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        data[used++] = (byte) value;
+    }
+}
@@ -0,0 +1,317 @@
+package Index;
+
+import java.util.Arrays;
+
+/**
+ * A sorted list of document ids backed by a plain int array, with the number of times the word occurs in each document.
+ * Ids are normally added in increasing order (which is how the corpus is read), so adding is an append;
+ * ids that arrive out of order are inserted at their sorted position.
+ *
+ * For ranking, the list is split into blocks of BLOCK_SIZE postings and the highest BM25 term weight of every block
+ * is kept, so a ranked search can skip whole blocks that cannot make it into the top results.
+ *
+ * Lists built with addPosition() also record where in each document the word occurs, see positions().
+ */
+public class PostingList {
+
+    public static final int BLOCK_SIZE = 64;
+
+    private int[] docs;
+    private int[] frequencies;
+    private int size;
+    private float[] blockMaxWeights;
+    private PositionList positions;
+
+    public PostingList() {
+        this.docs = new int[2];
+        this.frequencies = new int[2];
+    }
+
+    /**
+     * Wraps the first size entries of an already sorted array without copying it. Every id gets a frequency of 1.
+     *
+     * @param docs
+     * @param size
+     */
+    public PostingList(int[] docs, int size) {
+        this.docs = docs;
+        this.size = size;
+    }
+
+    /**
+     * Wraps already sorted ids and their frequencies without copying them.
+     *
+     * @param docs
+     * @param frequencies
+     * @param size
+     */
+    public PostingList(int[] docs, int[] frequencies, int size) {
+        this.docs = docs;
+        this.frequencies = frequencies;
+        this.size = size;
+    }
+
+    /**
+     * Wraps already sorted ids, their frequencies and the block max weights computed for them.
+     *
+     * @param docs
+     * @param frequencies
+     * @param size
+     * @param blockMaxWeights
+     */
+    public PostingList(int[] docs, int[] frequencies, int size, float[] blockMaxWeights) {
+        this(docs, frequencies, size);
+        this.blockMaxWeights = blockMaxWeights;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Adds an occurrence of the word in the document. Adding the same id again increments its frequency.
+     *
+     * @param doc
+     */
+    public void add(int doc) {
+        add(doc, 1);
+    }
+
+    /**
+     * Adds a number of occurrences of the word in the document.
+     *
+     * @param doc
+     * @param frequency
+     */
+    public void add(int doc, int frequency) {
+        positions = null;   // the positions of these occurrences are not known
+        append(doc, frequency);
+    }
+
+    /**
+     * Adds an occurrence of the word at a position in the document. Positions are kept as long as every
+     * occurrence is added this way, in position order within each document. Documents normally come in order,
+     * an earlier one (a page that is added to again) has its positions inserted.
+     *
+     * @param doc
+     * @param position the number of words before it in the document
+     */
+    public void addPosition(int doc, int position) {
+
+        if (size == 0) positions = new PositionList();
+
+        if (positions != null) {
+            boolean added;
+            if (size == 0 || docs[size - 1] <= doc) {
+                boolean sameDoc = size > 0 && docs[size - 1] == doc;
+                added = positions.add(sameDoc ? size - 1 : size, position);
+            } else {
+                int entry = Arrays.binarySearch(docs, 0, size, doc);
+                added = positions.insert((entry >= 0) ? entry : -entry - 1, entry < 0, position);
+            }
+            if (!added) positions = null;
+        }
+        append(doc, 1);
+    }
+
+    /**
+     * Adds the document at the given index of another list as the document doc, with its frequency and positions.
+     *
+     * @param doc
+     * @param source
+     * @param index
+     */
+    public void add(int doc, PostingList source, int index) {
+
+        if (source.positions == null || (size > 0 && positions == null)) {
+            add(doc, source.frequency(index));
+            return;
+        }
+        for (int position : source.positions.get(index)) addPosition(doc, position);
+    }
+
+    /**
+     * @return the positions of the word in the documents of the list, or null if they are not known
+     */
+    public PositionList positions() {
+        return positions;
+    }
+
+    public int get(int index) {
+        return docs[index];
+    }
+
+    /**
+     * @param index
+     * @return how often the word occurs in the document at the given position of the list
+     */
+    public int frequency(int index) {
+        return (frequencies == null) ? 1 : frequencies[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int doc) {
+        return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+    }
+
+    /**
+     * Shrinks the backing array to the number of ids it holds. Called once loading has finished.
+     */
+    public void trim() {
+        if (docs.length != size) docs = Arrays.copyOf(docs, size);
+        if (frequencies != null && frequencies.length != size) frequencies = Arrays.copyOf(frequencies, size);
+        if (positions != null) positions.trim();
+    }
+
+    /**
+     * Computes the highest BM25 term weight of every block. Has to be called again after the list or the
+     * document lengths change, until then hasBlockMaxWeights() is false.
+     *
+     * @param documents
+     */
+    public void computeBlockMaxWeights(DocumentDictionary documents) {
+        computeBlockMaxWeights(documents, documents.averageLength());
+    }
+
+    /**
+     * Computes the block weights against the average document length of a larger index the documents belong to.
+     *
+     * @param documents
+     * @param averageLength
+     */
+    public void computeBlockMaxWeights(DocumentDictionary documents, float averageLength) {
+
+        float[] weights = new float[(size + BLOCK_SIZE - 1) / BLOCK_SIZE];
+
+        for (int i = 0; i < size; i++) {
+            float weight = Bm25.weight(frequency(i), documents.length(docs[i]), averageLength);
+            if (weight > weights[i / BLOCK_SIZE]) weights[i / BLOCK_SIZE] = weight;
+        }
+        blockMaxWeights = weights;
+    }
+
+    public boolean hasBlockMaxWeights() {
+        return blockMaxWeights != null;
+    }
+
+    /**
+     * @param block
+     * @return the highest term weight of the postings in the block
+     */
+    public float blockMaxWeight(int block) {
+        return blockMaxWeights[block];
+    }
+
+    /**
+     * @return the highest term weight of the whole list
+     */
+    public float maxWeight() {
+
+        float max = 0;
+
+        for (float weight : blockMaxWeights) max = Math.max(max, weight);
+
+        return max;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(docs, size);
+    }
+
+    /**
+     * Finds the first position at or after from whose id is greater than or equal to target.
+     * Gallops forward in doubling steps and then binary searches the last step, so skipping over a long run of ids
+     * costs O(log distance) instead of O(distance).
+     *
+     * @param from
+     * @param target
+     * @return the position, or size() if every remaining id is smaller than target
+     */
+    public int seek(int from, int target) {
+
+        if (from >= size || docs[from] >= target) return from;
+
+        int low = from;
+        int step = 1;
+        int high = from + 1;
+
+        while (high < size && docs[high] < target) {  // docs[low] < target holds throughout
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+
+        if (high >= size) {
+            if (docs[size - 1] < target) return size;
+            high = size - 1;
+        }
+
+        int position = Arrays.binarySearch(docs, low + 1, high + 1, target);
+
+        return (position >= 0) ? position : -position - 1;
+    }
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    private void append(int doc, int frequency) {
+
+        if (frequencies == null) frequencies = filled(docs.length, size);
+
+        blockMaxWeights = null;
+
+        if (size > 0 && docs[size - 1] >= doc) {  // out of order or duplicate, find the sorted position
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position >= 0) {
+                frequencies[position] += frequency;
+                return;
+            }
+            insertAt(-position - 1, doc, frequency);
+            return;
+        }
+
+        if (size == docs.length) grow();
+
+        docs[size] = doc;
+        frequencies[size] = frequency;
+        size++;
+    }
+
+    private void insertAt(int position, int doc, int frequency) {
+
+        if (size == docs.length) grow();
+
+        System.arraycopy(docs, position, docs, position + 1, size - position);
+        System.arraycopy(frequencies, position, frequencies, position + 1, size - position);
+        docs[position] = doc;
+        frequencies[position] = frequency;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = size + (size >> 1) + 1;
+        docs = Arrays.copyOf(docs, capacity);
+        frequencies = Arrays.copyOf(frequencies, capacity);
+    }
+
+    private static int[] filled(int length, int size) {
+        int[] ones = new int[Math.max(length, size)];
+        Arrays.fill(ones, 0, size, 1);
+        return ones;
+    }
+}
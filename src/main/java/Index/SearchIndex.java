@@ -0,0 +1,127 @@
+package Index;
+
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Read access to an index, independent of where it is stored. Implemented by the in-memory InvertedIndex and by
+ * SegmentReader, which answers directly from a memory mapped index file.
+ */
+public interface SearchIndex {
+
+    /**
+     * @param word
+     * @return the posting list of the word, or null if the word is not in the index
+     */
+    PostingList postings(String word);
+
+    /**
+     * Positions are only read by phrase queries, and only for the documents that contain every word of the phrase.
+     *
+     * @param word
+     * @return the positions of the word in the documents of its posting list, in the same order, or null if the
+     *         index does not record them
+     */
+    default PositionList positions(String word) {
+        return null;
+    }
+
+    /**
+     * @param word
+     * @return the number of documents containing the word, without reading its posting list
+     */
+    int documentFrequency(String word);
+
+    /**
+     * @return every word in the index
+     */
+    Iterable<String> words();
+
+    /**
+     * @param prefix
+     * @param limit the maximum number of words to return
+     * @return the words starting with the prefix, in sorted order
+     */
+    List<String> wordsWithPrefix(String prefix, int limit);
+
+    /**
+     * Looks up the words spelled most like the given word, for "did you mean" suggestions.
+     *
+     * @param word
+     * @param maxDistance the maximum edit distance
+     * @return the words at the smallest edit distance from 1 to maxDistance, ignoring case
+     */
+    HashSet<String> nearestWords(String word, int maxDistance);
+
+    /**
+     * @return the number of distinct words
+     */
+    int wordCount();
+
+    int documentCount();
+
+    /**
+     * @return the number of documents BM25 counts when weighing a word. A shard of a larger index counts the
+     *         documents of the whole index, see ShardedIndex.
+     */
+    default int collectionSize() {
+        return documentCount();
+    }
+
+    String url(int doc);
+
+    /**
+     * @param doc
+     * @return the number of words in the document
+     */
+    int documentLength(int doc);
+
+    float averageDocumentLength();
+
+    /**
+     * @return true if the posting lists carry valid block max weights for ranking
+     */
+    boolean hasScoreBounds();
+
+    /**
+     * @return the analyzer the pages were indexed with, which queries have to be analysed with as well
+     */
+    default Analyzer analyzer() {
+        return Analyzer.STANDARD;
+    }
+
+    /**
+     * @return a number that changes whenever the contents of the index change. Indexes that never change return 0.
+     */
+    default long generation() {
+        return 0;
+    }
+
+    /**
+     * Indexes that take new documents while they are searched return a view that stays the same for as long as it
+     * is used, so that the ids a query evaluates to still name the same documents when they are resolved.
+     *
+     * @return an unchanging view of the index
+     */
+    default SearchIndex snapshot() {
+        return this;
+    }
+
+    /**
+     * Resolves the ids of a posting list back to their urls.
+     *
+     * @param postings
+     * @return the urls or null if postings is null
+     */
+    default HashSet<String> urls(PostingList postings) {
+
+        if (postings == null) return null;
+
+        HashSet<String> urls = new HashSet<String>(postings.size() * 4 / 3 + 1);
+
+        for (int i = 0; i < postings.size(); i++)
+            urls.add(url(postings.get(i)));
+
+        return urls;
+    }
+}
@@ -0,0 +1,448 @@
+package Index;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Answers queries directly from a segment written by SegmentWriter. The file is memory mapped and nothing is
+ * decoded up front, so opening a segment takes the same time regardless of the size of the corpus. Only the
+ * posting lists a query touches are decoded.
+ *
+ * All reads use absolute positions, so one reader can be shared by any number of threads.
+ *
+ * The buffer can also be a direct buffer that SegmentWriter filled in memory, see offHeap(). Either way the words,
+ * urls and postings live outside the Java heap, and the reader only creates objects for what a query returns.
+ */
+public class SegmentReader implements SearchIndex {
+
+    private final ByteBuffer buffer;
+    private final int documentCount;
+    private final int wordCount;
+    private final float averageLength;
+    private final int docTable;
+    private final int urlBytes;
+    private final int postings;
+    private final int wordTable;
+    private final int wordBytes;
+    private final int positions;
+    private final Analyzer analyzer;
+    private volatile BkTree fuzzy;
+
+    /**
+     * @param buffer a buffer holding a complete segment
+     * @throws IOException if the buffer does not hold a segment of a supported version
+     */
+    public SegmentReader(ByteBuffer buffer) throws IOException {
+
+        if (buffer.capacity() < SegmentWriter.HEADER_SIZE || buffer.getInt(0) != SegmentWriter.MAGIC) {
+            throw new IOException("Not an index segment");
+        }
+        if (buffer.getInt(4) != SegmentWriter.VERSION) {
+            throw new IOException("Unsupported index segment version " + buffer.getInt(4));
+        }
+
+        this.buffer = buffer;
+        this.documentCount = buffer.getInt(8);
+        this.wordCount = buffer.getInt(12);
+        this.averageLength = buffer.getFloat(16);
+        this.docTable = (int) buffer.getLong(24);
+        this.urlBytes = (int) buffer.getLong(32);
+        this.postings = (int) buffer.getLong(40);
+        this.wordTable = (int) buffer.getLong(48);
+        this.wordBytes = (int) buffer.getLong(56);
+        this.positions = (int) buffer.getLong(64);
+        this.analyzer = readAnalyzer(buffer.getInt(20), (int) buffer.getLong(72));
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Memory maps a segment file.
+     *
+     * @param filename
+     * @return
+     * @throws IOException
+     */
+    public static SegmentReader open(String filename) throws IOException {
+
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel())
+        {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Index segments larger than 2GB are not supported");
+
+            return new SegmentReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Memory maps a segment file that has to have been built with the given analyzer, e.g. to add to it or to search
+     * it with queries that were analysed already.
+     *
+     * @param filename
+     * @param analyzer
+     * @return
+     * @throws IOException if the segment was built with a different analyzer
+     */
+    public static SegmentReader open(String filename, Analyzer analyzer) throws IOException {
+
+        SegmentReader reader = open(filename);
+
+        if (!reader.analyzer().sameAs(analyzer)) throw new IOException("The index segment " + filename + " was built with a different analyzer");
+
+        return reader;
+    }
+
+    /**
+     * Copies an index into a direct buffer outside the Java heap. Once the index itself is no longer referenced,
+     * the garbage collector no longer has to trace a String and a map entry for every word and url.
+     *
+     * @param index
+     * @return a reader over the copy
+     * @throws IOException
+     */
+    public static SegmentReader offHeap(SearchIndex index) throws IOException {
+        return new SegmentReader(SegmentWriter.toBuffer(index));
+    }
+
+    /**
+     * @param filename
+     * @return true if the file starts like a segment, as opposed to a corpus text file
+     */
+    public static boolean isSegment(String filename) {
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filename))) {
+            return in.readInt() == SegmentWriter.MAGIC;
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    public PostingList postings(String word) {
+
+        int entry = find(word);
+
+        if (entry < 0) return null;
+
+        int size = buffer.getInt(entry + 8);
+        int position = postings + (int) buffer.getLong(entry + 12);
+
+        float[] blockMaxWeights = new float[(size + PostingList.BLOCK_SIZE - 1) / PostingList.BLOCK_SIZE];
+        for (int i = 0; i < blockMaxWeights.length; i++, position += 4) blockMaxWeights[i] = buffer.getFloat(position);
+
+        int[] docs = new int[size];
+        int[] frequencies = new int[size];
+        int doc = 0;
+
+        for (int i = 0; i < size; i++) {
+            int value = 0, shift = 0, b;
+            do { b = buffer.get(position++); value |= (b & 0x7f) << shift; shift += 7; } while (b < 0);
+            doc += value;
+            docs[i] = doc;
+
+            value = 0; shift = 0;
+            do { b = buffer.get(position++); value |= (b & 0x7f) << shift; shift += 7; } while (b < 0);
+            frequencies[i] = value;
+        }
+        return new PostingList(docs, frequencies, size, blockMaxWeights);
+    }
+
+    /**
+     * Decodes the positions of the word from their own section of the file, which only phrase queries read.
+     */
+    public PositionList positions(String word) {
+
+        int entry = find(word);
+
+        if (entry < 0 || buffer.getLong(entry + 20) < 0) return null;
+
+        int size = buffer.getInt(entry + 8);
+        int position = positions + (int) buffer.getLong(entry + 20);
+        int[] starts = new int[size];
+        byte[] data = new byte[16];
+        int used = 0;
+
+        for (int i = 0; i < size; i++) {
+            int count = 0, shift = 0, b;
+            do { b = buffer.get(position++); count |= (b & 0x7f) << shift; shift += 7; } while (b < 0);
+
+            starts[i] = used;
+            for (int p = 0; p < count; p++) {
+                do {
+                    if (used == data.length) data = Arrays.copyOf(data, used * 2);
+                    b = buffer.get(position++);
+                    data[used++] = (byte) b;
+                } while (b < 0);
+            }
+        }
+        return new PositionList(data, used, starts, size);
+    }
+
+    public int documentFrequency(String word) {
+        int entry = find(word);
+        return (entry < 0) ? 0 : buffer.getInt(entry + 8);
+    }
+
+    public Iterable<String> words() {
+        return new Iterable<String>() {
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    int next = 0;
+
+                    public boolean hasNext() {
+                        return next < wordCount;
+                    }
+
+                    public String next() {
+                        if (next >= wordCount) throw new NoSuchElementException();
+                        return word(next++);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * The word table is sorted, so the words with the prefix are the ones following its lower bound.
+     */
+    public List<String> wordsWithPrefix(String prefix, int limit) {
+
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        List<String> words = new ArrayList<String>();
+        int low = 0;
+        int high = wordCount;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int entry = wordTable + middle * SegmentWriter.WORD_ENTRY_SIZE;
+            if (compare(wordBytes + buffer.getInt(entry), buffer.getInt(entry + 4), key) < 0) low = middle + 1;
+            else high = middle;
+        }
+
+        for (int number = low; number < wordCount && words.size() < limit; number++) {
+            int entry = wordTable + number * SegmentWriter.WORD_ENTRY_SIZE;
+            int length = buffer.getInt(entry + 4);
+            if (length < key.length || compare(wordBytes + buffer.getInt(entry), key.length, key) != 0) break;
+            words.add(word(number));
+        }
+        return words;
+    }
+
+    /**
+     * The BK-tree is built over the word table on first use, so only indexes that are asked for suggestions pay
+     * for it. It reads the words from the buffer as it searches, so the words are not copied onto the heap.
+     */
+    public HashSet<String> nearestWords(String word, int maxDistance) {
+
+        BkTree current = fuzzy;
+
+        if (current == null) {
+            current = BkTree.build(new WordTable());
+            fuzzy = current;
+        }
+        return current.nearest(word, maxDistance);
+    }
+
+    public int wordCount() {
+        return wordCount;
+    }
+
+    public int documentCount() {
+        return documentCount;
+    }
+
+    public String url(int doc) {
+        int entry = docTable + doc * SegmentWriter.DOC_ENTRY_SIZE;
+        return decode(urlBytes + buffer.getInt(entry), buffer.getInt(entry + 4));
+    }
+
+    public int documentLength(int doc) {
+        return buffer.getInt(docTable + doc * SegmentWriter.DOC_ENTRY_SIZE + 8);
+    }
+
+    public float averageDocumentLength() {
+        return averageLength;
+    }
+
+    public boolean hasScoreBounds() {
+        return true;
+    }
+
+    /**
+     * @return the analyzer the index was built with, as saved in the segment
+     */
+    public Analyzer analyzer() {
+        return analyzer;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Reads the analyzer from the header flags and the stopwords in the analyzer section.
+     */
+    private Analyzer readAnalyzer(int flags, int section) throws IOException {
+
+        if (section < 0 || section + 4 > buffer.limit()) throw new IOException("Corrupt index segment");
+
+        int count = buffer.getInt(section);
+        List<String> stopwords = new ArrayList<String>();
+
+        for (int i = 0, position = section + 4; i < count; i++) {
+            if (position + 4 > buffer.limit()) throw new IOException("Corrupt index segment");
+            int length = buffer.getInt(position);
+            if (length < 0 || position + 4 + length > buffer.limit()) throw new IOException("Corrupt index segment");
+            stopwords.add(decode(position + 4, length));
+            position += 4 + length;
+        }
+
+        try {
+            return Analyzer.fromFlags(flags, stopwords);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("The index segment was built with an unknown analyzer (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Binary searches the word table.
+     *
+     * @return the position of the word's entry in the word table, or -1
+     */
+    private int find(String word) {
+
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = wordCount - 1;
+
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            int entry = wordTable + middle * SegmentWriter.WORD_ENTRY_SIZE;
+            int comparison = compare(wordBytes + buffer.getInt(entry), buffer.getInt(entry + 4), key);
+
+            if (comparison < 0) low = middle + 1;
+            else if (comparison > 0) high = middle - 1;
+            else return entry;
+        }
+        return -1;
+    }
+
+    /**
+     * Compares stored bytes with a key as unsigned bytes, the order SegmentWriter sorts the words in.
+     */
+    private int compare(int offset, int length, byte[] key) {
+
+        int common = Math.min(length, key.length);
+
+        for (int i = 0; i < common; i++) {
+            int difference = (buffer.get(offset + i) & 0xff) - (key[i] & 0xff);
+            if (difference != 0) return difference;
+        }
+        return length - key.length;
+    }
+
+    private String word(int number) {
+        int entry = wordTable + number * SegmentWriter.WORD_ENTRY_SIZE;
+        return decode(wordBytes + buffer.getInt(entry), buffer.getInt(entry + 4));
+    }
+
+    private String decode(int offset, int length) {
+
+        byte[] bytes = new byte[length];
+
+        for (int i = 0; i < length; i++) bytes[i] = buffer.get(offset + i);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * The words of the word table for the BK-tree. Keys are decoded into a per-thread char buffer that is handed
+     * out as a flyweight, so comparing the query against a word allocates nothing.
+     */
+    private class WordTable implements BkTree.Words {
+
+        private final ThreadLocal<Key> keys = ThreadLocal.withInitial(Key::new);
+
+        public int size() {
+            return wordCount;
+        }
+
+        public CharSequence key(int number) {
+
+            int entry = wordTable + number * SegmentWriter.WORD_ENTRY_SIZE;
+            int offset = wordBytes + buffer.getInt(entry);
+            int length = buffer.getInt(entry + 4);
+            Key key = keys.get();
+
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(offset + i) < 0) return key.set(decode(offset, length).toLowerCase());
+            }
+
+            key.length = 0;
+            if (key.chars.length < length) key.chars = new char[length];
+            for (int i = 0; i < length; i++) key.chars[key.length++] = Character.toLowerCase((char) buffer.get(offset + i));
+
+            return key;
+        }
+
+        public String word(int number) {
+            return SegmentReader.this.word(number);
+        }
+    }
+
+    /**
+     * A reusable view of a word's lower case chars.
+     */
+    private static class Key implements CharSequence {
+
+        char[] chars = new char[32];
+        int length;
+
+        Key set(String word) {
+            if (chars.length < word.length()) chars = new char[word.length()];
+            word.getChars(0, word.length(), chars, 0);
+            length = word.length();
+            return this;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public char charAt(int index) {
+            return chars[index];
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package Index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes an index to a binary segment file that SegmentReader can memory map.
+ *
+ * Layout, all numbers big endian:
+ *   header       magic, version, document count, word count, average document length, the flags of the
+ *                analyzer, see Analyzer.flags(), and the offsets of the seven sections below
+ *   doc table    per document: url offset, url length, number of words
+ *   url bytes    the UTF-8 urls
+ *   postings     per word: the block max weights as floats, then (doc id delta, frequency) pairs as varints
+ *   word table   per word, sorted by the UTF-8 bytes of the word: word offset, word length,
+ *                document frequency, postings offset, positions offset or -1 if the word has no positions
+ *   word bytes   the UTF-8 words
+ *   positions    per word and document: the number of positions, then the first position and the distances
+ *                between the following ones as varints
+ *   analyzer     the number of stopwords of the analyzer, then per stopword its length and UTF-8 bytes
+ *
+ * The analyzer is saved so that queries are analysed the way the words were, see SegmentReader.analyzer(). An index
+ * whose analyzer has filters of its own cannot be written.
+ *
+ * The positions are kept in a section of their own, so they are not paged in unless phrases are searched for.
+ */
+public class SegmentWriter {
+
+    public static final int MAGIC = 0x53454958;  // "SEIX"
+    public static final int VERSION = 4;
+    public static final int HEADER_SIZE = 80;
+    public static final int DOC_ENTRY_SIZE = 12;
+    public static final int WORD_ENTRY_SIZE = 28;
+
+    private SegmentWriter() {}
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Writes the index to a segment file. Segments are limited to 2GB, the size a single mapping can address.
+     *
+     * @param index
+     * @param filename
+     * @throws IOException
+     */
+    public static void write(SearchIndex index, String filename) throws IOException {
+
+        long[] offsets = new long[7];
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+            write(index, out, offsets);
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(filename, "rw")) {
+            byte[] header = new byte[HEADER_SIZE];
+            writeHeader(index, offsets, header);
+            file.write(header);
+        }
+    }
+
+    /**
+     * Writes the index into a direct buffer, outside the Java heap, for SegmentReader to read from memory.
+     *
+     * @param index
+     * @return the segment, from position 0 to its limit
+     * @throws IOException
+     */
+    public static ByteBuffer toBuffer(SearchIndex index) throws IOException {
+
+        long[] offsets = new long[7];
+        DirectOutput direct = new DirectOutput();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(direct, 1 << 16))) {
+            write(index, out, offsets);
+        }
+
+        byte[] header = new byte[HEADER_SIZE];
+        writeHeader(index, offsets, header);
+
+        ByteBuffer segment = direct.buffer;
+        segment.flip();
+        segment.duplicate().put(header);
+
+        return segment.slice();
+    }
+
+    /**
+     * Writes the segment to a stream, leaving the header zeroed, and fills in the section offsets.
+     *
+     * @param index
+     * @param out
+     * @param offsets
+     * @throws IOException
+     */
+    public static void write(SearchIndex index, DataOutputStream out, long[] offsets) throws IOException {
+
+        if (index.analyzer().flags() == -1) throw new IOException("The analyzer of the index has filters of its own, which a segment cannot record");
+
+        int documentCount = index.documentCount();
+        float averageLength = index.averageDocumentLength();
+
+        out.write(new byte[HEADER_SIZE]);
+
+        // doc table and url bytes
+        byte[][] urls = new byte[documentCount][];
+        for (int doc = 0; doc < documentCount; doc++) urls[doc] = index.url(doc).getBytes(StandardCharsets.UTF_8);
+
+        offsets[0] = out.size();
+        int urlOffset = 0;
+        for (int doc = 0; doc < documentCount; doc++) {
+            out.writeInt(urlOffset);
+            out.writeInt(urls[doc].length);
+            out.writeInt(index.documentLength(doc));
+            urlOffset += urls[doc].length;
+        }
+
+        offsets[1] = out.size();
+        for (byte[] url : urls) out.write(url);
+
+        // postings, in word order
+        byte[][] words = sortedWords(index);
+        long[] postingsOffsets = new long[words.length];
+        int[] documentFrequencies = new int[words.length];
+        PositionList[] positions = new PositionList[words.length];
+
+        offsets[2] = out.size();
+        for (int w = 0; w < words.length; w++)
+        {
+            String word = new String(words[w], StandardCharsets.UTF_8);
+            PostingList postings = index.postings(word);
+            positions[w] = index.positions(word);
+            postingsOffsets[w] = out.size() - offsets[2];
+            documentFrequencies[w] = postings.size();
+
+            float[] blockMaxWeights = new float[(postings.size() + PostingList.BLOCK_SIZE - 1) / PostingList.BLOCK_SIZE];
+            for (int i = 0; i < postings.size(); i++) {
+                float weight = Bm25.weight(postings.frequency(i), index.documentLength(postings.get(i)), averageLength);
+                blockMaxWeights[i / PostingList.BLOCK_SIZE] = Math.max(blockMaxWeights[i / PostingList.BLOCK_SIZE], weight);
+            }
+            for (float weight : blockMaxWeights) out.writeFloat(weight);
+
+            int previous = 0;
+            for (int i = 0; i < postings.size(); i++) {
+                writeVarInt(out, postings.get(i) - previous);
+                writeVarInt(out, postings.frequency(i));
+                previous = postings.get(i);
+            }
+        }
+
+        // word table and word bytes, the positions offsets are known once the positions are written
+        long[] positionsOffsets = positionsOffsets(positions);
+
+        offsets[3] = out.size();
+        int wordOffset = 0;
+        for (int w = 0; w < words.length; w++) {
+            out.writeInt(wordOffset);
+            out.writeInt(words[w].length);
+            out.writeInt(documentFrequencies[w]);
+            out.writeLong(postingsOffsets[w]);
+            out.writeLong(positionsOffsets[w]);
+            wordOffset += words[w].length;
+        }
+
+        offsets[4] = out.size();
+        for (byte[] word : words) out.write(word);
+
+        // positions
+        offsets[5] = out.size();
+        for (PositionList list : positions) {
+            if (list == null) continue;
+            for (int i = 0; i < list.size(); i++) writePositions(out, list.get(i));
+        }
+
+        // analyzer
+        offsets[6] = out.size();
+        List<String> stopwords = index.analyzer().stopwords();
+        out.writeInt(stopwords.size());
+        for (String stopword : stopwords) {
+            byte[] bytes = stopword.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Fills in the header of a segment written by write(index, out, offsets).
+     *
+     * @param index
+     * @param offsets
+     * @param header
+     */
+    public static void writeHeader(SearchIndex index, long[] offsets, byte[] header) {
+
+        ByteBuffer buffer = ByteBuffer.wrap(header);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(index.documentCount());
+        buffer.putInt(index.wordCount());
+        buffer.putFloat(index.averageDocumentLength());
+        buffer.putInt(index.analyzer().flags());
+        for (long offset : offsets) buffer.putLong(offset);
+    }
+
+    /**
+     * Compares UTF-8 byte strings as unsigned bytes, which orders them the same as their code points.
+     */
+    public static int compare(byte[] one, int oneOffset, int oneLength, byte[] two, int twoOffset, int twoLength) {
+
+        int length = Math.min(oneLength, twoLength);
+
+        for (int i = 0; i < length; i++) {
+            int difference = (one[oneOffset + i] & 0xff) - (two[twoOffset + i] & 0xff);
+            if (difference != 0) return difference;
+        }
+        return oneLength - twoLength;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    private static byte[][] sortedWords(SearchIndex index) {
+
+        byte[][] words = new byte[index.wordCount()][];
+        int i = 0;
+
+        for (String word : index.words()) words[i++] = word.getBytes(StandardCharsets.UTF_8);
+
+        Arrays.sort(words, new Comparator<byte[]>() {
+            public int compare(byte[] one, byte[] two) {
+                return SegmentWriter.compare(one, 0, one.length, two, 0, two.length);
+            }
+        });
+        return words;
+    }
+
+    /**
+     * @return the offset of the positions of every word in the positions section, -1 for words without positions
+     */
+    private static long[] positionsOffsets(PositionList[] positions) {
+
+        long[] offsets = new long[positions.length];
+        long offset = 0;
+
+        for (int w = 0; w < positions.length; w++) {
+            if (positions[w] == null) {
+                offsets[w] = -1;
+                continue;
+            }
+            offsets[w] = offset;
+            for (int i = 0; i < positions[w].size(); i++) {
+                int[] list = positions[w].get(i);
+                offset += varIntLength(list.length);
+                for (int p = 0, previous = 0; p < list.length; previous = list[p++]) offset += varIntLength(list[p] - previous);
+            }
+        }
+        return offsets;
+    }
+
+    private static void writePositions(DataOutputStream out, int[] positions) throws IOException {
+
+        writeVarInt(out, positions.length);
+
+        for (int p = 0, previous = 0; p < positions.length; previous = positions[p++]) writeVarInt(out, positions[p] - previous);
+    }
+
+    private static int varIntLength(int value) {
+
+        int length = 1;
+
+        while ((value & ~0x7f) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+
+    /**
+     * A stream into a direct buffer that doubles when it is full.
+     */
+    private static class DirectOutput extends OutputStream {
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+
+        public void write(int b) {
+            ensureRemaining(1);
+            buffer.put((byte) b);
+        }
+
+        public void write(byte[] bytes, int offset, int length) {
+            ensureRemaining(length);
+            buffer.put(bytes, offset, length);
+        }
+
+        private void ensureRemaining(int length) {
+
+            if (buffer.remaining() >= length) return;
+
+            long capacity = Math.max((long) buffer.capacity() * 2, (long) buffer.position() + length);
+            if (capacity > Integer.MAX_VALUE) throw new IllegalStateException("Index segments larger than 2GB are not supported");
+
+            ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+}
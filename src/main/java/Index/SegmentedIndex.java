@@ -0,0 +1,584 @@
+package Index;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * An index that takes new documents while it is being searched.
+ *
+ * New documents go into a small in-memory buffer. Every refresh interval the buffer is sealed into a segment of its
+ * own and becomes searchable, so adding documents costs time in proportion to the documents added, not to the size
+ * of the index. Segments are immutable and searched together, with the documents of each segment numbered after
+ * those of the segments before it. A background merge combines the newest segments whenever mergeFactor of them
+ * have about the same size, which keeps the number of segments logarithmic in the number of documents.
+ *
+ * Readers never wait: the segments are published as an immutable snapshot, and every query should run against the
+ * snapshot() it starts with. Searcher and RankedSearcher run a query on each segment of the snapshot in turn, see
+ * PartitionedIndex, so a query reads the posting lists of the large base segment in place, with their block maxima,
+ * and its cost does not grow with every document added.
+ *
+ * Documents are identified by url. A url that is already in the index is not added again. The buffer and the
+ * merged segments record word positions, so quoted phrases match by position; a base index without positions
+ * makes phrases that occur in its documents fall back to matching all their words.
+ */
+public class SegmentedIndex implements SearchIndex, Closeable {
+
+    public static final long DEFAULT_REFRESH_INTERVAL = 1000;
+    public static final int DEFAULT_MERGE_FACTOR = 4;
+
+    private final int mergeFactor;
+    private final Analyzer analyzer;
+    private final HashSet<String> urls = new HashSet<String>();
+    private InvertedIndex buffer = new InvertedIndex(true);
+    private final Object refreshLock = new Object();
+    private final Object segmentsLock = new Object();
+    private volatile Snapshot current;
+    private final ScheduledExecutorService refresher;
+    private final ExecutorService merger;
+
+    /**
+     * @param base an existing index to add to, or null to start empty
+     * @param refreshInterval milliseconds between refreshes, or 0 to only refresh when refresh() is called
+     * @param mergeFactor the number of segments of a size that get merged into one
+     */
+    public SegmentedIndex(SearchIndex base, long refreshInterval, int mergeFactor) {
+
+        this.mergeFactor = Math.max(2, mergeFactor);
+        this.analyzer = (base == null) ? Analyzer.STANDARD : base.analyzer();
+        this.current = new Snapshot((base == null) ? new SearchIndex[0] : new SearchIndex[] { base.snapshot() });
+
+        if (base != null) {
+            for (int doc = 0; doc < base.documentCount(); doc++) urls.add(base.url(doc));
+        }
+
+        merger = Executors.newSingleThreadExecutor(daemons("index-merger"));
+
+        if (refreshInterval > 0) {
+            refresher = Executors.newSingleThreadScheduledExecutor(daemons("index-refresher"));
+            refresher.scheduleWithFixedDelay(this::refresh, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        } else {
+            refresher = null;
+        }
+    }
+
+    public SegmentedIndex(SearchIndex base, long refreshInterval) {
+        this(base, refreshInterval, DEFAULT_MERGE_FACTOR);
+    }
+
+    public SegmentedIndex() {
+        this(null, DEFAULT_REFRESH_INTERVAL, DEFAULT_MERGE_FACTOR);
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Adds a document. It becomes searchable with the next refresh.
+     *
+     * @param url
+     * @param words the words of the document
+     * @return false if the url is already in the index
+     */
+    public synchronized boolean addDocument(String url, List<String> words) {
+
+        if (!urls.add(url)) return false;
+
+        for (String word : words) buffer.add(word, url);
+
+        return true;
+    }
+
+    /**
+     * Makes the documents added so far searchable, and schedules a merge if the segments call for one. Refreshes run
+     * one at a time, so the buffers are published in the order they were sealed in, even when refresh() is called
+     * while a scheduled refresh is running.
+     */
+    public void refresh() {
+
+        synchronized (refreshLock) {
+            InvertedIndex sealed;
+
+            synchronized (this) {
+                if (buffer.documentCount() == 0) return;
+                sealed = buffer;
+                buffer = new InvertedIndex(true);
+            }
+
+            sealed.finish();
+
+            synchronized (segmentsLock) {
+                SearchIndex[] segments = Arrays.copyOf(current.segments, current.segments.length + 1);
+                segments[segments.length - 1] = sealed;
+                current = new Snapshot(segments);
+            }
+        }
+
+        merger.execute(this::mergeSegments);
+    }
+
+    /**
+     * @return the searchable segments as they are now. The snapshot does not change while it is in use.
+     */
+    public SearchIndex snapshot() {
+        return current;
+    }
+
+    public int segmentCount() {
+        return current.segments.length;
+    }
+
+    /**
+     * Stops the background refreshes and merges. Documents not refreshed yet are not searchable.
+     */
+    public void close() {
+        if (refresher != null) refresher.shutdownNow();
+        merger.shutdownNow();
+    }
+
+    public PostingList postings(String word) {
+        return current.postings(word);
+    }
+
+    public PositionList positions(String word) {
+        return current.positions(word);
+    }
+
+    public int documentFrequency(String word) {
+        return current.documentFrequency(word);
+    }
+
+    public Iterable<String> words() {
+        return current.words();
+    }
+
+    public List<String> wordsWithPrefix(String prefix, int limit) {
+        return current.wordsWithPrefix(prefix, limit);
+    }
+
+    public HashSet<String> nearestWords(String word, int maxDistance) {
+        return current.nearestWords(word, maxDistance);
+    }
+
+    public int wordCount() {
+        return current.wordCount();
+    }
+
+    public int documentCount() {
+        return current.documentCount();
+    }
+
+    public String url(int doc) {
+        return current.url(doc);
+    }
+
+    public int documentLength(int doc) {
+        return current.documentLength(doc);
+    }
+
+    public float averageDocumentLength() {
+        return current.averageDocumentLength();
+    }
+
+    public boolean hasScoreBounds() {
+        return current.hasScoreBounds();
+    }
+
+    /**
+     * Documents are added as words that are already analysed, the same way as the base index's.
+     */
+    public Analyzer analyzer() {
+        return analyzer;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Merges mergeFactor adjacent segments on the same level, oldest first, until no such run is left. The level of
+     * a segment is the logarithm of its document count to the base mergeFactor. Runs on the merge thread only, and
+     * refreshes only append segments, so the merged segments are still in place when the result is published.
+     */
+    private void mergeSegments() {
+
+        while (!Thread.currentThread().isInterrupted())
+        {
+            SearchIndex[] segments = current.segments;
+            int first = -1;
+
+            for (int start = 0, end; start < segments.length && first < 0; start = end) {
+                end = start + 1;
+                while (end < segments.length && level(segments[end]) == level(segments[start])) end++;
+                if (end - start >= mergeFactor) first = start;
+            }
+            if (first < 0) return;
+
+            InvertedIndex merged = merge(Arrays.copyOfRange(segments, first, first + mergeFactor));
+
+            synchronized (segmentsLock) {
+                SearchIndex[] now = current.segments;
+                SearchIndex[] replaced = new SearchIndex[now.length - mergeFactor + 1];
+                System.arraycopy(now, 0, replaced, 0, first);
+                replaced[first] = merged;
+                System.arraycopy(now, first + mergeFactor, replaced, first + 1, now.length - first - mergeFactor);
+                current = new Snapshot(replaced);
+            }
+        }
+    }
+
+    private int level(SearchIndex segment) {
+
+        int level = 0;
+
+        for (long size = segment.documentCount(); size >= mergeFactor; size /= mergeFactor) level++;
+
+        return level;
+    }
+
+    /**
+     * @return one segment holding the documents of the segments, numbered in the same order, with their positions
+     */
+    private static InvertedIndex merge(SearchIndex[] segments) {
+
+        InvertedIndex merged = new InvertedIndex(true);
+        DocumentDictionary documents = merged.getDocuments();
+        int base = 0;
+
+        for (SearchIndex segment : segments) {
+            for (int doc = 0; doc < segment.documentCount(); doc++) {
+                documents.addLength(documents.add(segment.url(doc)), segment.documentLength(doc));
+            }
+
+            for (String word : segment.words()) {
+                PostingList postings = segment.postings(word);
+                PositionList positions = segment.positions(word);
+                PostingList target = merged.postingsFor(word);
+                for (int i = 0; i < postings.size(); i++) {
+                    if (positions == null) target.add(base + postings.get(i), postings.frequency(i));
+                    else for (int position : positions.get(i)) target.addPosition(base + postings.get(i), position);
+                }
+            }
+            base += segment.documentCount();
+        }
+        merged.finish();
+
+        return merged;
+    }
+
+    private static ThreadFactory daemons(final String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+
+    /**
+     * The segments at one point in time. Document ids run on from one segment to the next.
+     */
+    private static class Snapshot implements PartitionedIndex {
+
+        final SearchIndex[] segments;
+        final Segment[] views;
+        final int[] docBases;
+        final int documentCount;
+        final float averageLength;
+        private volatile LinkedHashSet<String> words;
+
+        Snapshot(SearchIndex[] segments) {
+
+            this.segments = segments;
+            this.views = new Segment[segments.length];
+            this.docBases = new int[segments.length];
+
+            int documents = 0;
+            double totalLength = 0;
+
+            for (int i = 0; i < segments.length; i++) {
+                docBases[i] = documents;
+                documents += segments[i].documentCount();
+                totalLength += (double) segments[i].averageDocumentLength() * segments[i].documentCount();
+                views[i] = new Segment(segments[i]);
+            }
+            this.documentCount = documents;
+            this.averageLength = (documents == 0) ? 0 : (float) (totalLength / documents);
+        }
+
+        /**
+         * Runs the task on every segment in turn. There are only logarithmically many, and all but the oldest are
+         * small. Each segment scores with its own average document length, which its block maxima were computed
+         * with, and with the document frequencies and the document count of the whole snapshot.
+         */
+        public <T> List<T> scatter(Function<SearchIndex, T> task) {
+
+            List<T> results = new ArrayList<T>(views.length);
+
+            for (Segment view : views) results.add(task.apply(view));
+
+            return results;
+        }
+
+        public int docBase(int segment) {
+            return docBases[segment];
+        }
+
+        /**
+         * Joins the lists of the segments. A word found in one segment at the start keeps its list as it is.
+         * Queries go through scatter() instead, this is for callers that want the list of the whole snapshot.
+         */
+        public PostingList postings(String word) {
+
+            PostingList[] lists = new PostingList[segments.length];
+            int size = 0, found = 0, last = -1;
+
+            for (int i = 0; i < segments.length; i++) {
+                lists[i] = segments[i].postings(word);
+                if (lists[i] != null) { size += lists[i].size(); found++; last = i; }
+            }
+
+            if (found == 0) return null;
+            if (found == 1 && docBases[last] == 0) return lists[last];
+
+            int[] docs = new int[size];
+            int[] frequencies = new int[size];
+            int position = 0;
+
+            for (int i = 0; i < segments.length; i++) {
+                if (lists[i] == null) continue;
+                for (int j = 0; j < lists[i].size(); j++, position++) {
+                    docs[position] = docBases[i] + lists[i].get(j);
+                    frequencies[position] = lists[i].frequency(j);
+                }
+            }
+            return new PostingList(docs, frequencies, size);
+        }
+
+        /**
+         * Joins the positions of the segments, in the order of postings(), if every segment holding the word has them.
+         */
+        public PositionList positions(String word) {
+
+            if (segments.length == 1) return segments[0].positions(word);
+
+            PositionList joined = new PositionList();
+            int entry = 0;
+
+            for (SearchIndex segment : segments) {
+                PostingList postings = segment.postings(word);
+                if (postings == null) continue;
+
+                PositionList positions = segment.positions(word);
+                if (positions == null) return null;
+
+                for (int i = 0; i < positions.size(); i++, entry++) {
+                    for (int position : positions.get(i)) joined.add(entry, position);
+                }
+            }
+            return (entry == 0) ? null : joined;
+        }
+
+        public int documentFrequency(String word) {
+
+            int frequency = 0;
+
+            for (SearchIndex segment : segments) frequency += segment.documentFrequency(word);
+
+            return frequency;
+        }
+
+        public Iterable<String> words() {
+            return (segments.length == 1) ? segments[0].words() : distinctWords();
+        }
+
+        public List<String> wordsWithPrefix(String prefix, int limit) {
+
+            if (segments.length == 1) return segments[0].wordsWithPrefix(prefix, limit);
+
+            TreeSet<String> words = new TreeSet<String>();
+
+            for (SearchIndex segment : segments) words.addAll(segment.wordsWithPrefix(prefix, limit));
+
+            List<String> first = new ArrayList<String>(Math.min(limit, words.size()));
+            for (String word : words) {
+                if (first.size() == limit) break;
+                first.add(word);
+            }
+            return first;
+        }
+
+        /**
+         * Every segment returns its nearest words, of which the ones nearest overall are kept.
+         */
+        public HashSet<String> nearestWords(String word, int maxDistance) {
+
+            if (segments.length == 1) return segments[0].nearestWords(word, maxDistance);
+
+            HashSet<String> nearest = new HashSet<String>();
+            String lowerCase = word.toLowerCase();
+            int best = maxDistance + 1;
+
+            for (SearchIndex segment : segments) {
+                for (String candidate : segment.nearestWords(word, maxDistance)) {
+                    int distance = EditDistance.bounded(lowerCase, candidate.toLowerCase(), maxDistance);
+                    if (distance < best) {
+                        nearest.clear();
+                        best = distance;
+                    }
+                    if (distance == best) nearest.add(candidate);
+                }
+            }
+            return nearest;
+        }
+
+        public int wordCount() {
+            return (segments.length == 1) ? segments[0].wordCount() : distinctWords().size();
+        }
+
+        public int documentCount() {
+            return documentCount;
+        }
+
+        public String url(int doc) {
+            int segment = segmentOf(doc);
+            return segments[segment].url(doc - docBases[segment]);
+        }
+
+        public int documentLength(int doc) {
+            int segment = segmentOf(doc);
+            return segments[segment].documentLength(doc - docBases[segment]);
+        }
+
+        public float averageDocumentLength() {
+            return averageLength;
+        }
+
+        /**
+         * The joined lists of more than one segment carry no block maxima. Ranked queries use the ones of each
+         * segment instead, see scatter().
+         */
+        public boolean hasScoreBounds() {
+            return segments.length == 1 && segments[0].hasScoreBounds();
+        }
+
+        /**
+         * @return the last segment whose first document is at or before doc. Empty segments are skipped.
+         */
+        private int segmentOf(int doc) {
+
+            int position = Arrays.binarySearch(docBases, doc);
+
+            if (position < 0) return -position - 2;
+
+            while (position + 1 < docBases.length && docBases[position + 1] == doc) position++;
+
+            return position;
+        }
+
+        private LinkedHashSet<String> distinctWords() {
+
+            LinkedHashSet<String> distinct = words;
+
+            if (distinct == null) {
+                distinct = new LinkedHashSet<String>();
+                for (SearchIndex segment : segments)
+                    for (String word : segment.words()) distinct.add(word);
+                words = distinct;
+            }
+            return distinct;
+        }
+    
+        /**
+         * A segment as scatter() hands it to a task: its own documents, with the statistics of the snapshot.
+         */
+        private class Segment implements SearchIndex {
+
+            final SearchIndex local;
+
+            Segment(SearchIndex local) {
+                this.local = local;
+            }
+
+            public PostingList postings(String word) {
+
+                PostingList postings = local.postings(word);
+
+                if (postings != null || Snapshot.this.documentFrequency(word) == 0) return postings;
+
+                return new PostingList(new int[0], 0);
+            }
+
+            public PositionList positions(String word) {
+                return local.positions(word);
+            }
+
+            public int documentFrequency(String word) {
+                return Snapshot.this.documentFrequency(word);
+            }
+
+            public Iterable<String> words() {
+                return Snapshot.this.words();
+            }
+
+            public List<String> wordsWithPrefix(String prefix, int limit) {
+                return Snapshot.this.wordsWithPrefix(prefix, limit);
+            }
+
+            public HashSet<String> nearestWords(String word, int maxDistance) {
+                return Snapshot.this.nearestWords(word, maxDistance);
+            }
+
+            public int wordCount() {
+                return Snapshot.this.wordCount();
+            }
+
+            public int documentCount() {
+                return local.documentCount();
+            }
+
+            public int collectionSize() {
+                return documentCount;
+            }
+
+            public String url(int doc) {
+                return local.url(doc);
+            }
+
+            public int documentLength(int doc) {
+                return local.documentLength(doc);
+            }
+
+            public float averageDocumentLength() {
+                return local.averageDocumentLength();
+            }
+
+            public boolean hasScoreBounds() {
+                return local.hasScoreBounds();
+            }
+
+            public Analyzer analyzer() {
+                return local.analyzer();
+            }
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package Index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+/**
+ * An index split by document into shards, so that one query can run on all cores at once.
+ *
+ * Every shard holds a run of consecutive pages of the corpus, and the document ids of a shard continue where the
+ * ones of the shard before it end. A query is sent to every shard on the common fork-join pool, see scatter(), and
+ * the results are put back together: posting lists by shifting the ids of each shard and appending them, see
+ * PartitionedIndex.gather(), and ranked results by merging the k best of every shard.
+ *
+ * The shards score with the statistics of the whole index, the number of documents, the document frequency of
+ * every word and the average document length, so a page gets the same BM25 score whichever shard it is in and
+ * the scores of different shards can be compared.
+ */
+public class ShardedIndex implements PartitionedIndex {
+
+    private final InvertedIndex[] shards;
+    private final Shard[] views;
+    private final int[] docBases;
+    private final int documentCount;
+    private final float averageLength;
+    private final HashMap<String, Integer> frequencies = new HashMap<String, Integer>();
+    private final TermDictionary terms;
+    private volatile BkTree fuzzy;
+
+    /**
+     * Finishes the shards with the statistics of all of them. They must not be modified afterwards.
+     *
+     * @param shards indexes holding consecutive runs of documents, in order
+     */
+    public ShardedIndex(InvertedIndex[] shards) {
+
+        this.shards = shards.clone();
+        this.views = new Shard[shards.length];
+        this.docBases = new int[shards.length];
+
+        int documents = 0;
+        long words = 0;
+
+        for (int i = 0; i < shards.length; i++) {
+            docBases[i] = documents;
+            documents += shards[i].documentCount();
+            for (int doc = 0; doc < shards[i].documentCount(); doc++) words += shards[i].documentLength(doc);
+
+            for (Map.Entry<String, PostingList> entry : shards[i].entrySet())
+                frequencies.merge(entry.getKey(), entry.getValue().size(), Integer::sum);
+
+            views[i] = new Shard(shards[i]);
+        }
+        this.documentCount = documents;
+        this.averageLength = (documents == 0) ? 0 : (float) ((double) words / documents);
+        this.terms = TermDictionary.build(frequencies.keySet());
+
+        scatter(shard -> {
+            ((Shard) shard).local.finish(averageLength);
+            return null;
+        });
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Loads a corpus file into an index of the given number of shards.
+     *
+     * @param filename
+     * @param shardCount
+     * @return
+     * @throws IOException if the file cannot be read
+     */
+    public static ShardedIndex load(String filename, int shardCount) throws IOException {
+        return load(filename, shardCount, false);
+    }
+
+    /**
+     * @param filename
+     * @param shardCount
+     * @param positions whether the shards record the positions of the words
+     * @return
+     * @throws IOException if the file cannot be read
+     */
+    public static ShardedIndex load(String filename, int shardCount, boolean positions) throws IOException {
+
+        InvertedIndex[] shards = new InvertedIndex[Math.max(1, shardCount)];
+
+        for (int i = 0; i < shards.length; i++) shards[i] = new InvertedIndex(positions);
+
+        CorpusLoader.load(filename, shards, Analyzer.STANDARD);
+
+        return new ShardedIndex(shards);
+    }
+
+    /**
+     * @return one shard per thread of the common fork-join pool, and one for the thread that searches
+     */
+    public static int defaultShardCount() {
+        return ForkJoinPool.commonPool().getParallelism() + 1;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Runs a task on every shard at once, on the common fork-join pool. The calling thread runs one of them.
+     *
+     * Each shard is seen as an index of its own documents, numbered from 0, that answers with the statistics of
+     * the whole index: documentFrequency(), averageDocumentLength() and collectionSize(). Words that only occur in
+     * other shards have an empty posting list, so a query evaluates to null on a shard only if it does on the
+     * whole index.
+     *
+     * @param task
+     * @return the results of the shards, in shard order
+     */
+    public <T> List<T> scatter(final Function<SearchIndex, T> task) {
+
+        List<T> results = new ArrayList<T>(views.length);
+
+        if (views.length == 1) {
+            results.add(task.apply(views[0]));
+            return results;
+        }
+
+        List<ForkJoinTask<T>> forked = new ArrayList<ForkJoinTask<T>>(views.length);
+
+        for (final Shard view : views) forked.add(ForkJoinTask.adapt(() -> task.apply(view)));
+
+        ForkJoinTask.invokeAll(forked);
+
+        for (ForkJoinTask<T> shardTask : forked) results.add(shardTask.join());
+
+        return results;
+    }
+
+    public int docBase(int shard) {
+        return docBases[shard];
+    }
+
+    /**
+     * Joins the lists of the shards.
+     */
+    public PostingList postings(String word) {
+
+        if (!frequencies.containsKey(word)) return null;
+
+        int size = frequencies.get(word);
+        int[] docs = new int[size];
+        int[] counts = new int[size];
+        int position = 0;
+
+        for (int i = 0; i < shards.length; i++) {
+            PostingList list = shards[i].postings(word);
+            if (list == null) continue;
+            for (int j = 0; j < list.size(); j++, position++) {
+                docs[position] = docBases[i] + list.get(j);
+                counts[position] = list.frequency(j);
+            }
+        }
+        return new PostingList(docs, counts, size);
+    }
+
+    /**
+     * Joins the positions of the shards, if every shard containing the word recorded them.
+     */
+    public PositionList positions(String word) {
+
+        PositionList joined = new PositionList();
+        int entry = 0;
+
+        for (InvertedIndex shard : shards) {
+            PostingList postings = shard.postings(word);
+            if (postings == null) continue;
+
+            PositionList positions = postings.positions();
+            if (positions == null) return null;
+
+            for (int i = 0; i < positions.size(); i++, entry++) {
+                for (int position : positions.get(i)) joined.add(entry, position);
+            }
+        }
+        return (entry == 0) ? null : joined;
+    }
+
+    public int documentFrequency(String word) {
+        Integer frequency = frequencies.get(word);
+        return (frequency == null) ? 0 : frequency;
+    }
+
+    public Iterable<String> words() {
+        return terms;
+    }
+
+    public List<String> wordsWithPrefix(String prefix, int limit) {
+        return terms.prefix(prefix, limit);
+    }
+
+    /**
+     * Answered from a BK-tree over the words of all shards, built on first use.
+     */
+    public HashSet<String> nearestWords(String word, int maxDistance) {
+
+        BkTree current = fuzzy;
+
+        if (current == null) {
+            current = BkTree.build(terms);
+            fuzzy = current;
+        }
+        return current.nearest(word, maxDistance);
+    }
+
+    public int wordCount() {
+        return frequencies.size();
+    }
+
+    public int documentCount() {
+        return documentCount;
+    }
+
+    public String url(int doc) {
+        int shard = shardOf(doc);
+        return shards[shard].url(doc - docBases[shard]);
+    }
+
+    public int documentLength(int doc) {
+        int shard = shardOf(doc);
+        return shards[shard].documentLength(doc - docBases[shard]);
+    }
+
+    public float averageDocumentLength() {
+        return averageLength;
+    }
+
+    /**
+     * The joined lists carry no block maxima, only the lists of the shards do.
+     */
+    public boolean hasScoreBounds() {
+        return false;
+    }
+
+    public Analyzer analyzer() {
+        return shards[0].analyzer();
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * @return the last shard whose first document is at or before doc. Empty shards are skipped.
+     */
+    private int shardOf(int doc) {
+
+        int position = Arrays.binarySearch(docBases, doc);
+
+        if (position < 0) return -position - 2;
+
+        while (position + 1 < docBases.length && docBases[position + 1] == doc) position++;
+
+        return position;
+    }
+
+
+    /**
+     * A shard as scatter() hands it to a task: its own documents, with the statistics of the whole index.
+     */
+    private class Shard implements SearchIndex {
+
+        final InvertedIndex local;
+
+        Shard(InvertedIndex local) {
+            this.local = local;
+        }
+
+        public PostingList postings(String word) {
+
+            PostingList postings = local.postings(word);
+
+            if (postings != null || !frequencies.containsKey(word)) return postings;
+
+            return new PostingList(new int[0], 0);
+        }
+
+        public PositionList positions(String word) {
+            return local.positions(word);
+        }
+
+        public int documentFrequency(String word) {
+            return ShardedIndex.this.documentFrequency(word);
+        }
+
+        public Iterable<String> words() {
+            return terms;
+        }
+
+        public List<String> wordsWithPrefix(String prefix, int limit) {
+            return terms.prefix(prefix, limit);
+        }
+
+        public HashSet<String> nearestWords(String word, int maxDistance) {
+            return ShardedIndex.this.nearestWords(word, maxDistance);
+        }
+
+        public int wordCount() {
+            return frequencies.size();
+        }
+
+        public int documentCount() {
+            return local.documentCount();
+        }
+
+        public int collectionSize() {
+            return documentCount;
+        }
+
+        public String url(int doc) {
+            return local.url(doc);
+        }
+
+        public int documentLength(int doc) {
+            return local.documentLength(doc);
+        }
+
+        public float averageDocumentLength() {
+            return averageLength;
+        }
+
+        public boolean hasScoreBounds() {
+            return local.hasScoreBounds();
+        }
+
+        public Analyzer analyzer() {
+            return local.analyzer();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package Index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable, sorted dictionary of words, built once an index is complete.
+ *
+ * Words are sorted by their UTF-8 bytes and front coded in blocks of BLOCK_SIZE: the first word of a block is
+ * stored in full, every following word as the length of the prefix it shares with the previous word plus the
+ * remaining bytes. Lookups binary search the first words of the blocks and then scan a single block, which makes
+ * exact lookups, prefix enumeration (java*) and range scans possible without touching the rest of the dictionary.
+ */
+public class TermDictionary implements Iterable<String> {
+
+    private static final int BLOCK_SIZE = 16;
+
+    private final byte[] data;
+    private final int[] blockOffsets;
+    private final int size;
+
+    private TermDictionary(byte[] data, int[] blockOffsets, int size) {
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+        this.size = size;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * @param words the words, in any order; duplicates are dropped
+     * @return
+     */
+    public static TermDictionary build(Iterable<String> words) {
+
+        List<byte[]> sorted = new ArrayList<byte[]>();
+        for (String word : words) sorted.add(word.getBytes(StandardCharsets.UTF_8));
+
+        sorted.sort(new Comparator<byte[]>() {
+            public int compare(byte[] one, byte[] two) {
+                return SegmentWriter.compare(one, 0, one.length, two, 0, two.length);
+            }
+        });
+
+        ByteWriter out = new ByteWriter();
+        int[] blockOffsets = new int[(sorted.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        byte[] previous = null;
+        int count = 0;
+
+        for (byte[] word : sorted)
+        {
+            if (previous != null && Arrays.equals(previous, word)) continue;
+
+            if (count % BLOCK_SIZE == 0) {
+                if (count / BLOCK_SIZE == blockOffsets.length) blockOffsets = Arrays.copyOf(blockOffsets, blockOffsets.length + 1);
+                blockOffsets[count / BLOCK_SIZE] = out.size;
+                out.writeVarInt(word.length);
+                out.write(word, 0, word.length);
+            } else {
+                int shared = 0;
+                while (shared < previous.length && shared < word.length && previous[shared] == word[shared]) shared++;
+                out.writeVarInt(shared);
+                out.writeVarInt(word.length - shared);
+                out.write(word, shared, word.length - shared);
+            }
+            previous = word;
+            count++;
+        }
+
+        return new TermDictionary(Arrays.copyOf(out.bytes, out.size),
+                Arrays.copyOf(blockOffsets, (count + BLOCK_SIZE - 1) / BLOCK_SIZE), count);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param word
+     * @return the position of the word in sorted order, or -1 if the word is not in the dictionary
+     */
+    public int ordinal(String word) {
+
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        int ordinal = lowerBound(key);
+
+        if (ordinal == size) return -1;
+
+        Cursor cursor = new Cursor(ordinal);
+        cursor.next();
+
+        return cursor.equalTo(key) ? ordinal : -1;
+    }
+
+    /**
+     * @param ordinal
+     * @return the word at the position in sorted order
+     */
+    public String word(int ordinal) {
+
+        if (ordinal < 0 || ordinal >= size) throw new IndexOutOfBoundsException("No word at " + ordinal);
+
+        Cursor cursor = new Cursor(ordinal);
+        cursor.next();
+
+        return cursor.toString();
+    }
+
+    /**
+     * @param prefix
+     * @param limit the maximum number of words to return
+     * @return the words starting with the prefix, in sorted order
+     */
+    public List<String> prefix(String prefix, int limit) {
+
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        List<String> words = new ArrayList<String>();
+        Cursor cursor = new Cursor(lowerBound(key));
+
+        while (words.size() < limit && cursor.next() && cursor.startsWith(key)) words.add(cursor.toString());
+
+        return words;
+    }
+
+    /**
+     * @param from the first word of the range, inclusive
+     * @param to the end of the range, exclusive, or null for no upper bound
+     * @param limit the maximum number of words to return
+     * @return the words in the range, in sorted order
+     */
+    public List<String> range(String from, String to, int limit) {
+
+        byte[] end = (to == null) ? null : to.getBytes(StandardCharsets.UTF_8);
+        List<String> words = new ArrayList<String>();
+        Cursor cursor = new Cursor(lowerBound(from.getBytes(StandardCharsets.UTF_8)));
+
+        while (words.size() < limit && cursor.next() && (end == null || cursor.compareTo(end) < 0)) words.add(cursor.toString());
+
+        return words;
+    }
+
+    /**
+     * Iterates the words in sorted order.
+     */
+    public Iterator<String> iterator() {
+
+        final Cursor cursor = new Cursor(0);
+
+        return new Iterator<String>() {
+            boolean fetched;
+            boolean available;
+
+            public boolean hasNext() {
+                if (!fetched) { available = cursor.next(); fetched = true; }
+                return available;
+            }
+
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                fetched = false;
+                return cursor.toString();
+            }
+        };
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * @return the ordinal of the first word that is greater than or equal to the key, or size if there is none
+     */
+    private int lowerBound(byte[] key) {
+
+        // find the last block whose first word is <= key
+        int low = 0;
+        int high = blockOffsets.length - 1;
+        int block = 0;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = blockOffsets[middle];
+            int length = readVarInt(offset);
+            int start = offset + varIntSize(length);
+
+            if (SegmentWriter.compare(data, start, length, key, 0, key.length) <= 0) {
+                block = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        Cursor cursor = new Cursor(block * BLOCK_SIZE);
+        int ordinal = block * BLOCK_SIZE;
+
+        while (cursor.next()) {
+            if (cursor.compareTo(key) >= 0) return ordinal;
+            ordinal++;
+        }
+        return size;
+    }
+
+    private int readVarInt(int position) {
+        int value = 0, shift = 0, b;
+        do { b = data[position++]; value |= (b & 0x7f) << shift; shift += 7; } while (b < 0);
+        return value;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7f) != 0) { value >>>= 7; size++; }
+        return size;
+    }
+
+    /**
+     * Decodes words one after another into a reusable buffer, starting at a given ordinal.
+     */
+    private class Cursor {
+
+        private byte[] word = new byte[32];
+        private int length;
+        private int ordinal;   // ordinal of the next word to decode
+        private int position;  // offset of the next word in data
+
+        Cursor(int start) {
+            int block = start / BLOCK_SIZE;
+            ordinal = block * BLOCK_SIZE;
+            position = (block < blockOffsets.length) ? blockOffsets[block] : data.length;
+            while (ordinal < start) next();
+        }
+
+        boolean next() {
+
+            if (ordinal >= size) return false;
+
+            int shared = 0;
+            int suffix;
+
+            if (ordinal % BLOCK_SIZE == 0) {
+                suffix = readVarInt(position);
+                position += varIntSize(suffix);
+            } else {
+                shared = readVarInt(position);
+                position += varIntSize(shared);
+                suffix = readVarInt(position);
+                position += varIntSize(suffix);
+            }
+
+            if (shared + suffix > word.length) word = Arrays.copyOf(word, (shared + suffix) * 2);
+
+            System.arraycopy(data, position, word, shared, suffix);
+            position += suffix;
+            length = shared + suffix;
+            ordinal++;
+
+            return true;
+        }
+
+        int compareTo(byte[] key) {
+            return SegmentWriter.compare(word, 0, length, key, 0, key.length);
+        }
+
+        boolean equalTo(byte[] key) {
+            return compareTo(key) == 0;
+        }
+
+        boolean startsWith(byte[] key) {
+            return length >= key.length && SegmentWriter.compare(word, 0, key.length, key, 0, key.length) == 0;
+        }
+
+        @Override
+        public String toString() {
+            return new String(word, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * A growable byte array.
+     */
+    private static class ByteWriter {
+
+        byte[] bytes = new byte[1 << 12];
+        int size;
+
+        void write(byte[] source, int offset, int length) {
+            if (size + length > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        void writeVarInt(int value) {
+            byte[] encoded = new byte[5];
+            int length = 0;
+            while ((value & ~0x7f) != 0) {
+                encoded[length++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            encoded[length++] = (byte) value;
+            write(encoded, 0, length);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+import Index.InvertedIndex;
+import Index.SegmentWriter;
+
+import java.io.IOException;
+
+public class IndexBuilder {
+
+    public static void main(String[] args) throws IOException {
+        boolean positions = args.length == 3 && args[0].equals("--positions");
+
+        if (args.length != (positions ? 3 : 2)) {
+            System.out.println("Usage: java IndexBuilder [--positions] <input_file> <index_file>");
+            System.out.println("Example: java IndexBuilder TestInput/itcwww-medium.txt itcwww-medium.idx");
+            return;
+        }
+
+        String input = args[args.length - 2];
+        String output = args[args.length - 1];
+
+        long start = System.currentTimeMillis();
+        InvertedIndex index = Setup.initialise(input, positions);
+
+        if (index.isEmpty()) {
+            System.out.println("Failed to load " + input + ", no index written.");
+            return;
+        }
+
+        SegmentWriter.write(index, output);
+
+        System.out.println("Indexed " + index.size() + " words from " + index.documentCount() + " pages into " + output
+                + " in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+}
@@ -0,0 +1,71 @@
+package Infrastructure;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reuses direct buffers of one size. Direct buffers are written to a socket without being copied first, but they
+ * are slow to allocate and are only freed by the garbage collector, so a server keeps the ones it has used.
+ *
+ * Buffers larger than the pool's size are allocated when asked for and not kept.
+ */
+public class BufferPool {
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * @param bufferSize the capacity of the pooled buffers
+     * @param maxPooled the most buffers kept while not in use
+     */
+    public BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * @param capacity the capacity needed
+     * @return an empty buffer of at least the capacity
+     */
+    public ByteBuffer acquire(int capacity) {
+
+        if (capacity > bufferSize) return ByteBuffer.allocateDirect(capacity);
+
+        ByteBuffer buffer = free.poll();
+
+        if (buffer == null) return ByteBuffer.allocateDirect(bufferSize);
+
+        pooled.decrementAndGet();
+        buffer.clear();
+
+        return buffer;
+    }
+
+    /**
+     * Takes a buffer back. It must not be used by the caller any more.
+     *
+     * @param buffer
+     */
+    public void release(ByteBuffer buffer) {
+
+        if (!buffer.isDirect() || buffer.capacity() != bufferSize) return;
+
+        if (pooled.incrementAndGet() <= maxPooled) free.offer(buffer);
+        else pooled.decrementAndGet();
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+}
@@ -1,6 +1,7 @@
 package Infrastructure;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 
 public class Filesystem {
 
@@ -22,8 +23,11 @@ public class Filesystem {
         return sb.toString();
     }
 
+    /**
+     * Writes the content as UTF-8, the encoding the corpus loader reads.
+     */
     public static void writeToFile(File file, String content, boolean shouldAppend) throws IOException {
-        FileWriter fw = new FileWriter(file.getAbsoluteFile(), shouldAppend);
+        OutputStreamWriter fw = new OutputStreamWriter(new FileOutputStream(file.getAbsoluteFile(), shouldAppend), StandardCharsets.UTF_8);
         BufferedWriter bw = new BufferedWriter(fw);
         bw.write(content);
         bw.close();
@@ -44,6 +48,7 @@ public class Filesystem {
 
         File file= new File(fileDestination + fileName);
 
+        file.getParentFile().mkdirs();
         if (!file.exists()) file.createNewFile();
 
         return file;
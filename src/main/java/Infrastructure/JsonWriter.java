@@ -0,0 +1,165 @@
+package Infrastructure;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Writes JSON straight to a stream as it is produced, without building the document in memory first.
+ *
+ * Commas and colons are placed by the writer, so a caller only says what comes next:
+ * json.beginObject().name("hits").beginArray().value("a").value("b").endArray().endObject().
+ */
+public class JsonWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+    private boolean[] hasElements = new boolean[8];   // per open object or array
+    private int depth;
+    private boolean afterName;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    /**
+     * Starts a member of the current object, to be followed by its value.
+     */
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        string(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * @param value a string, or null
+     */
+    public JsonWriter value(String value) throws IOException {
+        separate();
+        if (value == null) out.write("null");
+        else string(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        separate();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * @param value a finite number; NaN and the infinities, which JSON does not have, are written as null
+     */
+    public JsonWriter value(double value) throws IOException {
+        separate();
+        out.write(Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        separate();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    private JsonWriter open(char bracket) throws IOException {
+        separate();
+        out.write(bracket);
+        if (depth == hasElements.length) hasElements = Arrays.copyOf(hasElements, depth * 2);
+        hasElements[depth++] = false;
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        if (depth == 0) throw new IllegalStateException("Nothing to close");
+        depth--;
+        out.write(bracket);
+        return this;
+    }
+
+    /**
+     * Writes the comma before every element but the first of an object or array. A value after a name is part of
+     * the same member.
+     */
+    private void separate() throws IOException {
+
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasElements[depth - 1]) out.write(',');
+            hasElements[depth - 1] = true;
+        }
+    }
+
+    private void string(String value) throws IOException {
+
+        out.write('"');
+
+        int start = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && c != 0x2028 && c != 0x2029) continue;
+
+            out.write(value, start, i - start);
+            start = i + 1;
+
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    out.write("\\u");
+                    out.write(HEX[c >> 12 & 0xf]);
+                    out.write(HEX[c >> 8 & 0xf]);
+                    out.write(HEX[c >> 4 & 0xf]);
+                    out.write(HEX[c & 0xf]);
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+}
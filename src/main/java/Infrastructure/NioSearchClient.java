@@ -0,0 +1,154 @@
+package Infrastructure;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends queries to a NioSearchServer over a single connection. Any number of threads can search at the same time:
+ * each request is sent as soon as it is made, with an id of its own, and a reader thread hands every response to
+ * the request with its id, whatever order the responses arrive in.
+ */
+public class NioSearchClient implements Closeable {
+
+    private final Socket socket;
+    private final OutputStream out;
+    private final AtomicInteger ids = new AtomicInteger();
+    private final Map<Integer, CompletableFuture<HashSet<String>>> pending = new ConcurrentHashMap<Integer, CompletableFuture<HashSet<String>>>();
+    private volatile IOException failure;
+
+    /**
+     * @param address the address of the server
+     * @throws IOException if the server cannot be reached
+     */
+    public NioSearchClient(InetSocketAddress address) throws IOException {
+
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(address);
+        out = new BufferedOutputStream(socket.getOutputStream(), 1 << 13);
+
+        Thread reader = new Thread(this::readResponses, "nio-search-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Sends a query without waiting for its results.
+     *
+     * @param query
+     * @return the urls, or null if the query depends on words that are not in the index. Fails with an IOException
+     * if the server answers with an error or the connection is lost.
+     */
+    public CompletableFuture<HashSet<String>> searchAsync(String query) {
+
+        int id = ids.incrementAndGet();
+        CompletableFuture<HashSet<String>> result = new CompletableFuture<HashSet<String>>();
+        pending.put(id, result);
+
+        try {
+            if (failure != null) throw failure;
+            byte[] frame = SearchFrames.request(id, query);
+            synchronized (out) {
+                out.write(frame);
+                out.flush();
+            }
+        }
+        catch (IOException e) {
+            pending.remove(id);
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * @param query
+     * @return the urls, or null if the query depends on words that are not in the index
+     * @throws IOException if the server answers with an error or the connection is lost
+     */
+    public HashSet<String> search(String query) throws IOException {
+        try {
+            return searchAsync(query).get();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the results", e);
+        }
+    }
+
+    /**
+     * Closes the connection. Searches still waiting for their results fail.
+     */
+    public void close() throws IOException {
+        socket.close();
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    private void readResponses() {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+
+            while (true)
+            {
+                int length = in.readInt();
+
+                if (length < 4 || length > SearchFrames.MAX_FRAME_SIZE) throw new IOException("Bad frame length " + length);
+
+                int id = in.readInt();
+                byte[] body = new byte[length - 4];
+                in.readFully(body);
+
+                CompletableFuture<HashSet<String>> result = pending.remove(id);
+
+                if (result == null) continue;
+
+                try {
+                    result.complete(SearchFrames.results(body));
+                } catch (IOException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        }
+        catch (IOException e) {
+            failure = (e instanceof EOFException) ? new IOException("The server closed the connection") : e;
+        }
+        finally {
+            if (failure == null) failure = new IOException("The connection is closed");
+            for (Integer id : pending.keySet()) {
+                CompletableFuture<HashSet<String>> result = pending.remove(id);
+                if (result != null) result.completeExceptionally(failure);
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package Infrastructure;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+
+/**
+ * The frames of the pipelined search protocol between NioSearchServer and NioSearchClient.
+ *
+ * Every frame starts with its length in bytes, not counting the length itself, and the id of the request, which
+ * the response to it repeats. A client can send many requests without waiting, and the server answers them in the
+ * order they finish, not the order they were sent. The rest of a frame is a ShardProtocol request or response:
+ * a request is the SEARCH type and the query, a response is a status and, for RESULTS, the front coded urls.
+ */
+public class SearchFrames {
+
+    public static final int HEADER_SIZE = 8;
+    public static final int MAX_FRAME_SIZE = 1 << 24;
+
+    private SearchFrames() {}
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * @param id
+     * @param query
+     * @return the request frame
+     */
+    public static byte[] request(int id, String query) {
+
+        byte[] bytes = query.getBytes(StandardCharsets.UTF_8);
+        int varIntSize = varIntSize(bytes.length);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + 1 + varIntSize + bytes.length);
+
+        frame.putInt(frame.capacity() - 4).putInt(id).put(ShardProtocol.SEARCH);
+        for (int value = bytes.length; ; value >>>= 7) {
+            if ((value & ~0x7f) == 0) { frame.put((byte) value); break; }
+            frame.put((byte) ((value & 0x7f) | 0x80));
+        }
+        frame.put(bytes);
+
+        return frame.array();
+    }
+
+    /**
+     * Reads the query of a request frame, from just after its id to the end of the frame.
+     *
+     * @param frame positioned after the id, limited to the end of the frame
+     * @return the query
+     * @throws IOException if the frame is not a search request
+     */
+    public static String query(ByteBuffer frame) throws IOException {
+
+        if (!frame.hasRemaining() || frame.get() != ShardProtocol.SEARCH) throw new IOException("Unknown request");
+
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (!frame.hasRemaining() || shift > 28) throw new IOException("Malformed request");
+            byte b = frame.get();
+            length |= (b & 0x7f) << shift;
+            if (b >= 0) break;
+        }
+        if (length != frame.remaining()) throw new IOException("Malformed request");
+
+        if (frame.hasArray()) {
+            String query = new String(frame.array(), frame.arrayOffset() + frame.position(), length, StandardCharsets.UTF_8);
+            frame.position(frame.limit());
+            return query;
+        }
+        byte[] bytes = new byte[length];
+        frame.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes the response to a request into a buffer from the pool.
+     *
+     * @param id the id of the request
+     * @param urls the results, or null if the query depends on words that are not in the index
+     * @param pool
+     * @return the frame, ready to be written
+     */
+    public static ByteBuffer results(int id, HashSet<String> urls, BufferPool pool) {
+
+        Frame frame = new Frame(id, pool);
+
+        try {
+            ShardProtocol.writeResults(frame.data, urls);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);     // the frame is in memory
+        }
+        return frame.finish();
+    }
+
+    /**
+     * @param id the id of the request
+     * @param message
+     * @param pool
+     * @return the frame, ready to be written
+     */
+    public static ByteBuffer error(int id, String message, BufferPool pool) {
+
+        Frame frame = new Frame(id, pool);
+
+        try {
+            ShardProtocol.writeError(frame.data, message);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return frame.finish();
+    }
+
+    /**
+     * Decodes the body of a response frame, everything after its id.
+     *
+     * @param body
+     * @return the urls, or null if the server does not know the words of the query
+     * @throws IOException if the server answered with an error
+     */
+    public static HashSet<String> results(byte[] body) throws IOException {
+        return ShardProtocol.readResults(new DataInputStream(new ByteArrayInputStream(body)));
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    private static int varIntSize(int value) {
+
+        int size = 1;
+
+        while ((value & ~0x7f) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+
+    /**
+     * A frame being written into a pooled buffer, which is swapped for a larger one when it fills up.
+     */
+    private static class Frame extends OutputStream {
+
+        final BufferPool pool;
+        final DataOutputStream data = new DataOutputStream(this);
+        ByteBuffer buffer;
+
+        Frame(int id, BufferPool pool) {
+            this.pool = pool;
+            this.buffer = pool.acquire(pool.getBufferSize());
+            buffer.putInt(0).putInt(id);
+        }
+
+        public void write(int b) {
+            ensureRemaining(1);
+            buffer.put((byte) b);
+        }
+
+        public void write(byte[] bytes, int offset, int length) {
+            ensureRemaining(length);
+            buffer.put(bytes, offset, length);
+        }
+
+        ByteBuffer finish() {
+            buffer.putInt(0, buffer.position() - 4);
+            buffer.flip();
+            return buffer;
+        }
+
+        private void ensureRemaining(int length) {
+
+            if (buffer.remaining() >= length) return;
+
+            if ((long) buffer.position() + length > MAX_FRAME_SIZE) throw new IllegalStateException("The response is larger than " + MAX_FRAME_SIZE + " bytes");
+
+            ByteBuffer grown = pool.acquire(Math.max(buffer.capacity() * 2, buffer.position() + length));
+            buffer.flip();
+            grown.put(buffer);
+            pool.release(buffer);
+            buffer = grown;
+        }
+    }
+}
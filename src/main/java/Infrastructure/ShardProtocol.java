@@ -0,0 +1,179 @@
+package Infrastructure;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * The binary protocol between a SearchCoordinator and its ShardServers.
+ *
+ * A connection carries any number of requests, one after the other, each answered before the next is sent.
+ * A request is a type byte followed by the query as a string. A response is a status byte: RESULTS followed by
+ * the number of urls and the urls, UNKNOWN if the query depends on words the shard does not have (a null result
+ * from Searcher), or ERROR followed by a message.
+ *
+ * Numbers are varints. Strings are their UTF-8 length followed by the bytes. The urls of a response are sorted
+ * and front coded: every url is sent as the number of bytes it shares with the url before it and the rest, so the
+ * host and path that most urls of a site have in common are only sent once.
+ */
+public class ShardProtocol {
+
+    public static final byte SEARCH = 1;
+
+    public static final byte RESULTS = 0;
+    public static final byte UNKNOWN = 1;
+    public static final byte ERROR = 2;
+
+    private static final int MAX_STRING_LENGTH = 1 << 20;
+    private static final int MAX_RESULTS = 1 << 24;
+
+    private ShardProtocol() {}
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    public static void writeRequest(DataOutputStream out, byte type, String query) throws IOException {
+        out.writeByte(type);
+        writeString(out, query);
+        out.flush();
+    }
+
+    /**
+     * @param out
+     * @param urls the results, or null if the query depends on words that are not in the shard
+     * @throws IOException
+     */
+    public static void writeResults(DataOutputStream out, HashSet<String> urls) throws IOException {
+
+        if (urls == null) {
+            out.writeByte(UNKNOWN);
+            out.flush();
+            return;
+        }
+
+        byte[][] sorted = new byte[urls.size()][];
+        int count = 0;
+
+        for (String url : urls) sorted[count++] = url.getBytes(StandardCharsets.UTF_8);
+
+        Arrays.sort(sorted, ShardProtocol::compare);
+
+        out.writeByte(RESULTS);
+        writeVarInt(out, sorted.length);
+
+        byte[] previous = new byte[0];
+
+        for (byte[] url : sorted) {
+            int shared = 0;
+            while (shared < previous.length && shared < url.length && previous[shared] == url[shared]) shared++;
+            writeVarInt(out, shared);
+            writeVarInt(out, url.length - shared);
+            out.write(url, shared, url.length - shared);
+            previous = url;
+        }
+        out.flush();
+    }
+
+    public static void writeError(DataOutputStream out, String message) throws IOException {
+        out.writeByte(ERROR);
+        writeString(out, (message == null) ? "" : message);
+        out.flush();
+    }
+
+    /**
+     * Reads the response to a search.
+     *
+     * @param in
+     * @return the urls, or null if the shard does not know the words of the query
+     * @throws IOException if the connection fails or the shard answers with an error
+     */
+    public static HashSet<String> readResults(DataInputStream in) throws IOException {
+
+        byte status = in.readByte();
+
+        if (status == UNKNOWN) return null;
+
+        if (status == ERROR) throw new IOException("The shard failed: " + readString(in));
+
+        if (status != RESULTS) throw new IOException("Unknown response " + status);
+
+        int count = readVarInt(in);
+
+        if (count < 0 || count > MAX_RESULTS) throw new IOException("A response of " + count + " urls is too large");
+
+        // sized for the urls that have actually arrived, not for a count the shard may have got wrong
+        HashSet<String> urls = new HashSet<String>(Math.min(count, 1 << 10) * 4 / 3 + 1);
+        byte[] previous = new byte[0];
+
+        for (int i = 0; i < count; i++) {
+            int shared = readVarInt(in);
+            int rest = readVarInt(in);
+            if (shared < 0 || shared > previous.length || rest < 0 || rest > MAX_STRING_LENGTH) throw new IOException("Malformed response");
+
+            byte[] url = Arrays.copyOf(previous, shared + rest);
+            in.readFully(url, shared, rest);
+            urls.add(new String(url, StandardCharsets.UTF_8));
+            previous = url;
+        }
+        return urls;
+    }
+
+    /**
+     * Orders byte arrays by their unsigned bytes, which orders UTF-8 strings by code point.
+     */
+    public static int compare(byte[] one, byte[] two) {
+
+        for (int i = 0; i < one.length && i < two.length; i++) {
+            if (one[i] != two[i]) return (one[i] & 0xff) - (two[i] & 0xff);
+        }
+        return one.length - two.length;
+    }
+
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+
+        int length = readVarInt(in);
+
+        if (length < 0 || length > MAX_STRING_LENGTH) throw new IOException("A string of " + length + " bytes is too long");
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static int readVarInt(DataInputStream in) throws IOException {
+
+        int value = 0;
+
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,416 @@
+import Index.SearchIndex;
+import Infrastructure.BufferPool;
+import Infrastructure.SearchFrames;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves Searcher over the pipelined binary protocol of SearchFrames, for other services that query the engine.
+ *
+ * One selector thread accepts connections, reads request frames and writes responses, without ever blocking on a
+ * socket. Every request is searched on a worker thread, so a slow query does not hold up the others on the same
+ * connection. The worker encodes the response into a pooled direct buffer and writes it to the socket right away
+ * if nothing else is waiting to be sent on the connection. Only a response that does not fit into the socket's
+ * send buffer is left for the selector thread to finish, which saves waking it up for every response.
+ *
+ * A connection stops being read while it has MAX_IN_FLIGHT requests being searched or MAX_QUEUED_BYTES of responses
+ * waiting to be written, and is read again once it has drained to half of both. A client that sends faster than it
+ * is answered, or reads slower, is then held back by TCP instead of filling the worker queue and the heap.
+ *
+ * Searches run against the index published by Setup, see Setup.getInstance().
+ */
+public class NioSearchServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 7070;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final int RESPONSE_BUFFER_SIZE = 1 << 14;
+    static final int MAX_IN_FLIGHT = 256;
+    static final int MAX_QUEUED_BYTES = 1 << 22;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService workers;
+    private final BufferPool pool = new BufferPool(RESPONSE_BUFFER_SIZE, 1024);
+    private final ConcurrentLinkedQueue<Connection> pendingInterest = new ConcurrentLinkedQueue<Connection>();
+
+    /**
+     * @param port the port to listen on, 0 for any free port
+     * @param threads the number of threads searching
+     * @throws IOException if the port cannot be bound
+     */
+    public NioSearchServer(int port, int threads) throws IOException {
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "nio-search-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public NioSearchServer(int port) throws IOException {
+        this(port, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        int port = DEFAULT_PORT;
+        int shards = 0;
+        boolean positions = false;
+        String filename = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--port") && i + 1 < args.length) port = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--shards") && i + 1 < args.length) shards = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--positions")) positions = true;
+            else filename = args[i];
+        }
+
+        if (filename == null) {
+            System.out.println("Usage: java NioSearchServer [--port <port>] [--shards <n>] [--positions] <input_file|index_file>");
+            System.out.println("Example: java NioSearchServer --port " + DEFAULT_PORT + " TestInput/itcwww-medium.txt");
+            return;
+        }
+
+        SearchIndex index = (shards > 0) ? Setup.openSharded(filename, shards, positions) : Setup.open(filename, positions);
+
+        if (index.wordCount() == 0) {
+            System.out.println("Failed to load search index. Please check the input file.");
+            return;
+        }
+
+        NioSearchServer server = new NioSearchServer(port);
+        System.out.println("Serving " + index.documentCount() + " pages on port " + server.getPort());
+        server.run();
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Runs the selector loop until the server is closed.
+     */
+    public void run() {
+        try {
+            while (selector.isOpen())
+            {
+                selector.select();
+
+                for (Connection connection; (connection = pendingInterest.poll()) != null; ) connection.updateInterest();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (!key.isValid()) continue;
+
+                    if (key.isAcceptable()) accept();
+                    else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) connection.read();
+                        if (key.isValid() && key.isWritable()) connection.flush();
+                    }
+                }
+            }
+        }
+        catch (ClosedSelectorException e) {
+            // closed while selecting
+        }
+        catch (IOException e) {
+            System.out.println("The search server stopped. (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Runs the selector loop on a thread of its own.
+     *
+     * @return this server
+     */
+    public NioSearchServer start() {
+        Thread thread = new Thread(this::run, "nio-search-selector");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Closes the server and all its connections.
+     */
+    public void close() throws IOException {
+        workers.shutdownNow();
+        for (SelectionKey key : selector.keys()) key.channel().close();
+        selector.close();
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    private void accept() throws IOException {
+
+        SocketChannel channel = serverChannel.accept();
+
+        if (channel == null) return;
+
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+
+    /**
+     * A client connection: the frames read so far and the responses that still have to be written.
+     */
+    private class Connection {
+
+        final SocketChannel channel;
+        SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<ByteBuffer>();
+        int inFlight;       // requests handed to a worker and not yet answered
+        long queuedBytes;   // bytes of the responses in out
+        boolean paused;     // not read until it drains
+        boolean closed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Reads what has arrived and hands every complete request to a worker. Called on the selector thread.
+         */
+        void read() {
+            try {
+                if (channel.read(in) < 0) {
+                    close();
+                    return;
+                }
+                process();
+            }
+            catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * Hands every complete request in the buffer to a worker, and stops reading the connection if it has too
+         * much outstanding. The requests after that wait in the buffer. Called on the selector thread.
+         */
+        void process() throws IOException {
+
+            in.flip();
+
+            while (in.remaining() >= 4)
+            {
+                synchronized (this) {
+                    if (overloaded()) {
+                        paused = true;
+                        updateInterest();
+                        break;
+                    }
+                }
+
+                int length = in.getInt(in.position());
+
+                if (length < 4 || length > SearchFrames.MAX_FRAME_SIZE) throw new IOException("Bad frame length " + length);
+
+                if (in.remaining() < 4 + length) {
+                    if (4 + length > in.capacity()) in = grow(in, 4 + length);
+                    break;
+                }
+
+                int end = in.position() + 4 + length;
+                int id = in.getInt(in.position() + 4);
+                ByteBuffer frame = in.duplicate();
+                frame.position(in.position() + SearchFrames.HEADER_SIZE).limit(end);
+                in.position(end);
+
+                String query;
+                try {
+                    query = SearchFrames.query(frame);
+                } catch (IOException e) {
+                    send(SearchFrames.error(id, e.getMessage(), pool));
+                    continue;
+                }
+                synchronized (this) {
+                    inFlight++;
+                }
+                workers.execute(() -> search(id, query));
+            }
+            in.compact();
+        }
+
+        void search(int id, String query) {
+
+            ByteBuffer response;
+
+            try {
+                HashSet<String> urls = Searcher.search(query, Setup.getInstance());
+                response = SearchFrames.results(id, urls, pool);
+            }
+            catch (RuntimeException e) {
+                response = SearchFrames.error(id, e.toString(), pool);
+            }
+
+            synchronized (this) {
+                inFlight--;
+                send(response);
+                if (paused && drained()) wakeSelector();
+            }
+        }
+
+        /**
+         * Writes the response now if the connection has nothing else waiting, and leaves the rest for the
+         * selector thread otherwise.
+         */
+        synchronized void send(ByteBuffer response) {
+
+            if (closed) {
+                pool.release(response);
+                return;
+            }
+
+            if (out.isEmpty()) {
+                try {
+                    channel.write(response);
+                } catch (IOException e) {
+                    pool.release(response);
+                    closeQuietly();
+                    return;
+                }
+                if (!response.hasRemaining()) {
+                    pool.release(response);
+                    return;
+                }
+                queue(response);
+                wakeSelector();
+                return;
+            }
+            queue(response);
+        }
+
+        /**
+         * Sets what the selector watches for: writes while responses are waiting, and reads unless the connection
+         * is paused. Resumes a paused connection that has drained, with the requests it has already sent. Called on
+         * the selector thread.
+         */
+        synchronized void updateInterest() {
+
+            if (closed || !key.isValid()) return;
+
+            boolean resumed = paused && drained();
+            if (resumed) paused = false;
+
+            key.interestOps((paused ? 0 : SelectionKey.OP_READ) | (out.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+
+            if (resumed) {
+                try {
+                    process();
+                } catch (IOException e) {
+                    closeQuietly();
+                }
+            }
+        }
+
+        /**
+         * Writes the waiting responses. Called on the selector thread.
+         */
+        synchronized void flush() {
+            try {
+                while (!out.isEmpty()) {
+                    ByteBuffer response = out.peek();
+                    int remaining = response.remaining();
+                    channel.write(response);
+                    queuedBytes -= remaining - response.remaining();
+                    if (response.hasRemaining()) break;
+                    pool.release(out.poll());
+                }
+                updateInterest();
+            }
+            catch (IOException e) {
+                closeQuietly();
+            }
+        }
+
+        synchronized void close() {
+            closeQuietly();
+        }
+
+        private void closeQuietly() {
+            closed = true;
+            for (ByteBuffer response; (response = out.poll()) != null; ) pool.release(response);
+            queuedBytes = 0;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // nothing left to do with it
+            }
+        }
+
+        private void queue(ByteBuffer response) {
+            out.add(response);
+            queuedBytes += response.remaining();
+        }
+
+        private boolean overloaded() {
+            return inFlight >= MAX_IN_FLIGHT || queuedBytes >= MAX_QUEUED_BYTES;
+        }
+
+        private boolean drained() {
+            return inFlight <= MAX_IN_FLIGHT / 2 && queuedBytes <= MAX_QUEUED_BYTES / 2;
+        }
+
+        /**
+         * Has the selector thread update what it watches the connection for.
+         */
+        private void wakeSelector() {
+            pendingInterest.add(this);
+            selector.wakeup();
+        }
+
+        private ByteBuffer grow(ByteBuffer buffer, int capacity) {
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            grown.put(buffer);
+            grown.flip();
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package Query;
+
+import Index.SearchIndex;
+import Index.PostingList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Matches the documents matched by every child. Children that are NOT nodes are subtracted from the result
+ * instead of being intersected with it.
+ */
+public class AndNode extends QueryNode {
+
+    private final List<QueryNode> children;
+
+    public AndNode(List<QueryNode> children) {
+        this.children = children;
+    }
+
+    public List<QueryNode> getChildren() {
+        return children;
+    }
+
+    /**
+     * The conjuncts are evaluated cheapest first. Evaluation stops as soon as one of them is known to be empty,
+     * so the remaining (larger) children are never evaluated.
+     */
+    public PostingList evaluate(SearchIndex index) {
+
+        List<QueryNode> included = new ArrayList<QueryNode>(children.size());
+        List<QueryNode> excluded = new ArrayList<QueryNode>();
+
+        for (QueryNode child : children) {
+            if (child instanceof NotNode) excluded.add(((NotNode) child).getChild());
+            else included.add(child);
+        }
+
+        PostingList result;
+
+        if (included.isEmpty()) {
+            result = QueryEvaluator.all(index.documentCount());
+        } else {
+            result = intersect(index, QueryPlanner.orderByEstimate(included, index));
+            if (result == null || result.isEmpty()) return result;
+        }
+
+        for (QueryNode child : excluded) {
+            PostingList postings = child.evaluate(index);
+            if (postings != null) result = QueryEvaluator.andNot(result, postings);
+            if (result.isEmpty()) break;
+        }
+        return result;
+    }
+
+    public long estimate(SearchIndex index) {
+
+        long estimate = index.documentCount();
+
+        for (QueryNode child : children) {
+            if (!(child instanceof NotNode)) estimate = Math.min(estimate, child.estimate(index));
+        }
+        return estimate;
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder sb = new StringBuilder("(");
+
+        for (int i = 0; i < children.size(); i++) {
+            if (i > 0) sb.append(" AND ");
+            sb.append(children.get(i));
+        }
+        return sb.append(")").toString();
+    }
+
+    /**
+     * Evaluates the children, which are ordered by ascending estimate, and intersects their lists in one pass.
+     */
+    private static PostingList intersect(SearchIndex index, List<QueryNode> ordered) {
+
+        PostingList[] lists = new PostingList[ordered.size()];
+
+        for (int i = 0; i < lists.length; i++) {
+
+            lists[i] = ordered.get(i).evaluate(index);
+
+            if (lists[i] == null || lists[i].isEmpty()) return lists[i]; // nothing can match, skip the rest
+        }
+        return QueryEvaluator.and(lists);
+    }
+}
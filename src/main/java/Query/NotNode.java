@@ -0,0 +1,38 @@
+package Query;
+
+import Index.SearchIndex;
+import Index.PostingList;
+
+/**
+ * Matches every document that the child does not match. Inside an AND the planner turns it into an exclusion
+ * instead, so the complement is only built for queries that consist of nothing but NOT.
+ */
+public class NotNode extends QueryNode {
+
+    private final QueryNode child;
+
+    public NotNode(QueryNode child) {
+        this.child = child;
+    }
+
+    public QueryNode getChild() {
+        return child;
+    }
+
+    public PostingList evaluate(SearchIndex index) {
+
+        PostingList all = QueryEvaluator.all(index.documentCount());
+        PostingList excluded = child.evaluate(index);
+
+        return (excluded == null) ? all : QueryEvaluator.andNot(all, excluded);
+    }
+
+    public long estimate(SearchIndex index) {
+        return index.documentCount();
+    }
+
+    @Override
+    public String toString() {
+        return "NOT " + child;
+    }
+}
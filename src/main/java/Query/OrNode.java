@@ -0,0 +1,58 @@
+package Query;
+
+import Index.SearchIndex;
+import Index.PostingList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class OrNode extends QueryNode {
+
+    private final List<QueryNode> children;
+
+    public OrNode(List<QueryNode> children) {
+        this.children = children;
+    }
+
+    public List<QueryNode> getChildren() {
+        return children;
+    }
+
+    /**
+     * Unknown words are skipped, the result is only null if none of the alternatives are known.
+     */
+    public PostingList evaluate(SearchIndex index) {
+
+        List<PostingList> lists = new ArrayList<PostingList>(children.size());
+
+        for (QueryNode child : children) {
+            PostingList postings = child.evaluate(index);
+            if (postings != null) lists.add(postings);
+        }
+
+        if (lists.isEmpty()) return null;
+
+        return QueryEvaluator.or(lists.toArray(new PostingList[lists.size()]));
+    }
+
+    public long estimate(SearchIndex index) {
+
+        long estimate = 0;
+
+        for (QueryNode child : children) estimate += child.estimate(index);
+
+        return Math.min(estimate, index.documentCount());
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder sb = new StringBuilder("(");
+
+        for (int i = 0; i < children.size(); i++) {
+            if (i > 0) sb.append(" OR ");
+            sb.append(children.get(i));
+        }
+        return sb.append(")").toString();
+    }
+}
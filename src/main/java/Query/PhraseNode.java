@@ -0,0 +1,103 @@
+package Query;
+
+import Index.PositionList;
+import Index.SearchIndex;
+import Index.PostingList;
+
+import java.util.List;
+
+/**
+ * A quoted sequence of words, matching the pages where the words occur next to each other in that order.
+ *
+ * The posting lists of the words are intersected first, and the positions are only read for the pages that contain
+ * every word. If the index does not record positions, a phrase matches the pages that contain all of its words.
+ */
+public class PhraseNode extends QueryNode {
+
+    private final List<String> words;
+
+    public PhraseNode(List<String> words) {
+        this.words = words;
+    }
+
+    public List<String> getWords() {
+        return words;
+    }
+
+    public PostingList evaluate(SearchIndex index) {
+
+        PostingList[] lists = new PostingList[words.size()];
+
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = index.postings(words.get(i));
+            if (lists[i] == null) return null;
+        }
+
+        PostingList matches = QueryEvaluator.and(lists);
+
+        if (lists.length < 2 || matches.isEmpty()) return matches;
+
+        PositionList[] positions = new PositionList[lists.length];
+
+        for (int i = 0; i < lists.length; i++) {
+            positions[i] = index.positions(words.get(i));
+            if (positions[i] == null) return matches;
+        }
+        return verify(matches, lists, positions);
+    }
+
+    public long estimate(SearchIndex index) {
+
+        long estimate = Long.MAX_VALUE;
+
+        for (String word : words) estimate = Math.min(estimate, index.documentFrequency(word));
+        return estimate;
+    }
+
+    @Override
+    public String toString() {
+        return "\"" + String.join(" ", words) + "\"";
+    }
+
+    /**
+     * Keeps the documents in which the words occur one after the other. The positions at which the phrase can
+     * start are narrowed down word by word, merging them with the positions of the next word shifted back.
+     *
+     * @return the documents, with the number of times the phrase occurs in each as frequency
+     */
+    private static PostingList verify(PostingList matches, PostingList[] lists, PositionList[] positions) {
+
+        PostingList verified = new PostingList();
+        int[] entries = new int[lists.length];
+
+        for (int m = 0; m < matches.size(); m++)
+        {
+            int doc = matches.get(m);
+            int[] starts = null;
+            int count = 0;
+
+            for (int i = 0; i < lists.length && (starts == null || count > 0); i++) {
+                entries[i] = lists[i].seek(entries[i], doc);
+                int[] next = positions[i].get(entries[i]);
+
+                if (starts == null) {
+                    starts = next;
+                    count = next.length;
+                    continue;
+                }
+
+                int kept = 0;
+                for (int a = 0, b = 0; a < count && b < next.length; ) {
+                    int wanted = starts[a] + i;
+                    if (next[b] < wanted) b++;
+                    else if (next[b] > wanted) a++;
+                    else { starts[kept++] = starts[a]; a++; b++; }
+                }
+                count = kept;
+            }
+
+            if (count > 0) verified.add(doc, count);
+        }
+        return verified;
+    }
+}
@@ -0,0 +1,59 @@
+package Query;
+
+import Index.PostingList;
+import Index.SearchIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A wildcard word such as "java*", matching every word that starts with the prefix.
+ * The words are enumerated from the sorted term dictionary, so only the matching part of it is read.
+ */
+public class PrefixNode extends QueryNode {
+
+    public static final int MAX_EXPANSIONS = 4096;
+
+    private final String prefix;
+
+    public PrefixNode(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @param index
+     * @return the words of the index the prefix expands to, at most MAX_EXPANSIONS of them
+     */
+    public List<String> expand(SearchIndex index) {
+        return index.wordsWithPrefix(prefix, MAX_EXPANSIONS);
+    }
+
+    public PostingList evaluate(SearchIndex index) {
+
+        List<PostingList> lists = new ArrayList<PostingList>();
+
+        for (String word : expand(index)) lists.add(index.postings(word));
+
+        if (lists.isEmpty()) return null;
+
+        return QueryEvaluator.or(lists.toArray(new PostingList[lists.size()]));
+    }
+
+    public long estimate(SearchIndex index) {
+
+        long estimate = 0;
+
+        for (String word : expand(index)) estimate += index.documentFrequency(word);
+
+        return Math.min(estimate, index.documentCount());
+    }
+
+    @Override
+    public String toString() {
+        return prefix + "*";
+    }
+}
@@ -0,0 +1,269 @@
+package Query;
+
+import Index.SearchIndex;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Keeps the results of recent queries, so a query that is repeated is answered without evaluating it again.
+ *
+ * Queries are keyed by their compiled plan rather than by the string typed, with the operands of AND and OR in a
+ * fixed order, so "java AND  python" and "python java" share one entry. The least recently used results are
+ * evicted once there are more than maxEntries of them or their approximate size exceeds maxBytes.
+ *
+ * Results belong to the index they were computed from. An index that changes gets a new generation, and the
+ * results of its old generation are dropped the next time it is searched. The results of the most recently
+ * searched indexes are kept, the others are dropped. Indexes are only referenced weakly, so the cache does not
+ * keep an index that was replaced from being collected.
+ */
+public class QueryCache<V> {
+
+    private static final int MAX_INDEXES = 2;
+    private static final long ENTRY_OVERHEAD = 64;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true);
+    private final Generation[] generations = new Generation[MAX_INDEXES];
+    private int nextGeneration;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxEntries the maximum number of results kept
+     * @param maxBytes the maximum approximate size of the results kept
+     * @param weigher the approximate size of a result in bytes
+     */
+    public QueryCache(int maxEntries, long maxBytes, ToLongFunction<V> weigher) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Returns the cached result of the query, or evaluates and caches it. Evaluation happens outside the lock, so
+     * two threads missing on the same query at once both evaluate it.
+     *
+     * @param key the normalised query, see key()
+     * @param index the index the query runs against. It must not change while the query is evaluated.
+     * @param evaluate computes the result, which may be null
+     * @return the result, shared with other callers, so it must not be modified
+     */
+    public V get(String key, SearchIndex index, Function<SearchIndex, V> evaluate) {
+
+        int number;
+        String entryKey;
+
+        synchronized (this) {
+            number = generationOf(index);
+            entryKey = number + ":" + key;
+            Entry<V> entry = entries.get(entryKey);
+
+            if (entry != null) {
+                hits++;
+                return entry.value;
+            }
+            misses++;
+        }
+
+        V value = evaluate.apply(index);
+        long size = ENTRY_OVERHEAD + 2L * entryKey.length() + ((value == null) ? 0 : weigher.applyAsLong(value));
+
+        if (size > maxBytes) return value;
+
+        synchronized (this) {
+            if (!isCurrent(number)) return value;      // the index changed or was pushed out meanwhile
+
+            Entry<V> previous = entries.put(entryKey, new Entry<V>(value, size));
+            if (previous != null) bytes -= previous.size;
+            bytes += size;
+            evict();
+        }
+        return value;
+    }
+
+    /**
+     * @param plan
+     * @return the plan as a string, with the operands of every AND and OR sorted
+     */
+    public static String key(QueryNode plan) {
+
+        if (plan instanceof AndNode) return "(" + String.join(" AND ", sortedKeys(((AndNode) plan).getChildren())) + ")";
+
+        if (plan instanceof OrNode) return "(" + String.join(" OR ", sortedKeys(((OrNode) plan).getChildren())) + ")";
+
+        if (plan instanceof NotNode) return "NOT " + key(((NotNode) plan).getChild());
+
+        return plan.toString();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the approximate size of the cached results in bytes
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of results dropped to stay within the bounds
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return entries.size() + " results, " + bytes / 1024 + " KB, " + hits + " hits, " + misses + " misses, "
+                + evictions + " evictions";
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    private static List<String> sortedKeys(List<QueryNode> children) {
+
+        String[] keys = new String[children.size()];
+
+        for (int i = 0; i < keys.length; i++) keys[i] = key(children.get(i));
+
+        Arrays.sort(keys);
+
+        return Arrays.asList(keys);
+    }
+
+    /**
+     * Finds the generation number of the index as it is now. An index seen with a different generation before, or
+     * one that pushes out the least recently searched index, has its results dropped.
+     */
+    private int generationOf(SearchIndex index) {
+
+        long generation = index.generation();
+        int slot = -1;
+
+        for (int i = 0; i < generations.length; i++) {
+            if (generations[i] != null && generations[i].get() == index) slot = i;
+        }
+
+        if (slot >= 0 && generations[slot].generation == generation) {
+            Generation used = generations[slot];
+            System.arraycopy(generations, 0, generations, 1, slot);
+            generations[0] = used;
+            return used.number;
+        }
+
+        if (slot < 0) slot = freeSlot();
+        if (generations[slot] != null) drop(generations[slot].number);
+
+        System.arraycopy(generations, 0, generations, 1, slot);
+        generations[0] = new Generation(index, generation, nextGeneration++);
+
+        return generations[0].number;
+    }
+
+    /**
+     * @return the slot of an index that was collected, or else the one of the least recently searched index
+     */
+    private int freeSlot() {
+
+        for (int i = 0; i < generations.length; i++) {
+            if (generations[i] == null || generations[i].get() == null) return i;
+        }
+        return generations.length - 1;
+    }
+
+    private boolean isCurrent(int number) {
+
+        for (Generation generation : generations) {
+            if (generation != null && generation.number == number) return true;
+        }
+        return false;
+    }
+
+    private void drop(int number) {
+
+        String prefix = number + ":";
+
+        for (Iterator<Map.Entry<String, Entry<V>>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Entry<V>> entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                bytes -= entry.getValue().size;
+                it.remove();
+            }
+        }
+    }
+
+    private void evict() {
+
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+
+        while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+            bytes -= eldest.next().size;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+
+    private static class Entry<V> {
+
+        final V value;
+        final long size;
+
+        Entry(V value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    private static class Generation extends WeakReference<SearchIndex> {
+
+        final long generation;
+        final int number;
+
+        Generation(SearchIndex index, long generation, int number) {
+            super(index);
+            this.generation = generation;
+            this.number = number;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package Query;
+
+import Index.PostingList;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Intersects and unites sorted posting lists by merging them.
+ * The input lists are only read, so no posting list is ever copied; the only allocation is the result list.
+ */
+public class QueryEvaluator {
+
+    private static final Comparator<PostingList> BY_SIZE = new Comparator<PostingList>() {
+        public int compare(PostingList one, PostingList two) {
+            return Integer.compare(one.size(), two.size());
+        }
+    };
+
+    private static final int MAX_MERGED_LISTS = 8;
+
+    private QueryEvaluator() {}
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Returns the ids present in every list.
+     * The lists are visited smallest first: every id of the smallest list is looked up in the others by galloping
+     * forward from the previous match, so the cost is bounded by the smallest list rather than the largest.
+     *
+     * @param lists
+     * @return
+     */
+    public static PostingList and(PostingList... lists) {
+
+        if (lists.length == 0) return new PostingList(new int[0], 0);
+
+        lists = lists.clone();
+        Arrays.sort(lists, BY_SIZE);
+
+        PostingList smallest = lists[0];
+        int[] result = new int[smallest.size()];
+        int count = 0;
+        int[] positions = new int[lists.length];
+
+        candidates:
+        for (int i = 0; i < smallest.size(); i++)
+        {
+            int doc = smallest.get(i);
+
+            for (int l = 1; l < lists.length; l++)
+            {
+                PostingList list = lists[l];
+                int position = list.seek(positions[l], doc);
+                positions[l] = position;
+
+                if (position == list.size()) break candidates; // one of the lists is exhausted, nothing more can match
+
+                if (list.get(position) != doc) continue candidates;
+            }
+            result[count++] = doc;
+        }
+        return new PostingList(result, count);
+    }
+
+    /**
+     * Returns the ids present in at least one of the lists, merging all of them in a single pass.
+     * Many lists, e.g. from a wildcard, are collected in a bitmap instead, which costs one pass over the postings
+     * plus one over the bitmap.
+     *
+     * @param lists
+     * @return
+     */
+    public static PostingList or(PostingList... lists) {
+
+        if (lists.length == 1) return lists[0];
+
+        if (lists.length == 2) return or(lists[0], lists[1]);
+
+        if (lists.length > MAX_MERGED_LISTS) return orByBitmap(lists);
+
+        int total = 0;
+        for (PostingList list : lists) total += list.size();
+
+        int[] result = new int[total];
+        int count = 0;
+        int[] positions = new int[lists.length];
+
+        while (true)
+        {
+            int next = Integer.MAX_VALUE;
+            boolean exhausted = true;
+
+            for (int l = 0; l < lists.length; l++) {
+                if (positions[l] < lists[l].size()) {
+                    exhausted = false;
+                    next = Math.min(next, lists[l].get(positions[l]));
+                }
+            }
+
+            if (exhausted) break;
+
+            result[count++] = next;
+
+            for (int l = 0; l < lists.length; l++) {
+                if (positions[l] < lists[l].size() && lists[l].get(positions[l]) == next) positions[l]++;
+            }
+        }
+        return new PostingList(result, count);
+    }
+
+    /**
+     * Returns the ids present in either list.
+     *
+     * @param one
+     * @param two
+     * @return
+     */
+    public static PostingList or(PostingList one, PostingList two) {
+
+        int[] result = new int[one.size() + two.size()];
+        int count = 0;
+        int i = 0, j = 0;
+
+        while (i < one.size() && j < two.size())
+        {
+            int a = one.get(i), b = two.get(j);
+
+            if (a < b) { result[count++] = a; i++; }
+            else if (a > b) { result[count++] = b; j++; }
+            else { result[count++] = a; i++; j++; }
+        }
+        while (i < one.size()) result[count++] = one.get(i++);
+        while (j < two.size()) result[count++] = two.get(j++);
+
+        return new PostingList(result, count);
+    }
+
+    /**
+     * Returns the ids of include that are not in exclude.
+     *
+     * @param include
+     * @param exclude
+     * @return
+     */
+    public static PostingList andNot(PostingList include, PostingList exclude) {
+
+        int[] result = new int[include.size()];
+        int count = 0;
+        int position = 0;
+
+        for (int i = 0; i < include.size(); i++)
+        {
+            int doc = include.get(i);
+            position = exclude.seek(position, doc);
+
+            if (position == exclude.size() || exclude.get(position) != doc) result[count++] = doc;
+        }
+        return new PostingList(result, count);
+    }
+
+    /**
+     * Returns every id from 0 up to, but not including, count. Used to evaluate NOT on its own.
+     *
+     * @param count
+     * @return
+     */
+    public static PostingList all(int count) {
+
+        int[] result = new int[count];
+
+        for (int i = 0; i < count; i++) result[i] = i;
+
+        return new PostingList(result, count);
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    private static PostingList orByBitmap(PostingList[] lists) {
+
+        int max = -1;
+        for (PostingList list : lists) if (!list.isEmpty()) max = Math.max(max, list.get(list.size() - 1));
+
+        long[] bitmap = new long[(max >> 6) + 1];
+        int count = 0;
+
+        for (PostingList list : lists) {
+            for (int i = 0; i < list.size(); i++) {
+                int doc = list.get(i);
+                long bit = 1L << doc;  // shifts use the low 6 bits
+                if ((bitmap[doc >> 6] & bit) == 0) { bitmap[doc >> 6] |= bit; count++; }
+            }
+        }
+
+        int[] result = new int[count];
+        int position = 0;
+
+        for (int word = 0; word < bitmap.length; word++) {
+            long bits = bitmap[word];
+            while (bits != 0) {
+                result[position++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return new PostingList(result, count);
+    }
+}
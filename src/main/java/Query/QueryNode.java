@@ -0,0 +1,25 @@
+package Query;
+
+import Index.SearchIndex;
+import Index.PostingList;
+
+/**
+ * A node of a compiled query plan. Plans are immutable and do not refer to any index,
+ * so the same plan can be cached and evaluated against any index.
+ */
+public abstract class QueryNode {
+
+    /**
+     * Evaluates the node against the index.
+     *
+     * @param index
+     * @return the matching document ids, or null if the query depends on words that are not in the index
+     */
+    public abstract PostingList evaluate(SearchIndex index);
+
+    /**
+     * @param index
+     * @return an upper bound of the number of documents the node can match, without evaluating it
+     */
+    public abstract long estimate(SearchIndex index);
+}
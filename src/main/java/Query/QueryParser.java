@@ -0,0 +1,240 @@
+package Query;
+
+import Index.Analyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a query string into a plan tree.
+ *
+ * Grammar, from lowest to highest precedence:
+ *   query  := and ( "OR" and )*
+ *   and    := unary ( ["AND"] unary )*       adjacent words are implicitly AND'ed
+ *   unary  := "NOT" unary | "(" query ")" | '"' word+ '"' | word | prefix "*"
+ *
+ * Operators are only recognised in upper case, so "and" and "or" can still be searched for.
+ * Words go through the same analyzer as the pages did when they were indexed. A word the analyzer splits, such as
+ * "e-mail", becomes a phrase, and a word it drops entirely, such as a lone comma, is left out of the query.
+ * The parser is lenient: dangling operators and unbalanced parentheses or quotes are ignored instead of failing the query.
+ */
+public class QueryParser {
+
+    private static final String OPEN = "(";
+    private static final String CLOSE = ")";
+    private static final String QUOTE = "\"";
+
+    private List<String> tokens;
+    private int position;
+    private final Analyzer analyzer;
+
+    private QueryParser(List<String> tokens, Analyzer analyzer) {
+        this.tokens = tokens;
+        this.analyzer = analyzer;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * @param query
+     * @return the plan, or null if the query contains no words
+     */
+    public static QueryNode parse(String query) {
+        return parse(query, Analyzer.STANDARD);
+    }
+
+    /**
+     * @param query
+     * @param analyzer the analyzer the index was built with
+     * @return the plan, or null if the query contains no words
+     */
+    public static QueryNode parse(String query, Analyzer analyzer) {
+
+        QueryParser parser = new QueryParser(tokenize(query), analyzer);
+        QueryNode root = null;
+
+        while (parser.position < parser.tokens.size()) {  // a stray ")" ends parseOr early, skip it and carry on
+            QueryNode node = parser.parseOr();
+            if (node != null) root = (root == null) ? node : and(root, node);
+            if (parser.position < parser.tokens.size()) parser.position++;
+        }
+        return root;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    private QueryNode parseOr() {
+
+        List<QueryNode> children = new ArrayList<QueryNode>();
+
+        while (true)
+        {
+            QueryNode node = parseAnd();
+            if (node != null) children.add(node);
+
+            if (!accept("OR")) break;
+        }
+
+        if (children.isEmpty()) return null;
+
+        return (children.size() == 1) ? children.get(0) : new OrNode(flatten(children, OrNode.class));
+    }
+
+    private QueryNode parseAnd() {
+
+        List<QueryNode> children = new ArrayList<QueryNode>();
+
+        while (position < tokens.size())
+        {
+            String token = tokens.get(position);
+
+            if (token.equals("OR") || token.equals(CLOSE)) break;
+
+            if (token.equals("AND")) { position++; continue; }
+
+            QueryNode node = parseUnary();
+            if (node != null) children.add(node);
+        }
+
+        if (children.isEmpty()) return null;
+
+        return (children.size() == 1) ? children.get(0) : new AndNode(flatten(children, AndNode.class));
+    }
+
+    private QueryNode parseUnary() {
+
+        if (position >= tokens.size()) return null;
+
+        String token = tokens.get(position++);
+
+        if (token.equals("NOT")) {
+            QueryNode child = parseUnary();
+            return (child == null) ? null : new NotNode(child);
+        }
+
+        if (token.equals(OPEN)) {
+            QueryNode node = parseOr();
+            accept(CLOSE);
+            return node;
+        }
+
+        if (token.equals(QUOTE)) {
+            List<String> words = new ArrayList<String>();
+            while (position < tokens.size() && !tokens.get(position).equals(QUOTE)) {
+                String word = tokens.get(position++);
+                if (!word.equals(OPEN) && !word.equals(CLOSE)) words.addAll(analyzer.analyze(word));
+            }
+            accept(QUOTE);
+
+            if (words.isEmpty()) return null;
+
+            return (words.size() == 1) ? new TermNode(words.get(0)) : new PhraseNode(words);
+        }
+
+        if (token.equals(CLOSE)) { position--; return null; }
+
+        if (token.length() > 1 && token.endsWith("*")) return prefix(analyzer.analyze(token.substring(0, token.length() - 1)));
+
+        return words(analyzer.analyze(token));
+    }
+
+    /**
+     * @return the node for the words one query word was analysed into, or null if there are none
+     */
+    private static QueryNode words(List<String> words) {
+
+        if (words.isEmpty()) return null;
+
+        return (words.size() == 1) ? new TermNode(words.get(0)) : new PhraseNode(words);
+    }
+
+    /**
+     * The last of the words is the prefix, the ones before it have to be on the page as well.
+     */
+    private static QueryNode prefix(List<String> words) {
+
+        if (words.isEmpty()) return null;
+
+        QueryNode prefix = new PrefixNode(words.get(words.size() - 1));
+
+        if (words.size() == 1) return prefix;
+
+        List<QueryNode> children = new ArrayList<QueryNode>();
+        children.add(words(words.subList(0, words.size() - 1)));
+        children.add(prefix);
+
+        return new AndNode(children);
+    }
+
+    private boolean accept(String token) {
+
+        if (position < tokens.size() && tokens.get(position).equals(token)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Splits on whitespace. Parentheses and quotes at the start or end of a word are split off as separate tokens,
+     * so "(a OR b)" works without spaces around the parentheses.
+     */
+    private static List<String> tokenize(String query) {
+
+        List<String> tokens = new ArrayList<String>();
+
+        for (String part : query.trim().split("\\s+"))
+        {
+            int start = 0;
+            int end = part.length();
+            List<String> closing = new ArrayList<String>();
+
+            while (start < end && (part.charAt(start) == '(' || part.charAt(start) == '"')) {
+                tokens.add(String.valueOf(part.charAt(start++)));
+            }
+            while (end > start && (part.charAt(end - 1) == ')' || part.charAt(end - 1) == '"')) {
+                closing.add(0, String.valueOf(part.charAt(--end)));
+            }
+
+            if (start < end) tokens.add(part.substring(start, end));
+            tokens.addAll(closing);
+        }
+        return tokens;
+    }
+
+    private static QueryNode and(QueryNode one, QueryNode two) {
+
+        List<QueryNode> children = new ArrayList<QueryNode>();
+        children.add(one);
+        children.add(two);
+
+        return new AndNode(flatten(children, AndNode.class));
+    }
+
+    /**
+     * Pulls the children of nested nodes of the same type up, so "a AND (b AND c)" becomes a single AND of three.
+     */
+    private static List<QueryNode> flatten(List<QueryNode> children, Class<? extends QueryNode> type) {
+
+        List<QueryNode> flat = new ArrayList<QueryNode>(children.size());
+
+        for (QueryNode child : children) {
+            if (type == AndNode.class && child instanceof AndNode) flat.addAll(((AndNode) child).getChildren());
+            else if (type == OrNode.class && child instanceof OrNode) flat.addAll(((OrNode) child).getChildren());
+            else flat.add(child);
+        }
+        return flat;
+    }
+}
@@ -0,0 +1,115 @@
+package Query;
+
+import Index.Analyzer;
+import Index.SearchIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles query strings into plans and keeps the most recently used plans, so repeated queries are only parsed once.
+ * Plans only depend on the analyzer of the index; the cost based ordering of conjuncts happens when a plan is
+ * evaluated.
+ */
+public class QueryPlanner {
+
+    private static final int MAX_CACHED_PLANS = 512;
+
+    private static final Map<PlanKey, QueryNode> plans = new LinkedHashMap<PlanKey, QueryNode>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<PlanKey, QueryNode> eldest) {
+            return size() > MAX_CACHED_PLANS;
+        }
+    };
+
+    private QueryPlanner() {}
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * @param query
+     * @return the plan for the query, analysed by the standard analyzer, or null if the query contains no words
+     */
+    public static QueryNode compile(String query) {
+        return compile(query, Analyzer.STANDARD);
+    }
+
+    /**
+     * @param query
+     * @param analyzer the analyzer of the index the query is for
+     * @return the plan for the query, or null if the query contains no words
+     */
+    public static QueryNode compile(String query, Analyzer analyzer) {
+
+        PlanKey key = new PlanKey(query, analyzer);
+
+        synchronized (plans) {
+            if (plans.containsKey(key)) return plans.get(key);
+        }
+
+        QueryNode plan = QueryParser.parse(query, analyzer);
+
+        synchronized (plans) {
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Returns the nodes sorted by ascending estimated result size, so the most selective node is evaluated first.
+     *
+     * @param nodes
+     * @param index
+     * @return
+     */
+    public static List<QueryNode> orderByEstimate(List<QueryNode> nodes, final SearchIndex index) {
+
+        final Map<QueryNode, Long> estimates = new IdentityHashMap<QueryNode, Long>();
+
+        for (QueryNode node : nodes) estimates.put(node, node.estimate(index));
+
+        List<QueryNode> ordered = new ArrayList<QueryNode>(nodes);
+
+        Collections.sort(ordered, new Comparator<QueryNode>() {
+            public int compare(QueryNode one, QueryNode two) {
+                return Long.compare(estimates.get(one), estimates.get(two));
+            }
+        });
+        return ordered;
+    }
+
+
+    /**
+     * A query and the analyzer it was compiled with. Analyzers are compared by identity.
+     */
+    private static final class PlanKey {
+
+        final String query;
+        final Analyzer analyzer;
+
+        PlanKey(String query, Analyzer analyzer) {
+            this.query = query;
+            this.analyzer = analyzer;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof PlanKey && ((PlanKey) other).query.equals(query) && ((PlanKey) other).analyzer == analyzer;
+        }
+
+        @Override
+        public int hashCode() {
+            return query.hashCode() * 31 + System.identityHashCode(analyzer);
+        }
+    }
+}
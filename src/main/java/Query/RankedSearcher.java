@@ -0,0 +1,402 @@
+package Query;
+
+import Index.Bm25;
+import Index.InvertedIndex;
+import Index.PartitionedIndex;
+import Index.PostingList;
+import Index.SearchIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Returns the k best matches of a query, ranked by BM25.
+ *
+ * Queries made of words and OR are evaluated with block-max WAND: every posting list carries an upper bound of
+ * the score it can contribute, overall and per block of postings, and documents whose bounds cannot beat the
+ * k-th best score found so far are skipped without being scored. Queries using AND, NOT or phrases are
+ * evaluated as boolean queries first, and only the matches are scored.
+ *
+ * A ShardedIndex is searched on all of its shards at once, a SegmentedIndex on each of its segments in turn, with the
+ * block maxima of every part.
+ */
+public class RankedSearcher {
+
+    private static final int MAX_CACHED_RESULTS = 1024;
+    private static final long MAX_CACHED_BYTES = 16L << 20;
+
+    private static final QueryCache<List<SearchHit>> cache = new QueryCache<List<SearchHit>>(MAX_CACHED_RESULTS, MAX_CACHED_BYTES, hits -> 64 + 32L * hits.size());
+
+    private RankedSearcher() {}
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * @param query
+     * @param index
+     * @param k the maximum number of results
+     * @return the best matches, highest score first. The results of recent queries are cached.
+     */
+    public static List<SearchHit> search(String query, SearchIndex index, int k) {
+
+        QueryNode plan = QueryPlanner.compile(query, index.analyzer());
+
+        if (plan == null || k <= 0) return new ArrayList<SearchHit>();
+
+        return new ArrayList<SearchHit>(cache.get(k + ":" + QueryCache.key(plan), index.snapshot(), snapshot -> rank(plan, snapshot, k)));
+    }
+
+    /**
+     * Searches a map in the old word -> HashSet of urls format. The map is converted to an index on every call,
+     * so callers that search more than once convert it once with InvertedIndex.from() and search the index.
+     *
+     * @deprecated use search(query, InvertedIndex.from(hashMap), k) with the converted index kept
+     */
+    @Deprecated
+    public static List<SearchHit> search(String query, Map<String, ? extends Collection<String>> hashMap, int k) {
+        return search(query, (SearchIndex) InvertedIndex.from(hashMap), k);
+    }
+
+    /**
+     * An InvertedIndex is both a LinkedHashMap and a SearchIndex, this overload picks the latter.
+     */
+    public static List<SearchHit> search(String query, InvertedIndex index, int k) {
+        return search(query, (SearchIndex) index, k);
+    }
+
+    /**
+     * @return the cache of ranked results, for its hit and miss counts
+     */
+    public static QueryCache<List<SearchHit>> getCache() {
+        return cache;
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Ranks the matches of the plan in the index. A sharded or segmented index ranks each of its parts and keeps the
+     * k best of their results.
+     */
+    private static List<SearchHit> rank(QueryNode plan, SearchIndex index, int k) {
+
+        if (index instanceof PartitionedIndex) return merge(((PartitionedIndex) index).scatter(part -> rank(plan, part, k)), k);
+
+        Set<String> words = new LinkedHashSet<String>();
+        collectWords(plan, index, words);
+
+        TopDocs top = new TopDocs(k);
+
+        if (isDisjunction(plan)) {
+            searchDisjunction(index, words, top);
+        } else {
+            PostingList matches = plan.evaluate(index);
+            if (matches != null) scoreMatches(index, words, matches, top);
+        }
+        return top.toHits(index);
+    }
+
+    /**
+     * Merges result lists that are sorted by score into the k best results.
+     */
+    private static List<SearchHit> merge(List<List<SearchHit>> lists, int k) {
+
+        List<SearchHit> merged = new ArrayList<SearchHit>(k);
+        int[] positions = new int[lists.size()];
+
+        while (merged.size() < k) {
+            int best = -1;
+            for (int i = 0; i < lists.size(); i++) {
+                if (positions[i] == lists.get(i).size()) continue;
+                if (best < 0 || lists.get(i).get(positions[i]).getScore() > lists.get(best).get(positions[best]).getScore()) best = i;
+            }
+            if (best < 0) break;
+            merged.add(lists.get(best).get(positions[best]++));
+        }
+        return merged;
+    }
+
+    /**
+     * Block-max WAND over the posting lists of the words.
+     */
+    private static void searchDisjunction(SearchIndex index, Set<String> words, TopDocs top) {
+
+        List<Cursor> list = new ArrayList<Cursor>();
+
+        for (String word : words) {
+            PostingList postings = index.postings(word);
+            if (postings != null && !postings.isEmpty()) list.add(new Cursor(postings, index.documentFrequency(word), index, index.hasScoreBounds()));
+        }
+
+        Cursor[] cursors = list.toArray(new Cursor[list.size()]);
+
+        while (true)
+        {
+            sortByDoc(cursors);
+
+            // The pivot is the first cursor at which the summed upper bounds beat the threshold.
+            // Documents before the pivot document only occur in lists whose bounds cannot beat it.
+            float threshold = top.threshold();
+            float bound = 0;
+            int pivot = -1;
+
+            for (int i = 0; i < cursors.length && cursors[i].doc() != Cursor.END; i++) {
+                bound += cursors[i].maxScore;
+                if (bound > threshold) { pivot = i; break; }
+            }
+
+            if (pivot < 0) return;
+
+            int pivotDoc = cursors[pivot].doc();
+
+            while (pivot + 1 < cursors.length && cursors[pivot + 1].doc() == pivotDoc) pivot++;
+
+            if (cursors[0].doc() != pivotDoc) {
+                for (int i = 0; i < pivot && cursors[i].doc() < pivotDoc; i++) cursors[i].seek(pivotDoc);
+                continue;
+            }
+
+            // All cursors up to the pivot are on the pivot document. If the bounds of their current blocks
+            // cannot beat the threshold, nothing before the end of the first of those blocks can.
+            float blockBound = 0;
+            for (int i = 0; i <= pivot; i++) blockBound += cursors[i].blockMaxScore();
+
+            if (top.isFull() && blockBound <= threshold) {
+                int next = (pivot + 1 < cursors.length) ? cursors[pivot + 1].doc() : Cursor.END;
+                for (int i = 0; i <= pivot; i++) next = Math.min(next, cursors[i].blockLastDoc() + 1);
+                next = Math.max(next, pivotDoc + 1);
+                for (int i = 0; i <= pivot; i++) cursors[i].seek(next);
+                continue;
+            }
+
+            float score = 0;
+            for (int i = 0; i <= pivot; i++) {
+                score += cursors[i].score();
+                cursors[i].next();
+            }
+            top.offer(pivotDoc, score);
+        }
+    }
+
+    /**
+     * Scores the documents matched by a boolean query. The matches are sorted, so every posting list is read
+     * front to back once.
+     */
+    private static void scoreMatches(SearchIndex index, Set<String> words, PostingList matches, TopDocs top) {
+
+        List<Cursor> cursors = new ArrayList<Cursor>();
+
+        for (String word : words) {
+            PostingList postings = index.postings(word);
+            if (postings != null) cursors.add(new Cursor(postings, index.documentFrequency(word), index, false));
+        }
+
+        for (int i = 0; i < matches.size(); i++)
+        {
+            int doc = matches.get(i);
+            float score = 0;
+
+            for (Cursor cursor : cursors) {
+                cursor.seek(doc);
+                if (cursor.doc() == doc) score += cursor.score();
+            }
+            top.offer(doc, score);
+        }
+    }
+
+    /**
+     * @return true if the plan is a word, a wildcard or an OR of those, which can be ranked without evaluating it first
+     */
+    private static boolean isDisjunction(QueryNode plan) {
+
+        if (plan instanceof TermNode || plan instanceof PrefixNode) return true;
+
+        if (!(plan instanceof OrNode)) return false;
+
+        for (QueryNode child : ((OrNode) plan).getChildren()) {
+            if (!(child instanceof TermNode || child instanceof PrefixNode)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Collects the words that contribute to the score, which are all words except the negated ones.
+     */
+    private static void collectWords(QueryNode node, SearchIndex index, Set<String> words) {
+
+        if (node instanceof TermNode) {
+            words.add(((TermNode) node).getWord());
+        } else if (node instanceof PrefixNode) {
+            words.addAll(((PrefixNode) node).expand(index));
+        } else if (node instanceof PhraseNode) {
+            words.addAll(((PhraseNode) node).getWords());
+        } else if (node instanceof AndNode) {
+            for (QueryNode child : ((AndNode) node).getChildren()) collectWords(child, index, words);
+        } else if (node instanceof OrNode) {
+            for (QueryNode child : ((OrNode) node).getChildren()) collectWords(child, index, words);
+        }
+    }
+
+    /**
+     * Insertion sort, the number of cursors is the number of query words and they are nearly sorted between rounds.
+     */
+    private static void sortByDoc(Cursor[] cursors) {
+        for (int i = 1; i < cursors.length; i++) {
+            Cursor cursor = cursors[i];
+            int j = i - 1;
+            while (j >= 0 && cursors[j].doc() > cursor.doc()) {
+                cursors[j + 1] = cursors[j];
+                j--;
+            }
+            cursors[j + 1] = cursor;
+        }
+    }
+
+    /**
+     * Iterates a posting list and scores its current posting.
+     */
+    private static class Cursor {
+
+        static final int END = Integer.MAX_VALUE;
+
+        final PostingList postings;
+        final SearchIndex index;
+        final float idf;
+        final float averageLength;
+        final boolean hasBlocks;
+        final float maxScore;
+        int position;
+
+        Cursor(PostingList postings, int documentFrequency, SearchIndex index, boolean hasBlocks) {
+            this.postings = postings;
+            this.index = index;
+            this.idf = Bm25.idf(documentFrequency, index.collectionSize());
+            this.averageLength = index.averageDocumentLength();
+            this.hasBlocks = hasBlocks && postings.hasBlockMaxWeights();
+            this.maxScore = idf * (this.hasBlocks ? postings.maxWeight() : 1f);  // weights never reach 1
+        }
+
+        int doc() {
+            return (position < postings.size()) ? postings.get(position) : END;
+        }
+
+        void next() {
+            position++;
+        }
+
+        void seek(int doc) {
+            position = postings.seek(position, doc);
+        }
+
+        float score() {
+            int doc = postings.get(position);
+            return idf * Bm25.weight(postings.frequency(position), index.documentLength(doc), averageLength);
+        }
+
+        float blockMaxScore() {
+            return hasBlocks ? idf * postings.blockMaxWeight(position / PostingList.BLOCK_SIZE) : maxScore;
+        }
+
+        int blockLastDoc() {
+            if (!hasBlocks) return doc();
+            int last = Math.min(postings.size(), (position / PostingList.BLOCK_SIZE + 1) * PostingList.BLOCK_SIZE) - 1;
+            return postings.get(last);
+        }
+    }
+
+    /**
+     * A bounded min-heap of the k best documents seen so far.
+     */
+    private static class TopDocs {
+
+        final int[] docs;
+        final float[] scores;
+        int size;
+
+        TopDocs(int k) {
+            docs = new int[k];
+            scores = new float[k];
+        }
+
+        boolean isFull() {
+            return size == docs.length;
+        }
+
+        /**
+         * @return the score a document has to beat to get in, or -1 while the heap is not full
+         */
+        float threshold() {
+            return isFull() ? scores[0] : -1;
+        }
+
+        void offer(int doc, float score) {
+
+            if (!isFull()) {
+                docs[size] = doc;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (score > scores[0]) {
+                docs[0] = doc;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        List<SearchHit> toHits(SearchIndex index) {
+
+            List<SearchHit> hits = new ArrayList<SearchHit>(size);
+
+            while (size > 0) {  // pop the lowest score first, then reverse
+                hits.add(new SearchHit(index.url(docs[0]), scores[0]));
+                size--;
+                docs[0] = docs[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+            Collections.reverse(hits);
+            return hits;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (scores[parent] <= scores[i]) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1, right = left + 1;
+                if (left < size && scores[left] < scores[smallest]) smallest = left;
+                if (right < size && scores[right] < scores[smallest]) smallest = right;
+                if (smallest == i) break;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int doc = docs[i]; docs[i] = docs[j]; docs[j] = doc;
+            float score = scores[i]; scores[i] = scores[j]; scores[j] = score;
+        }
+    }
+}
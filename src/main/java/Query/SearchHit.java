@@ -0,0 +1,28 @@
+package Query;
+
+/**
+ * A ranked search result.
+ */
+public class SearchHit {
+
+    private final String url;
+    private final float score;
+
+    public SearchHit(String url, float score) {
+        this.url = url;
+        this.score = score;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return url + " (" + String.format("%.3f", score) + ")";
+    }
+}
@@ -0,0 +1,30 @@
+package Query;
+
+import Index.SearchIndex;
+import Index.PostingList;
+
+public class TermNode extends QueryNode {
+
+    private final String word;
+
+    public TermNode(String word) {
+        this.word = word;
+    }
+
+    public String getWord() {
+        return word;
+    }
+
+    public PostingList evaluate(SearchIndex index) {
+        return index.postings(word);
+    }
+
+    public long estimate(SearchIndex index) {
+        return index.documentFrequency(word);
+    }
+
+    @Override
+    public String toString() {
+        return word;
+    }
+}
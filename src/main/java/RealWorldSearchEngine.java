@@ -1,3 +1,8 @@
+import Index.InvertedIndex;
+import Index.SegmentedIndex;
+import Query.RankedSearcher;
+import Query.SearchHit;
+
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
@@ -8,8 +13,10 @@ import java.util.*;
 
 public class RealWorldSearchEngine extends JFrame {
     
-    private LinkedHashMap<String, HashSet> localIndex;
-    private LinkedHashMap<String, HashSet> webIndex;
+    private static final int MAX_RESULTS = 20;
+
+    private InvertedIndex localIndex;
+    private SegmentedIndex webIndex = new SegmentedIndex();    // pages become searchable while the crawl runs
     private JTextField searchField;
     private JTextArea resultsArea;
     private JLabel statusLabel;
@@ -27,7 +34,7 @@ public class RealWorldSearchEngine extends JFrame {
     private Color webColor = new Color(138, 43, 226);
     
     public RealWorldSearchEngine() {
-        crawler = new WebCrawler();
+        crawler = new WebCrawler(webIndex.analyzer());
         initializeComponents();
         setupLayout();
         setupEventHandlers();
@@ -150,8 +157,8 @@ public class RealWorldSearchEngine extends JFrame {
     private void loadLocalDataset() {
         String dataset = (String) datasetCombo.getSelectedItem();
         
-        SwingWorker<LinkedHashMap<String, HashSet>, Void> worker = new SwingWorker<LinkedHashMap<String, HashSet>, Void>() {
-            protected LinkedHashMap<String, HashSet> doInBackground() throws Exception {
+        SwingWorker<InvertedIndex, Void> worker = new SwingWorker<InvertedIndex, Void>() {
+            protected InvertedIndex doInBackground() throws Exception {
                 SwingUtilities.invokeLater(() -> {
                     progressBar.setVisible(true);
                     progressBar.setIndeterminate(true);
@@ -187,28 +194,26 @@ public class RealWorldSearchEngine extends JFrame {
             return;
         }
         
-        SwingWorker<LinkedHashMap<String, HashSet>, Void> worker = new SwingWorker<LinkedHashMap<String, HashSet>, Void>() {
-            protected LinkedHashMap<String, HashSet> doInBackground() throws Exception {
+        SwingWorker<Integer, Void> worker = new SwingWorker<Integer, Void>() {
+            protected Integer doInBackground() throws Exception {
                 SwingUtilities.invokeLater(() -> {
                     progressBar.setVisible(true);
                     progressBar.setIndeterminate(true);
                     progressBar.setString("Crawling web data...");
                     statusLabel.setText("Crawling: " + url);
                 });
-                LinkedHashMap<String, HashSet<String>> crawlResult = crawler.crawlWebsite(url, 2);
-                LinkedHashMap<String, HashSet> result = new LinkedHashMap<>();
-                for (Map.Entry<String, HashSet<String>> entry : crawlResult.entrySet()) {
-                    result.put(entry.getKey(), entry.getValue());
-                }
-                return result;
+                // Pages are added to the web index as they are crawled, on top of the pages of earlier crawls
+                crawler.crawlWebsite(url, 2, (page, words) -> webIndex.addDocument(page, words));
+                webIndex.refresh();
+                return webIndex.wordCount();
             }
             
             protected void done() {
                 try {
-                    webIndex = get();
+                    int words = get();
                     progressBar.setVisible(false);
-                    if (webIndex != null) {
-                        statusLabel.setText("Web crawl completed: " + webIndex.size() + " words from live web data");
+                    if (webIndex.documentCount() > 0) {
+                        statusLabel.setText("Web crawl completed: " + words + " words from live web data");
                         statusLabel.setForeground(successColor);
                         
                         // Save web data
@@ -249,15 +254,14 @@ public class RealWorldSearchEngine extends JFrame {
                 
                 // Search local dataset
                 if (localIndex != null) {
-                    HashSet<String> localResults = Searcher.search(query, localIndex);
+                    java.util.List<SearchHit> localResults = RankedSearcher.search(query, localIndex, MAX_RESULTS);
                     results.append("LOCAL DATASET RESULTS:\n");
                     results.append("-".repeat(40)).append("\n");
-                    if (localResults != null && !localResults.isEmpty()) {
-                        results.append("Found ").append(localResults.size()).append(" results:\n");
+                    if (!localResults.isEmpty()) {
+                        results.append("Top ").append(localResults.size()).append(" results:\n");
                         int count = 1;
-                        for (String url : localResults) {
-                            results.append(count++).append(". ").append(url).append("\n");
-                            if (count > 20) break;
+                        for (SearchHit hit : localResults) {
+                            results.append(count++).append(". ").append(hit).append("\n");
                         }
                     } else {
                         results.append("No results found in local dataset.\n");
@@ -266,16 +270,15 @@ public class RealWorldSearchEngine extends JFrame {
                 }
                 
                 // Search web data
-                if (webIndex != null) {
-                    HashSet<String> webResults = Searcher.search(query, webIndex);
+                if (webIndex.documentCount() > 0) {
+                    java.util.List<SearchHit> webResults = RankedSearcher.search(query, webIndex, MAX_RESULTS);
                     results.append("LIVE WEB DATA RESULTS:\n");
                     results.append("-".repeat(40)).append("\n");
-                    if (webResults != null && !webResults.isEmpty()) {
-                        results.append("Found ").append(webResults.size()).append(" results from crawled web data:\n");
+                    if (!webResults.isEmpty()) {
+                        results.append("Top ").append(webResults.size()).append(" results from crawled web data:\n");
                         int count = 1;
-                        for (String url : webResults) {
-                            results.append(count++).append(". ").append(url).append("\n");
-                            if (count > 20) break;
+                        for (SearchHit hit : webResults) {
+                            results.append(count++).append(". ").append(hit).append("\n");
                         }
                     } else {
                         results.append("No results found in web data.\n");
@@ -297,8 +300,8 @@ public class RealWorldSearchEngine extends JFrame {
                 results.append("• Query: \"").append(query).append("\"\n");
                 results.append("• Search time: ").append(new Date()).append("\n");
                 results.append("• Local index size: ").append(localIndex != null ? localIndex.size() : 0).append(" words\n");
-                results.append("• Web index size: ").append(webIndex != null ? webIndex.size() : 0).append(" words\n");
-                results.append("• Total searchable content: ").append((localIndex != null ? localIndex.size() : 0) + (webIndex != null ? webIndex.size() : 0)).append(" unique words\n");
+                results.append("• Web index size: ").append(webIndex.wordCount()).append(" words in ").append(webIndex.segmentCount()).append(" segments\n");
+                results.append("• Total searchable content: ").append((localIndex != null ? localIndex.size() : 0) + webIndex.wordCount()).append(" unique words\n");
                 
                 return results.toString();
             }
@@ -0,0 +1,298 @@
+import Infrastructure.ShardProtocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Searches a corpus that is split between ShardServer processes, each serving one part of it.
+ *
+ * A query is sent to every part at once and the urls of the parts are united, which finds the same pages as
+ * Searcher on the whole corpus. Only a query without results can be answered differently: a part that lacks a
+ * word the query needs answers null, so "other AND more" is null when the two words are in different parts,
+ * where Searcher gives an empty set. Every part can have replicas, servers loaded with the same part. If a server does
+ * not answer within the timeout, or its connection fails, the query is sent to the next replica of the part. If no
+ * replica answers, the results of the other parts are returned, marked as partial.
+ *
+ * Connections are kept open and reused between queries.
+ *
+ * A cluster of two parts with two replicas each, on loopback:
+ * java ShardServer ../../../TestInput/itcwww-medium.txt 0 2 7001
+ * java ShardServer ../../../TestInput/itcwww-medium.txt 0 2 7002
+ * java ShardServer ../../../TestInput/itcwww-medium.txt 1 2 7003
+ * java ShardServer ../../../TestInput/itcwww-medium.txt 1 2 7004
+ * java SearchCoordinator 500 localhost:7001,localhost:7002 localhost:7003,localhost:7004
+ */
+public class SearchCoordinator implements Closeable {
+
+    private final List<Replica[]> parts = new ArrayList<Replica[]>();
+    private final int timeout;
+    private final ExecutorService requests;
+
+    /**
+     * @param parts the servers of every part, the replicas of a part in the order they are tried
+     * @param timeout milliseconds to wait for a server to connect and to answer
+     */
+    public SearchCoordinator(List<List<InetSocketAddress>> parts, int timeout) {
+
+        for (List<InetSocketAddress> servers : parts) {
+            Replica[] replicas = new Replica[servers.size()];
+            for (int i = 0; i < replicas.length; i++) replicas[i] = new Replica(servers.get(i));
+            this.parts.add(replicas);
+        }
+        this.timeout = timeout;
+        this.requests = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "coordinator-request");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java SearchCoordinator <timeout_ms> <host:port[,replica...]> [<host:port[,replica...]> ...]");
+            System.out.println("Example: java SearchCoordinator 500 localhost:7001,localhost:7002 localhost:7003");
+            return;
+        }
+
+        List<List<InetSocketAddress>> parts = new ArrayList<List<InetSocketAddress>>();
+
+        for (int i = 1; i < args.length; i++) {
+            List<InetSocketAddress> replicas = new ArrayList<InetSocketAddress>();
+            for (String server : args[i].split(",")) {
+                int colon = server.lastIndexOf(':');
+                replicas.add(new InetSocketAddress(server.substring(0, colon), Integer.parseInt(server.substring(colon + 1))));
+            }
+            parts.add(replicas);
+        }
+
+        try (SearchCoordinator coordinator = new SearchCoordinator(parts, Integer.parseInt(args[0]));
+             Scanner scanner = new Scanner(System.in))
+        {
+            System.out.println("Searching " + parts.size() + " parts. Enter search queries (or 'quit' to exit):");
+
+            while (scanner.hasNextLine()) {
+                String query = scanner.nextLine().trim();
+
+                if (query.equalsIgnoreCase("quit") || query.equalsIgnoreCase("exit")) break;
+                if (query.isEmpty()) continue;
+
+                Result result = coordinator.search(query);
+
+                if (result.getUrls() == null || result.getUrls().isEmpty()) System.out.println("No results found.");
+                else for (String url : result.getUrls()) System.out.println(url);
+
+                if (result.isPartial()) {
+                    System.out.println("Partial results: " + result.getMissingParts() + " of " + parts.size() + " parts did not answer.");
+                }
+                System.out.println();
+            }
+        }
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Searches every part. See Searcher.search() for the queries understood.
+     *
+     * @param query
+     * @return the urls of the matching pages of the parts that answered
+     */
+    public Result search(String query) {
+
+        List<Future<HashSet<String>>> pending = new ArrayList<Future<HashSet<String>>>(parts.size());
+
+        for (Replica[] replicas : parts) pending.add(requests.submit(() -> search(replicas, query)));
+
+        // every attempt is bounded by the timeout, this only guards against a server that answers too slowly
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(2L * timeout * maxReplicas());
+        HashSet<String> urls = null;
+        int missing = 0;
+
+        for (Future<HashSet<String>> future : pending) {
+            try {
+                HashSet<String> part = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (part == null) continue;
+                if (urls == null) urls = part;
+                else urls.addAll(part);
+            }
+            catch (ExecutionException | TimeoutException e) {
+                future.cancel(true);
+                missing++;
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                missing++;
+            }
+        }
+        return new Result(urls, missing);
+    }
+
+    /**
+     * Closes the connections to the servers.
+     */
+    public void close() {
+        requests.shutdownNow();
+        for (Replica[] replicas : parts)
+            for (Replica replica : replicas) replica.close();
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Tries the replicas of a part in turn.
+     *
+     * @return the urls, or null if the part does not know the words of the query
+     * @throws IOException if no replica answered
+     */
+    private HashSet<String> search(Replica[] replicas, String query) throws IOException {
+
+        IOException failure = new IOException("The part has no servers");
+
+        for (Replica replica : replicas) {
+            try {
+                return replica.search(query, timeout);
+            }
+            catch (IOException e) {
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    private int maxReplicas() {
+
+        int max = 1;
+
+        for (Replica[] replicas : parts) max = Math.max(max, replicas.length);
+
+        return max;
+    }
+
+
+    /**
+     * The results of a search, and how many parts are missing from them.
+     */
+    public static class Result {
+
+        private final HashSet<String> urls;
+        private final int missingParts;
+
+        Result(HashSet<String> urls, int missingParts) {
+            this.urls = urls;
+            this.missingParts = missingParts;
+        }
+
+        /**
+         * @return the urls, or null if no part that answered knows all the words the query needs on its own
+         */
+        public HashSet<String> getUrls() {
+            return urls;
+        }
+
+        public int getMissingParts() {
+            return missingParts;
+        }
+
+        /**
+         * @return true if some parts did not answer, so pages of theirs may be missing
+         */
+        public boolean isPartial() {
+            return missingParts > 0;
+        }
+    }
+
+    /**
+     * One server, with the connections to it that are not in use.
+     */
+    private static class Replica {
+
+        final InetSocketAddress address;
+        final ConcurrentLinkedQueue<Connection> idle = new ConcurrentLinkedQueue<Connection>();
+
+        Replica(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        HashSet<String> search(String query, int timeout) throws IOException {
+
+            Connection connection = idle.poll();
+            if (connection == null) connection = new Connection(address, timeout);
+
+            try {
+                connection.socket.setSoTimeout(timeout);
+                ShardProtocol.writeRequest(connection.out, ShardProtocol.SEARCH, query);
+                HashSet<String> urls = ShardProtocol.readResults(connection.in);
+                idle.add(connection);
+                return urls;
+            }
+            catch (IOException e) {
+                connection.close();   // it may still receive the late answer, so it cannot be reused
+                throw e;
+            }
+        }
+
+        void close() {
+            for (Connection connection; (connection = idle.poll()) != null; ) connection.close();
+        }
+    }
+
+    private static class Connection {
+
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Connection(InetSocketAddress address, int timeout) throws IOException {
+            socket = new Socket();
+            try {
+                socket.connect(address, timeout);
+                socket.setTcpNoDelay(true);
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            }
+            catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            }
+            catch (IOException e) {
+                // nothing left to do with it
+            }
+        }
+    }
+}
@@ -1,27 +1,28 @@
+import Index.SearchIndex;
+
 import java.io.IOException;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 
 public class SearchDemo {
     
     public static void main(String[] args) throws IOException {
         if (args.length != 1) {
-            System.out.println("Usage: java SearchDemo <input_file>");
+            System.out.println("Usage: java SearchDemo <input_file|index_file>");
             return;
         }
         
         // Initialize the search index
         System.out.println("=== Java Search Engine Demo ===");
         System.out.println("Loading search index from: " + args[0]);
-        LinkedHashMap<String, HashSet> searchIndex = Setup.initialise(args[0]);
+        SearchIndex searchIndex = Setup.open(args[0]);
         
-        if (searchIndex == null || searchIndex.isEmpty()) {
+        if (searchIndex == null || searchIndex.wordCount() == 0) {
             System.out.println("Failed to load search index.");
             return;
         }
         
         System.out.println("Search index loaded successfully!");
-        System.out.println("Available words in index: " + searchIndex.size());
+        System.out.println("Available words in index: " + searchIndex.wordCount());
         System.out.println();
         
         // Demo queries
@@ -1,6 +1,8 @@
 
 import Crawler.Crawler;
-import Infrastructure.Filesystem;
+import Crawler.InvertedIndexSink;
+import Index.InvertedIndex;
+import Index.SearchIndex;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 
@@ -8,11 +10,9 @@ import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 
 public class SearchHandler<T> implements EventHandler<ActionEvent> {
 
-    private LinkedHashMap<String, HashSet> hashMap = Setup.getInstance();
     private TextArea resultText;
     private TextField searchTextField;
     private TextField urlTextField;
@@ -43,11 +43,12 @@ public class SearchHandler<T> implements EventHandler<ActionEvent> {
 
         if (urlTextField != null && pageTextField != null) handleCrawler();
 
-        HashSet<String> results = Searcher.search(searchQuery, hashMap);
+        SearchIndex index = Setup.getInstance();
+        HashSet<String> results = Searcher.search(searchQuery, index);
 
         if (results == null) {
             resultText.setText("The search did not find any results for '" + searchQuery + "'");
-            showSimilarWords(searchQuery);
+            showSimilarWords(index, searchQuery);
             return;
         }
 
@@ -63,10 +64,11 @@ public class SearchHandler<T> implements EventHandler<ActionEvent> {
 
     /**
      * show similar words
+     * @param index
      * @param searchQuery
      */
-    private void showSimilarWords(String searchQuery) {
-        HashSet<String> similarWords = SimilarWords.retrieveSimilarWords(hashMap, searchQuery);
+    private void showSimilarWords(SearchIndex index, String searchQuery) {
+        HashSet<String> similarWords = SimilarWords.retrieveSimilarWords(index, searchQuery);
         if (!similarWords.isEmpty()) { // If there are no similar words, don't try to display them
             resultText.appendText("\n ...but, I found these similar words: ");
             for (String similarWord: similarWords) {
@@ -76,17 +78,18 @@ public class SearchHandler<T> implements EventHandler<ActionEvent> {
     }
 
     /**
-     * Crawl the website and create the results HashMap
+     * Crawl the website into a new index and publish it in place of the loaded corpus. Pages are indexed as they are
+     * scraped, so there is nothing to load once the crawl is done.
      */
     private void handleCrawler() {
-        Filesystem.deleteFile("scrape");
-
         String url = urlTextField.getText();
         int numberOfPages = Integer.parseInt(pageTextField.getText());
 
-        Crawler crawler = new Crawler(url, numberOfPages);
+        InvertedIndex index = new InvertedIndex(true);
+
+        Crawler crawler = new Crawler(url, numberOfPages, Crawler.DEFAULT_PARALLELISM, new InvertedIndexSink(index));
         crawler.crawl();
 
-        Setup.initialise("files/scrape");
+        Setup.publish(index);
     }
 }
@@ -0,0 +1,384 @@
+import Index.SearchIndex;
+import Index.ShardedIndex;
+import Infrastructure.JsonWriter;
+import Query.QueryCache;
+import Query.RankedSearcher;
+import Query.SearchHit;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves the published index over HTTP, with JSON responses, for running the engine without a console or GUI:
+ *
+ * GET /search?q=query&k=10&offset=0   the k best pages from offset on, ranked by BM25
+ * GET /suggest?q=text                 completions of the last word of the text, and similar words if it is unknown
+ * GET /stats                          the size of the index and the request and cache counts
+ *
+ * Every request runs on a thread of its own: a virtual thread where the JVM has them (Java 21 and later), a pooled
+ * platform thread otherwise. Requests only read the published index, so they need no locks. Responses are
+ * written as they are encoded and sent chunked, which keeps the connection open for the next request.
+ */
+public class SearchServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_RESULTS = 10;
+    public static final int MAX_RESULTS = 1000;
+    public static final int MAX_OFFSET = 10000;
+    private static final int MAX_COMPLETIONS = 10;
+
+    static {
+        // Without it the small responses wait for the delayed ack of the previous packet, about 40 ms each
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long started = System.currentTimeMillis();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * @param port the port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public SearchServer(int port) throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        executor = threadPerRequest();
+
+        server.createContext("/search", handler(this::search));
+        server.createContext("/suggest", handler(this::suggest));
+        server.createContext("/stats", handler(this::stats));
+        server.createContext("/", handler((exchange, parameters, json) -> {
+            throw new RequestException(404, "Unknown path " + exchange.getRequestURI().getPath());
+        }));
+        server.setExecutor(executor);
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        int port = DEFAULT_PORT;
+        int shards = 0;
+        boolean positions = false;
+        String filename = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--port") && i + 1 < args.length) port = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--shards") && i + 1 < args.length) shards = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--positions")) positions = true;
+            else filename = args[i];
+        }
+
+        if (filename == null) {
+            System.out.println("Usage: java SearchServer [--port <port>] [--shards <n>] [--positions] <input_file|index_file>");
+            System.out.println("Example: java SearchServer --port 8080 TestInput/itcwww-medium.txt");
+            return;
+        }
+
+        SearchIndex index = (shards > 0) ? Setup.openSharded(filename, shards, positions) : Setup.open(filename, positions);
+
+        if (index.wordCount() == 0) {
+            System.out.println("Failed to load search index. Please check the input file.");
+            return;
+        }
+
+        SearchServer server = new SearchServer(port);
+        server.start();
+        System.out.println("Serving " + index.documentCount() + " pages on http://localhost:" + server.getPort() + "/search?q=");
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, and waits up to a second for the running ones.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    private void search(HttpExchange exchange, Map<String, String> parameters, JsonWriter json) throws IOException {
+
+        String query = required(parameters, "q");
+        int k = number(parameters, "k", DEFAULT_RESULTS, 1, MAX_RESULTS);
+        int offset = number(parameters, "offset", 0, 0, MAX_OFFSET);
+
+        List<SearchHit> hits = RankedSearcher.search(query, Setup.getInstance(), offset + k);
+
+        json.beginObject()
+                .name("query").value(query)
+                .name("offset").value(offset)
+                .name("hits").beginArray();
+
+        for (int i = offset; i < hits.size(); i++) {
+            json.beginObject()
+                    .name("url").value(hits.get(i).getUrl())
+                    .name("score").value(hits.get(i).getScore())
+                    .endObject();
+        }
+        json.endArray()
+                .name("more").value(hits.size() == offset + k)
+                .endObject();
+    }
+
+    /**
+     * Completes the last word of the text. Similar words are only looked up if the word is not in the index.
+     */
+    private void suggest(HttpExchange exchange, Map<String, String> parameters, JsonWriter json) throws IOException {
+
+        String text = required(parameters, "q");
+        SearchIndex index = Setup.getInstance();
+        List<String> words = index.analyzer().analyze(text);
+        String last = words.isEmpty() ? "" : words.get(words.size() - 1);
+
+        json.beginObject()
+                .name("query").value(text)
+                .name("completions").beginArray();
+
+        if (!last.isEmpty()) {
+            for (String completion : index.wordsWithPrefix(last, MAX_COMPLETIONS)) json.value(completion);
+        }
+        json.endArray()
+                .name("similar").beginArray();
+
+        if (!last.isEmpty() && index.documentFrequency(last) == 0) {
+            for (String similar : SimilarWords.retrieveSimilarWords(index, last)) json.value(similar);
+        }
+        json.endArray().endObject();
+    }
+
+    private void stats(HttpExchange exchange, Map<String, String> parameters, JsonWriter json) throws IOException {
+
+        SearchIndex index = Setup.getInstance();
+
+        json.beginObject()
+                .name("documents").value(index.documentCount())
+                .name("words").value(index.wordCount())
+                .name("shards").value((index instanceof ShardedIndex) ? ((ShardedIndex) index).shardCount() : 1)
+                .name("uptimeSeconds").value((System.currentTimeMillis() - started) / 1000)
+                .name("requests").value(requests.sum())
+                .name("errors").value(errors.sum());
+
+        cache(json.name("searchCache"), Searcher.getCache());
+        cache(json.name("rankedCache"), RankedSearcher.getCache());
+
+        json.endObject();
+    }
+
+    private static void cache(JsonWriter json, QueryCache<?> cache) throws IOException {
+        json.beginObject()
+                .name("entries").value(cache.size())
+                .name("bytes").value(cache.bytes())
+                .name("hits").value(cache.hits())
+                .name("misses").value(cache.misses())
+                .name("evictions").value(cache.evictions())
+                .endObject();
+    }
+
+    /**
+     * Wraps an endpoint: only GET is allowed, the query string is decoded, and the response is streamed as JSON.
+     * Bad parameters are answered with a status and an error message, as long as the endpoint checks them before
+     * it writes the first byte of its response.
+     */
+    private HttpHandler handler(final Endpoint endpoint) {
+        return exchange -> {
+            requests.increment();
+
+            try {
+                if (!exchange.getRequestMethod().equals("GET")) throw new RequestException(405, "Only GET is supported");
+
+                Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+                JsonWriter json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(new ResponseBody(exchange), StandardCharsets.UTF_8), 1 << 13));
+
+                endpoint.handle(exchange, parameters, json);
+                json.flush();
+            }
+            catch (RequestException e) {
+                errors.increment();
+                error(exchange, e.status, e.getMessage());
+            }
+            catch (RuntimeException e) {
+                errors.increment();
+                error(exchange, 500, e.toString());
+            }
+            finally {
+                exchange.close();
+            }
+        };
+    }
+
+    /**
+     * Sends an error, unless the response has been started already, in which case the connection is just closed.
+     */
+    private static void error(HttpExchange exchange, int status, String message) throws IOException {
+
+        if (exchange.getResponseCode() != -1) return;
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+
+        JsonWriter json = new JsonWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+        json.beginObject().name("error").value(message).endObject();
+        json.flush();
+    }
+
+    static Map<String, String> parameters(String rawQuery) throws UnsupportedEncodingException {
+
+        Map<String, String> parameters = new HashMap<String, String>();
+
+        if (rawQuery == null) return parameters;
+
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals < 0) parameters.put(decode(pair), "");
+            else parameters.put(decode(pair.substring(0, equals)), decode(pair.substring(equals + 1)));
+        }
+        return parameters;
+    }
+
+    private static String decode(String encoded) throws UnsupportedEncodingException {
+        try {
+            return URLDecoder.decode(encoded, "UTF-8");
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(400, "Malformed parameter " + encoded + " (" + e.getMessage() + ")");
+        }
+    }
+
+    private static String required(Map<String, String> parameters, String name) {
+
+        String value = parameters.get(name);
+
+        if (value == null || value.trim().isEmpty()) throw new RequestException(400, "The parameter " + name + " is required");
+
+        return value;
+    }
+
+    private static int number(Map<String, String> parameters, String name, int otherwise, int min, int max) {
+
+        String value = parameters.get(name);
+
+        if (value == null || value.isEmpty()) return otherwise;
+
+        try {
+            int number = Integer.parseInt(value);
+            if (number >= min && number <= max) return number;
+        } catch (NumberFormatException e) {
+            // answered below
+        }
+        throw new RequestException(400, "The parameter " + name + " must be a number from " + min + " to " + max);
+    }
+
+    /**
+     * @return an executor starting a virtual thread per task if the JVM has them, else a pool of platform threads
+     */
+    private static ExecutorService threadPerRequest() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(16, 4 * Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "search-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+
+    private interface Endpoint {
+
+        void handle(HttpExchange exchange, Map<String, String> parameters, JsonWriter json) throws IOException;
+    }
+
+    /**
+     * The body of a successful response. The headers are sent when the first bytes are, so an endpoint can still
+     * fail with another status until then.
+     */
+    private static class ResponseBody extends OutputStream {
+
+        final HttpExchange exchange;
+        boolean started;
+
+        ResponseBody(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        public void write(int b) throws IOException {
+            start();
+            exchange.getResponseBody().write(b);
+        }
+
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            start();
+            exchange.getResponseBody().write(bytes, offset, length);
+        }
+
+        public void flush() throws IOException {
+            if (started) exchange.getResponseBody().flush();
+        }
+
+        private void start() throws IOException {
+            if (started) return;
+            started = true;
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+        }
+    }
+
+    static class RequestException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
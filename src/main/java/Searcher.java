@@ -1,71 +1,83 @@
+import Index.InvertedIndex;
+import Index.PartitionedIndex;
+import Index.PostingList;
+import Index.SearchIndex;
+import Query.QueryCache;
+import Query.QueryNode;
+import Query.QueryPlanner;
+
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 
 public class Searcher {
 
-    private Searcher() {}
+    private static final int MAX_CACHED_RESULTS = 1024;
+    private static final long MAX_CACHED_BYTES = 64L << 20;
 
-    public static HashSet<String> search(String query, LinkedHashMap hashMap){
+    private static final QueryCache<HashSet<String>> cache = new QueryCache<HashSet<String>>(MAX_CACHED_RESULTS, MAX_CACHED_BYTES, urls -> {
+        long bytes = 64;
+        for (String url : urls) bytes += 48 + 2L * url.length();
+        return bytes;
+    });
 
-        String[] parts = query.split(" ");
+    private Searcher() {}
+
+    /**
+     * Searches the index. Queries can combine words with AND, OR and NOT, group them with parentheses
+     * and quote phrases, e.g. 'IT AND (højskolen OR universitet) NOT "Home page"'.
+     * Adjacent words without an operator are AND'ed, and a trailing * matches every word with that prefix.
+     * The results of recent queries are cached, see getCache().
+     *
+     * @param query
+     * @param index
+     * @return the urls of the matching pages, or null if the query depends on words that are not in the index
+     */
+    public static HashSet<String> search(String query, SearchIndex index){
 
         if (query.length() == 0) return null;
 
-        if (parts.length == 1) return Searcher.handleSimpleSearch(hashMap, parts[0]);
+        QueryNode plan = QueryPlanner.compile(query, index.analyzer());
 
-        if (parts.length == 3)
-        {
-            // To future proof the code, we are cloning both queries in order to match how people would intuatively use this function.
-            // Cloning is needed, because retainAll modifies the HashSet in the HashMap.
-            HashSet<String> resultsOne = (HashSet) hashMap.get(parts[0]);
-            HashSet<String> tmpResultsOne = (resultsOne != null) ? (HashSet<String>) resultsOne.clone() : null;
-            HashSet<String> resultsTwo = (HashSet) hashMap.get(parts[2]);
-            HashSet<String> tmpResultsTwo = (resultsTwo != null) ? (HashSet<String>) resultsTwo.clone() : null;
+        if (plan == null) return null;
 
-            if (parts[1].equals("OR")) return Searcher.handleOrSearch(tmpResultsOne, tmpResultsTwo);
+        HashSet<String> urls = cache.get(QueryCache.key(plan), index.snapshot(), snapshot -> snapshot.urls(evaluate(plan, snapshot)));
 
-            if (parts[1].equals("AND")) return Searcher.handleAndSearch(tmpResultsOne, tmpResultsTwo);
-        }
-        return null;
+        return (urls == null) ? null : new HashSet<String>(urls);
     }
 
     /**
-     * Performs a query on a single word.
-     * @param hashMap
-     * @param query
-     * @return
+     * Searches a map in the old word -> HashSet of urls format. The map is converted to an index on every call,
+     * so callers that search more than once convert it once with InvertedIndex.from() and search the index.
+     *
+     * @deprecated use search(query, InvertedIndex.from(hashMap)) with the converted index kept
      */
-    private static HashSet<String> handleSimpleSearch (LinkedHashMap hashMap, String query) {
-        return (HashSet) hashMap.get(query);
+    @Deprecated
+    @SuppressWarnings("unchecked")  // the old signature takes a raw map
+    public static HashSet<String> search(String query, LinkedHashMap hashMap){
+        return search(query, (SearchIndex) InvertedIndex.from(hashMap));
     }
 
     /**
-     * Performs the OR search on two words.
-     * @return
+     * An InvertedIndex is both a LinkedHashMap and a SearchIndex, this overload picks the latter.
      */
-    private static HashSet<String> handleOrSearch (HashSet<String> resultOne, HashSet<String> resultTwo) {
-
-        if (resultOne == null && resultTwo == null) return null;
-
-        if (resultOne == null) return resultTwo;
-
-        if (resultTwo == null) return resultOne;
-
-
-        resultOne.addAll(resultTwo);
-        return resultOne;
+    public static HashSet<String> search(String query, InvertedIndex index){
+        return search(query, (SearchIndex) index);
     }
 
     /**
-     * Performs the AND search on two words.
-     * @return
+     * @return the cache of search results, for its hit and miss counts
      */
-    private static HashSet<String> handleAndSearch (HashSet<String> resultOne, HashSet<String> resultTwo) {
+    public static QueryCache<HashSet<String>> getCache() {
+        return cache;
+    }
 
-        if (resultOne == null || resultTwo == null) return null;
+    /**
+     * A sharded or segmented index evaluates the plan on each of its parts.
+     */
+    private static PostingList evaluate(QueryNode plan, SearchIndex index) {
 
-        resultOne.retainAll(resultTwo);
+        if (index instanceof PartitionedIndex) return ((PartitionedIndex) index).gather(plan::evaluate);
 
-        return resultOne;
+        return plan.evaluate(index);
     }
-}
\ No newline at end of file
+}
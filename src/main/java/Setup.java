@@ -1,18 +1,27 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
+import Index.Analyzer;
+import Index.CorpusLoader;
+import Index.InvertedIndex;
+import Index.SearchIndex;
+import Index.SegmentReader;
+import Index.ShardedIndex;
+
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
-
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads indexes and publishes the one being searched.
+ *
+ * A published index is never modified again. Loading builds a new index off to the side and swaps it in with a
+ * single atomic write, so searches that are running keep reading the index they started with, without locks,
+ * and the next search sees the new one.
+ */
 public class Setup {
     
-    private static LinkedHashMap<String, HashSet> instance;
+    private static final AtomicReference<SearchIndex> instance = new AtomicReference<SearchIndex>(new InvertedIndex());
     
     private Setup(){}
-    
-    static {
-        instance = new LinkedHashMap<String, HashSet>();
-    }
 
     /*
 	|--------------------------------------------------------------------------
@@ -22,47 +31,177 @@ public class Setup {
 	*/
 
     /**
+     * Loads the corpus file into a new index and publishes it. The file is read by the parallel CorpusLoader.
+     *
+     * @param filename
+     * @return the new index, empty if the file could not be read. An empty index is not published.
+     */
+    public static InvertedIndex initialise (String filename) {
+        return initialise(filename, false);
+    }
+
+    /**
+     * Like initialise(), optionally recording the positions of the words, which phrase queries need. Positions
+     * take about 40% more heap, so without them a phrase matches the pages that contain all of its words.
+     *
+     * @param filename
+     * @param positions
+     * @return the new index, empty if the file could not be read. An empty index is not published.
+     */
+    public static InvertedIndex initialise (String filename, boolean positions) {
+        return initialise(filename, 0, 1, positions);
+    }
+
+    /**
+     * Loads one part of the corpus file, for a ShardServer that serves that part, and publishes it. The parts are
+     * about the same size, and together hold every page of the file once.
+     *
+     * @param filename
+     * @param part the part to load, from 0
+     * @param parts the number of parts
+     * @return the new index, empty if the file could not be read. An empty index is not published.
+     */
+    public static InvertedIndex initialise (String filename, int part, int parts) {
+        return initialise(filename, part, parts, false);
+    }
+
+    /**
+     * @param filename
+     * @param part the part to load, from 0
+     * @param parts the number of parts
+     * @param positions whether to record the positions of the words, see initialise(String, boolean)
+     * @return the new index, empty if the file could not be read. An empty index is not published.
+     */
+    public static InvertedIndex initialise (String filename, int part, int parts, boolean positions) {
+
+        InvertedIndex index = new InvertedIndex(positions);
+
+        try {
+            CorpusLoader.load(filename, index, Analyzer.STANDARD, part, parts);
+            index.finish();
+            publish(index);
+        }
+        catch (IOException e) {
+            System.out.println("The initialisation file could not be read, please ensure that it is in the correct location. (" + e.getMessage() + ")");
+            index.clear();
+        }
+        
+        return index;
+    }
+    
+    /**
+     * Opens an index file written by IndexBuilder without loading it, or loads a corpus file like initialise().
+     *
+     * @param filename
+     * @return
+     */
+    public static SearchIndex open (String filename) {
+        return open(filename, false);
+    }
+
+    /**
+     * @param filename
+     * @param positions whether a corpus file is loaded with positions. An index file has them if it was built with them.
+     * @return
+     */
+    public static SearchIndex open (String filename, boolean positions) {
+
+        if (!SegmentReader.isSegment(filename)) return initialise(filename, positions);
+
+        try {
+            SegmentReader index = SegmentReader.open(filename);
+            publish(index);
+            return index;
+        }
+        catch (IOException e) {
+            System.out.println("The index file could not be read. (" + e.getMessage() + ")");
+            return new InvertedIndex();
+        }
+    }
+
+    /**
+     * Like open(), but a corpus file is copied into a direct buffer once it is loaded and only the copy is kept,
+     * so the words, urls and postings of a large corpus are not on the heap. A mapped index file is off the heap
+     * already.
      *
      * @param filename
      * @return
-     * @throws IOException
      */
-    public static LinkedHashMap initialise (String filename) {
+    public static SearchIndex openOffHeap (String filename) {
+        return openOffHeap(filename, false);
+    }
 
-        instance.clear();
+    /**
+     * @param filename
+     * @param positions whether a corpus file is loaded with positions
+     * @return
+     */
+    public static SearchIndex openOffHeap (String filename, boolean positions) {
 
-        String currentUrl = null;
+        if (SegmentReader.isSegment(filename)) return open(filename);
 
         try {
-            BufferedReader file = new BufferedReader( new FileReader(filename) ); // Open the file given as argument
+            InvertedIndex loaded = new InvertedIndex(positions);
+            CorpusLoader.load(filename, loaded);
+            loaded.finish();
 
-            while ( true )
-            {
-                String word = file.readLine(); // read word
+            SegmentReader index = SegmentReader.offHeap(loaded);
+            publish(index);
+            return index;
+        }
+        catch (IOException e) {
+            System.out.println("The initialisation file could not be read, please ensure that it is in the correct location. (" + e.getMessage() + ")");
+            return new InvertedIndex();
+        }
+    }
 
-                if ( word == null ) break; // checks for end
+    /**
+     * Like open(), but a corpus file is split into shards by document, which every query searches at once. An index
+     * file is opened as it is.
+     *
+     * @param filename
+     * @param shards the number of shards, see ShardedIndex.defaultShardCount()
+     * @return
+     */
+    public static SearchIndex openSharded (String filename, int shards) {
+        return openSharded(filename, shards, false);
+    }
 
-                if ( word.startsWith("*PAGE:") ) // if word is a url, set the current url and skip to next word
-                {
-                    currentUrl = word.substring(6);
-                    continue;
-                }
+    /**
+     * @param filename
+     * @param shards the number of shards
+     * @param positions whether a corpus file is loaded with positions
+     * @return
+     */
+    public static SearchIndex openSharded (String filename, int shards, boolean positions) {
 
-                if (currentUrl == null) continue; // continue until we find the first url in the input file to prevent adding words without corresponding urls
+        if (SegmentReader.isSegment(filename)) return open(filename);
 
-                addEntryToHashMap(instance, word, currentUrl);
-            }
-            file.close();
+        try {
+            ShardedIndex index = ShardedIndex.load(filename, shards, positions);
+            publish(index);
+            return index;
         }
-        catch (Exception e) {
-            System.out.println("The initialisation file could not be read, please ensure that it is in the correct location.");
+        catch (IOException e) {
+            System.out.println("The initialisation file could not be read, please ensure that it is in the correct location. (" + e.getMessage() + ")");
+            return new InvertedIndex();
         }
-        
-        return instance;
     }
-    
-    public static LinkedHashMap getInstance() {
-        return instance;
+
+    /**
+     * @return the index currently published. Hold on to it for the length of a search, not across searches.
+     */
+    public static SearchIndex getInstance() {
+        return instance.get();
+    }
+
+    /**
+     * Makes an index the one searched from now on. It must not be modified afterwards.
+     *
+     * @param index a complete index
+     */
+    public static void publish(SearchIndex index) {
+        instance.set(index);
     }
 
 
@@ -79,10 +218,16 @@ public class Setup {
      * @param word
      * @param url
      * Adds the word as the key and the url as the value of the hashmap. Checks for duplicates inside each UrlList and only appends
-     * new urls to the end.
+     * new urls to the end. An InvertedIndex stores the url as a document id in the word's posting list, any other map
+     * keeps a HashSet of urls per word.
      */
     protected static void addEntryToHashMap(LinkedHashMap hashMap, String word, String url) {
 
+        if (hashMap instanceof InvertedIndex) {
+            ((InvertedIndex) hashMap).add(word, url);
+            return;
+        }
+
         HashSet<String> urlHashMap = (HashSet) hashMap.get(word);
 
         if (urlHashMap == null) {
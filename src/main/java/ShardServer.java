@@ -0,0 +1,170 @@
+import Index.SearchIndex;
+import Infrastructure.ShardProtocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves searches over one part of the corpus to a SearchCoordinator, see ShardProtocol.
+ *
+ * Every connection gets a thread of its own, which answers the requests on it until the coordinator closes it.
+ *
+ * Start one process per part, and any number of replicas of a part on other ports:
+ * java ShardServer ../../../TestInput/itcwww-medium.txt 0 2 7001
+ */
+public class ShardServer implements Closeable {
+
+    private final SearchIndex index;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Set<Socket> open = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+
+    /**
+     * @param index the part of the corpus to serve
+     * @param port the port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public ShardServer(SearchIndex index, int port) throws IOException {
+        this.index = index;
+        this.serverSocket = new ServerSocket(port);
+        this.connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "shard-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.out.println("Usage: java ShardServer <input_file> <part> <parts> <port>");
+            System.out.println("Example: java ShardServer TestInput/itcwww-medium.txt 0 2 7001");
+            return;
+        }
+
+        int part = Integer.parseInt(args[1]);
+        int parts = Integer.parseInt(args[2]);
+        SearchIndex index = Setup.initialise(args[0], part, parts);
+
+        if (index.wordCount() == 0) {
+            System.out.println("Failed to load search index. Please check the input file.");
+            return;
+        }
+
+        ShardServer server = new ShardServer(index, Integer.parseInt(args[3]));
+        System.out.println("Serving part " + part + " of " + parts + " (" + index.documentCount() + " pages) on port " + server.getPort());
+        server.run();
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Public  Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    /**
+     * Accepts connections until the server is closed.
+     */
+    public void run() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                open.add(socket);
+                connections.execute(() -> serve(socket));
+            }
+            catch (IOException e) {
+                if (!serverSocket.isClosed()) System.out.println("Could not accept a connection. (" + e.getMessage() + ")");
+            }
+        }
+    }
+
+    /**
+     * Accepts connections on a thread of its own.
+     *
+     * @return this server
+     */
+    public ShardServer start() {
+        Thread acceptor = new Thread(this::run, "shard-server-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones.
+     */
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : open) socket.close();
+        connections.shutdownNow();
+    }
+
+
+    /*
+    |--------------------------------------------------------------------------
+    | Private Methods
+    |--------------------------------------------------------------------------
+    |
+    */
+
+    private void serve(Socket socket) {
+
+        try (Socket connection = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream())))
+        {
+            connection.setTcpNoDelay(true);
+
+            while (true)
+            {
+                int type = in.read();
+                if (type < 0) return;   // the coordinator closed the connection
+
+                String query = ShardProtocol.readString(in);
+
+                if (type != ShardProtocol.SEARCH) {
+                    ShardProtocol.writeError(out, "Unknown request " + type);
+                    continue;
+                }
+
+                HashSet<String> results;
+                try {
+                    results = Searcher.search(query, index);
+                }
+                catch (RuntimeException e) {
+                    ShardProtocol.writeError(out, e.toString());
+                    continue;
+                }
+                ShardProtocol.writeResults(out, results);
+            }
+        }
+        catch (EOFException | SocketException e) {
+            // the coordinator went away in the middle of a request
+        }
+        catch (IOException e) {
+            System.out.println("A connection failed. (" + e.getMessage() + ")");
+        }
+        finally {
+            open.remove(socket);
+        }
+    }
+}
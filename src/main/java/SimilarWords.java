@@ -1,52 +1,67 @@
+import Index.EditDistance;
+import Index.InvertedIndex;
+import Index.SearchIndex;
+
 import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.Map;
 
 public class SimilarWords {
     
+    /**
+     * Looks the query up in the index's fuzzy word lookup instead of comparing it to every word.
+     *
+     * @param index
+     * @param query
+     * @return the words with distance 1 to the query, or with distance 2 if there are none
+     */
+    public static HashSet<String> retrieveSimilarWords(SearchIndex index, String query) {
+        return index.nearestWords(query, 2);
+    }
+
+    @SuppressWarnings("unchecked")  // the old signature takes a raw map
     public static HashSet<String> retrieveSimilarWords(LinkedHashMap hashMap, String query) {
+        return retrieveSimilarWords((Iterable<String>) hashMap.keySet(), query);
+    }
+
+    /**
+     * An InvertedIndex is both a LinkedHashMap and a SearchIndex, this overload picks the latter.
+     */
+    public static HashSet<String> retrieveSimilarWords(InvertedIndex index, String query) {
+        return retrieveSimilarWords((SearchIndex) index, query);
+    }
+
+    private static HashSet<String> retrieveSimilarWords(Iterable<String> words, String query) {
         HashSet<String> similarWords = new HashSet();
-        
-        Map<String, HashSet> map = hashMap;
+        HashSet<String> distanceTwo = new HashSet();
+        query = query.toLowerCase();
 
-        for (Map.Entry<String, HashSet> entry : map.entrySet()) {
-            if (distance(query, entry.getKey()) == 1) {
-                similarWords.add(entry.getKey());
+        for (String word : words) {  // One pass, keeping the words with distance 2 in case there are none with distance 1
+            int distance = distance(query, word.toLowerCase(), 2);
+            if (distance == 1) {
+                similarWords.add(word);
+            }
+            else if (distance == 2 && similarWords.isEmpty()) {
+                distanceTwo.add(word);
             }
         }
         
-        if (similarWords.isEmpty()) {  // If there are no words that have distance 1, get words with distance 2.
-            for (Map.Entry<String, HashSet> entry : map.entrySet()) {
-                if (distance(query, entry.getKey()) == 2) {
-                    similarWords.add(entry.getKey());
-                }
-            }            
-        }
-        return similarWords;
+        return similarWords.isEmpty() ? distanceTwo : similarWords;
     }
     
     protected static int distance(String a, String b) {
+        return EditDistance.distance(a.toLowerCase(), b.toLowerCase());
+    }
 
-        //This algorithm is borrowed from [http://rosettacode.org/wiki/Levenshtein_distance#Java]
-        //...which is based on [http://www.codeproject.com/Articles/13525/Fast-memory-efficient-Levenshtein-algorithm]
-
-        a = a.toLowerCase();
-        b = b.toLowerCase();
-        // i == 0
-        int [] costs = new int [b.length() + 1];
-        for (int j = 0; j < costs.length; j++)
-            costs[j] = j;
-        for (int i = 1; i <= a.length(); i++) {
-            // j == 0; nw = lev(i - 1, j)
-            costs[0] = i;
-            int nw = i - 1;
-            for (int j = 1; j <= b.length(); j++) {
-                int cj = Math.min(1 + Math.min(costs[j], costs[j - 1]), a.charAt(i - 1) == b.charAt(j - 1) ? nw : nw + 1);
-                nw = costs[j];
-                costs[j] = cj;
-            }
-        }
-        return costs[b.length()];
+    /**
+     * The thresholded distance, for callers that only care about small distances and lower case the words once.
+     *
+     * @param a
+     * @param b
+     * @param max
+     * @return the distance between the words, or max + 1 if it is larger than max
+     */
+    protected static int distance(String a, String b, int max) {
+        return EditDistance.bounded(a, b, max);
     }
     
 }
@@ -1,3 +1,5 @@
+import Index.InvertedIndex;
+
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
@@ -6,11 +8,12 @@ import java.awt.event.ActionListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 
 public class SimpleAnimatedGUI extends JFrame {
     
-    private LinkedHashMap<String, HashSet> searchIndex;
+    private static final int MAX_COMPLETIONS = 8;
+    
+    private InvertedIndex searchIndex;
     private JTextField searchField;
     private JTextArea resultsArea;
     private JLabel statusLabel;
@@ -186,9 +189,36 @@ public class SimpleAnimatedGUI extends JFrame {
                     performSearch();
                 }
             }
+
+            @Override
+            public void keyReleased(KeyEvent e) {
+                if (e.getKeyCode() != KeyEvent.VK_ENTER) {
+                    showCompletions();
+                }
+            }
         });
     }
     
+    /**
+     * Shows the indexed words starting with the word being typed, looked up in the sorted term dictionary.
+     */
+    private void showCompletions() {
+        if (searchIndex == null) return;
+        
+        String text = searchField.getText();
+        String[] words = text.split(" ");
+        if (text.isEmpty() || text.endsWith(" ") || words.length == 0) return;
+        
+        java.util.List<String> prefix = searchIndex.analyzer().analyze(words[words.length - 1]);
+        if (prefix.size() != 1) return;
+
+        java.util.List<String> completions = searchIndex.wordsWithPrefix(prefix.get(0), MAX_COMPLETIONS);
+        if (!completions.isEmpty()) {
+            statusLabel.setText("Suggestions: " + String.join(", ", completions));
+            statusLabel.setForeground(Color.GRAY);
+        }
+    }
+    
     private void setupAnimations() {
         // Pulsing animation for search button
         pulseTimer = new Timer(100, new ActionListener() {
@@ -216,9 +246,9 @@ public class SimpleAnimatedGUI extends JFrame {
     private void loadDataset() {
         String selectedDataset = (String) datasetCombo.getSelectedItem();
         
-        SwingWorker<LinkedHashMap<String, HashSet>, Void> worker = new SwingWorker<LinkedHashMap<String, HashSet>, Void>() {
+        SwingWorker<InvertedIndex, Void> worker = new SwingWorker<InvertedIndex, Void>() {
             @Override
-            protected LinkedHashMap<String, HashSet> doInBackground() throws Exception {
+            protected InvertedIndex doInBackground() throws Exception {
                 SwingUtilities.invokeLater(() -> {
                     progressBar.setVisible(true);
                     progressBar.setIndeterminate(true);
@@ -1,3 +1,5 @@
+import Index.InvertedIndex;
+
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
@@ -8,11 +10,10 @@ import java.awt.event.KeyEvent;
 import java.io.IOException;
 import java.net.URI;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 
 public class WebBrowserSearchGUI extends JFrame {
     
-    private LinkedHashMap<String, HashSet> searchIndex;
+    private InvertedIndex searchIndex;
     private JTextField searchField;
     private JTextArea resultsArea;
     private JLabel statusLabel;
@@ -356,9 +357,9 @@ public class WebBrowserSearchGUI extends JFrame {
     private void loadDataset() {
         String selectedDataset = (String) datasetCombo.getSelectedItem();
         
-        SwingWorker<LinkedHashMap<String, HashSet>, Void> worker = new SwingWorker<LinkedHashMap<String, HashSet>, Void>() {
+        SwingWorker<InvertedIndex, Void> worker = new SwingWorker<InvertedIndex, Void>() {
             @Override
-            protected LinkedHashMap<String, HashSet> doInBackground() throws Exception {
+            protected InvertedIndex doInBackground() throws Exception {
                 SwingUtilities.invokeLater(() -> {
                     progressBar.setVisible(true);
                     progressBar.setIndeterminate(true);
@@ -1,8 +1,12 @@
+import Crawler.HtmlTokenizer;
+import Crawler.IndexSink;
+import Index.Analyzer;
+
 import java.io.*;
 import java.net.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class WebCrawler {
     
@@ -10,14 +14,46 @@ public class WebCrawler {
     private static final int TIMEOUT = 5000;
     private Set<String> visitedUrls = new HashSet<>();
     private LinkedHashMap<String, HashSet<String>> webIndex = new LinkedHashMap<>();
+    private IndexSink sink;
+    private final Analyzer analyzer;
+
+    public WebCrawler() {
+        this(Analyzer.STANDARD);
+    }
+
+    /**
+     * @param analyzer turns the text of the pages into words. Queries have to be analysed the same way.
+     */
+    public WebCrawler(Analyzer analyzer) {
+        this.analyzer = analyzer;
+    }
     
     public LinkedHashMap<String, HashSet<String>> crawlWebsite(String startUrl, int maxDepth) {
         System.out.println("Starting web crawl from: " + startUrl);
         crawlPage(startUrl, 0, maxDepth);
-        System.out.println("Web crawl completed. Indexed " + webIndex.size() + " unique words from " + visitedUrls.size() + " pages.");
+        if (sink != null) System.out.println("Web crawl completed. Handed " + visitedUrls.size() + " pages to the index.");
+        else System.out.println("Web crawl completed. Indexed " + webIndex.size() + " unique words from " + visitedUrls.size() + " pages.");
         return webIndex;
     }
     
+    /**
+     * Crawls the website, handing every page to the sink as soon as it has been read. The pages are not also kept
+     * in the crawler's own index, so their words are only held once.
+     *
+     * @param startUrl
+     * @param maxDepth
+     * @param sink
+     * @return the words of the pages crawled before without a sink
+     */
+    public LinkedHashMap<String, HashSet<String>> crawlWebsite(String startUrl, int maxDepth, IndexSink sink) {
+        this.sink = sink;
+        try {
+            return crawlWebsite(startUrl, maxDepth);
+        } finally {
+            this.sink = null;
+        }
+    }
+    
     private void crawlPage(String url, int currentDepth, int maxDepth) {
         if (currentDepth > maxDepth || visitedUrls.size() >= MAX_PAGES || visitedUrls.contains(url)) {
             return;
@@ -27,16 +63,11 @@ public class WebCrawler {
             visitedUrls.add(url);
             System.out.println("Crawling: " + url + " (Depth: " + currentDepth + ")");
             
-            String content = fetchPageContent(url);
-            if (content != null) {
-                extractWordsFromContent(content, url);
-                
-                if (currentDepth < maxDepth) {
-                    Set<String> links = extractLinks(content, url);
-                    for (String link : links) {
-                        if (visitedUrls.size() < MAX_PAGES) {
-                            crawlPage(link, currentDepth + 1, maxDepth);
-                        }
+            Set<String> links = fetchPage(url);
+            if (links != null && currentDepth < maxDepth) {
+                for (String link : links) {
+                    if (visitedUrls.size() < MAX_PAGES) {
+                        crawlPage(link, currentDepth + 1, maxDepth);
                     }
                 }
             }
@@ -45,7 +76,13 @@ public class WebCrawler {
         }
     }
     
-    private String fetchPageContent(String urlString) {
+    /**
+     * Fetches a page and indexes its words while the response is read, without keeping the page in memory.
+     *
+     * @param urlString
+     * @return the crawlable links on the page, or null if it could not be fetched
+     */
+    private Set<String> fetchPage(final String urlString) {
         try {
             URL url = new URL(urlString);
             HttpURLConnection connection = (HttpURLConnection) url.openConnection();
@@ -56,15 +93,26 @@ public class WebCrawler {
             
             int responseCode = connection.getResponseCode();
             if (responseCode == 200) {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                StringBuilder content = new StringBuilder();
-                String line;
+                final Set<String> links = new LinkedHashSet<>();
+                final List<String> words = new ArrayList<>();
                 
-                while ((line = reader.readLine()) != null) {
-                    content.append(line).append("\n");
+                try (Reader reader = new InputStreamReader(connection.getInputStream(), charset(connection))) {
+                    HtmlTokenizer.tokenize(reader, analyzer, new HtmlTokenizer.Handler() {
+                        public void word(String word) {
+                            if (sink != null) words.add(word);
+                            else webIndex.computeIfAbsent(word, k -> new HashSet<>()).add(urlString);
+                        }
+                        
+                        public void link(String href) {
+                            String absoluteUrl = resolveUrl(href, urlString);
+                            if (absoluteUrl != null && isValidUrl(absoluteUrl)) {
+                                links.add(absoluteUrl);
+                            }
+                        }
+                    });
                 }
-                reader.close();
-                return content.toString();
+                if (sink != null) sink.accept(urlString, words);
+                return links;
             }
         } catch (Exception e) {
             System.err.println("Failed to fetch: " + urlString + " - " + e.getMessage());
@@ -72,35 +120,22 @@ public class WebCrawler {
         return null;
     }
     
-    private void extractWordsFromContent(String content, String url) {
-        // Remove HTML tags
-        String textContent = content.replaceAll("<[^>]+>", " ");
-        
-        // Extract words (alphanumeric sequences)
-        Pattern wordPattern = Pattern.compile("\\b[a-zA-Z0-9]+\\b");
-        Matcher matcher = wordPattern.matcher(textContent.toLowerCase());
-        
-        while (matcher.find()) {
-            String word = matcher.group();
-            if (word.length() >= 3) { // Only index words with 3+ characters
-                webIndex.computeIfAbsent(word, k -> new HashSet<>()).add(url);
-            }
-        }
-    }
-    
-    private Set<String> extractLinks(String content, String baseUrl) {
-        Set<String> links = new HashSet<>();
-        Pattern linkPattern = Pattern.compile("href=[\"']([^\"']+)[\"']", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = linkPattern.matcher(content);
+    /**
+     * @return the charset named in the Content-Type header, UTF-8 if there is none or it is not supported
+     */
+    private Charset charset(HttpURLConnection connection) {
+        String contentType = connection.getContentType();
+        int index = (contentType == null) ? -1 : contentType.toLowerCase().indexOf("charset=");
         
-        while (matcher.find()) {
-            String link = matcher.group(1);
-            String absoluteUrl = resolveUrl(link, baseUrl);
-            if (absoluteUrl != null && isValidUrl(absoluteUrl)) {
-                links.add(absoluteUrl);
+        if (index >= 0) {
+            String name = contentType.substring(index + "charset=".length()).split(";")[0].replace("\"", "").trim();
+            try {
+                return Charset.forName(name);
+            } catch (Exception e) {
+                // fall through to the default
             }
         }
-        return links;
+        return StandardCharsets.UTF_8;
     }
     
     private String resolveUrl(String link, String baseUrl) {
@@ -0,0 +1,64 @@
+import Index.Analyzer;
+import Index.CorpusLoader;
+import Index.InvertedIndex;
+import Query.QueryPlanner;
+import Query.RankedSearcher;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class AnalyzerTest {
+
+    @Test
+    public void it_folds_case_and_strips_punctuation() {
+        assertEquals(Arrays.asList("it", "it", "it", "it"), Analyzer.STANDARD.analyze("IT it It, it."));
+        assertEquals(Arrays.asList("it", "universitetet", "i", "københavn"), Analyzer.STANDARD.analyze("IT-Universitetet i København!"));
+        assertEquals(Arrays.asList("istanbul"), Analyzer.STANDARD.analyze("İSTANBUL"));
+    }
+
+    @Test
+    public void it_composes_decomposed_letters() {
+        assertEquals(Arrays.asList("\u00e5rhus"), Analyzer.STANDARD.analyze("A\u030arhus"));
+    }
+
+    @Test
+    public void it_drops_stopwords() {
+        Analyzer analyzer = Analyzer.withStopwords(Arrays.asList("på", "I"));
+        assertEquals(Arrays.asList("aktuelt", "it"), analyzer.analyze("Aktuelt på IT i"));
+    }
+
+    @Test
+    public void it_analyses_query_words_like_page_words() {
+        assertEquals("højskolen", QueryPlanner.compile("Højskolen,").toString());
+        assertEquals("\"e mail\"", QueryPlanner.compile("E-mail").toString());
+        assertEquals("(it AND høj*)", QueryPlanner.compile("IT Høj*").toString());
+    }
+
+    @Test
+    public void it_analyses_queries_with_the_analyzer_of_the_index() throws Exception {
+        File corpus = File.createTempFile("corpus", ".txt");
+        corpus.deleteOnExit();
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(corpus), StandardCharsets.UTF_8)) {
+            out.write("*PAGE:url1\nAktuelt på IT\n*PAGE:url2\nIT på aktuelt\n");
+        }
+
+        InvertedIndex index = new InvertedIndex(true);
+        Analyzer analyzer = Analyzer.withStopwords(Arrays.asList("på"));
+        CorpusLoader.load(corpus.getPath(), index, analyzer);
+        index.finish();
+
+        assertSame(analyzer, index.analyzer());
+        assertEquals(new HashSet<String>(Arrays.asList("url1", "url2")), Searcher.search("aktuelt på it", index));
+        assertEquals(new HashSet<String>(Arrays.asList("url1")), Searcher.search("\"Aktuelt på IT\"", index));
+        assertEquals(2, RankedSearcher.search("på aktuelt", index, 10).size());
+        assertEquals("(aktuelt AND på)", QueryPlanner.compile("aktuelt på").toString());
+    }
+}
@@ -0,0 +1,48 @@
+import Index.InvertedIndex;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class BatchSearchTest {
+
+    @Test
+    public void it_writes_the_results_in_the_order_of_the_queries() throws Exception {
+        InvertedIndex index = new InvertedIndex();
+        for (int i = 0; i < 50; i++) index.add("word" + i, "url" + i);
+        index.add("word1", "url50");
+        index.finish();
+
+        StringBuilder queries = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            queries.append("word").append(i % 50).append("\n\n");
+            expected.append((i % 50 == 1) ? 2 : 1).append("\tword").append(i % 50).append('\n');
+        }
+        queries.append("missing\n");
+        expected.append("0\tmissing\n");
+
+        StringWriter out = new StringWriter();
+        BatchSearch.Report report = new BatchSearch(index, 4, true).run(new BufferedReader(new StringReader(queries.toString())), out);
+
+        assertEquals(expected.toString(), out.toString());
+        assertEquals(1001, report.getQueries());
+        assertTrue(report.getLatency(0.5) <= report.getLatency(0.99));
+        assertTrue(report.getLatency(0.999) <= report.getLatency(1));
+    }
+
+    @Test
+    public void it_writes_the_urls_unless_only_counts_are_asked_for() throws Exception {
+        InvertedIndex index = new InvertedIndex();
+        index.add("word", "url1");
+        index.finish();
+
+        StringWriter out = new StringWriter();
+        new BatchSearch(index, 2, false).run(new BufferedReader(new StringReader("word\nmissing\n")), out);
+
+        assertEquals("1\tword\n\turl1\n0\tmissing\n", out.toString());
+    }
+}
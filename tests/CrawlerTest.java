@@ -0,0 +1,90 @@
+import Crawler.Crawler;
+import Crawler.IndexSink;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class CrawlerTest {
+
+    private static final int PAGES = 60;
+    private static final int BUDGET = 20;
+
+    @Test
+    public void it_scrapes_exactly_the_budget_when_some_pages_fail() throws Exception {
+        HttpServer server = site();
+
+        try {
+            String root = "http://localhost:" + server.getAddress().getPort() + "/";
+
+            for (int parallelism : new int[] { 1, 8 }) {
+                List<String> scraped = Collections.synchronizedList(new ArrayList<String>());
+                IndexSink sink = (url, words) -> scraped.add(url);
+
+                Crawler crawler = new Crawler(root, BUDGET, parallelism, sink);
+                crawler.crawl();
+
+                String name = "parallelism " + parallelism;
+                assertEquals(name, BUDGET, scraped.size());
+                assertEquals(name, BUDGET, new HashSet<String>(scraped).size());
+                assertEquals(name, BUDGET, crawler.getPagesScraped());
+                for (String url : scraped) assertFalse(name + " " + url, failing(page(url)));
+            }
+        }
+        finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Every page links to the next few pages, and every third page answers with an error.
+     */
+    private static HttpServer site() throws Exception {
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(8, runnable -> {
+            Thread thread = new Thread(runnable, "site");
+            thread.setDaemon(true);
+            return thread;
+        }));
+
+        server.createContext("/", exchange -> {
+            int page = page(exchange.getRequestURI().getPath());
+
+            StringBuilder html = new StringBuilder("<html><body><p>page number ").append(page).append("</p>");
+            for (int link = page + 1; link <= page + 4 && link < PAGES; link++) html.append("<a href=\"/").append(link).append("\">next</a>");
+            html.append("</body></html>");
+
+            byte[] body = html.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(failing(page) ? 500 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        return server;
+    }
+
+    /**
+     * @return the number of the page at the url, the root being page 0
+     */
+    private static int page(String url) {
+        String name = url.substring(url.lastIndexOf('/') + 1);
+        return name.isEmpty() ? 0 : Integer.parseInt(name);
+    }
+
+    private static boolean failing(int page) {
+        return page % 3 == 2;
+    }
+}
@@ -0,0 +1,117 @@
+import Index.InvertedIndex;
+import Infrastructure.ShardProtocol;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DistributedSearchTest {
+
+    @Test
+    public void it_unites_the_results_of_every_part() throws Exception {
+        try (ShardServer one = new ShardServer(part("word", "url1", "other", "url2"), 0).start();
+             ShardServer two = new ShardServer(part("word", "url3", "more", "url4"), 0).start();
+             SearchCoordinator coordinator = new SearchCoordinator(parts(servers(one), servers(two)), 1000))
+        {
+            SearchCoordinator.Result result = coordinator.search("word");
+            assertFalse(result.isPartial());
+            assertEquals(new HashSet<String>(Arrays.asList("url1", "url3")), result.getUrls());
+
+            assertEquals(new HashSet<String>(Arrays.asList("url2")), coordinator.search("other").getUrls());
+            // every part lacks one of the words, unlike the whole corpus, which has both and gives an empty set
+            assertTrue(coordinator.search("other AND more").getUrls() == null);
+            assertEquals(new HashSet<String>(), coordinator.search("word AND other AND NOT other").getUrls());
+            assertTrue(coordinator.search("missing").getUrls() == null);
+        }
+    }
+
+    @Test
+    public void it_retries_on_a_replica_when_a_server_is_down_or_hangs() throws Exception {
+        try (ServerSocket hanging = new ServerSocket(0);
+             ShardServer replica = new ShardServer(part("word", "url1"), 0).start();
+             ShardServer other = new ShardServer(part("word", "url2"), 0).start())
+        {
+            InetSocketAddress down = new InetSocketAddress("localhost", closedPort());
+            InetSocketAddress hangs = new InetSocketAddress("localhost", hanging.getLocalPort());
+
+            List<InetSocketAddress> first = Arrays.asList(down, hangs, address(replica));
+
+            try (SearchCoordinator coordinator = new SearchCoordinator(parts(first, servers(other)), 200)) {
+                SearchCoordinator.Result result = coordinator.search("word");
+                assertFalse(result.isPartial());
+                assertEquals(new HashSet<String>(Arrays.asList("url1", "url2")), result.getUrls());
+            }
+        }
+    }
+
+    @Test
+    public void it_returns_partial_results_when_no_replica_answers() throws Exception {
+        try (ShardServer server = new ShardServer(part("word", "url1"), 0).start())
+        {
+            List<InetSocketAddress> down = Arrays.asList(new InetSocketAddress("localhost", closedPort()));
+
+            try (SearchCoordinator coordinator = new SearchCoordinator(parts(servers(server), down), 200)) {
+                SearchCoordinator.Result result = coordinator.search("word");
+                assertTrue(result.isPartial());
+                assertEquals(1, result.getMissingParts());
+                assertEquals(new HashSet<String>(Arrays.asList("url1")), result.getUrls());
+            }
+        }
+    }
+
+    @Test
+    public void it_rejects_a_response_with_more_urls_than_it_can_hold() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(ShardProtocol.RESULTS);
+        ShardProtocol.writeVarInt(out, Integer.MAX_VALUE);
+
+        try {
+            ShardProtocol.readResults(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            fail();
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage().contains("too large"));
+        }
+    }
+
+    private static InvertedIndex part(String... wordsAndUrls) {
+        InvertedIndex index = new InvertedIndex();
+        for (int i = 0; i < wordsAndUrls.length; i += 2) index.add(wordsAndUrls[i], wordsAndUrls[i + 1]);
+        index.finish();
+        return index;
+    }
+
+    private static InetSocketAddress address(ShardServer server) {
+        return new InetSocketAddress("localhost", server.getPort());
+    }
+
+    private static List<InetSocketAddress> servers(ShardServer server) {
+        return Arrays.asList(address(server));
+    }
+
+    @SafeVarargs
+    private static List<List<InetSocketAddress>> parts(List<InetSocketAddress>... parts) {
+        return new ArrayList<List<InetSocketAddress>>(Arrays.asList(parts));
+    }
+
+    /**
+     * @return a port nothing listens on
+     */
+    private static int closedPort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
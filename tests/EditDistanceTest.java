@@ -0,0 +1,103 @@
+import Index.EditDistance;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EditDistanceTest {
+
+    private static final char[] ALPHABET = { 'a', 'b', 'c', 'ø', 'Ω', '中', '￿' };
+
+    @Test
+    public void it_agrees_with_the_full_matrix_on_short_words() throws Exception {
+        compare(new Random(1), 0, 64, 20000);
+    }
+
+    @Test
+    public void it_agrees_with_the_full_matrix_on_long_words() throws Exception {
+        compare(new Random(2), 60, 150, 3000);
+    }
+
+    @Test
+    public void it_handles_empty_words_and_the_edges_of_the_threshold() throws Exception {
+        assertEquals(0, EditDistance.bounded("", "", 0));
+        assertEquals(3, EditDistance.bounded("", "abc", 3));
+        assertEquals(3, EditDistance.bounded("abc", "", 2));
+        assertEquals(1, EditDistance.bounded("中", "", 1));
+
+        assertEquals(1, EditDistance.bounded("word", "wordX", 1));
+        assertEquals(1, EditDistance.bounded("word", "wXrd", 0));
+        assertEquals(2, EditDistance.bounded("kitten", "sitting", 1));
+        assertEquals(3, EditDistance.bounded("kitten", "sitting", 3));
+        assertEquals(3, EditDistance.bounded("kitten", "sitting", 2));
+        assertEquals(2, EditDistance.bounded("中文", "文中", 2));
+        assertEquals(2, EditDistance.bounded("中文", "文中", 1));
+    }
+
+    /**
+     * Compares random words, mostly similar ones, at every threshold around their distance.
+     */
+    private static void compare(Random random, int minLength, int maxLength, int pairs) {
+
+        for (int n = 0; n < pairs; n++) {
+            String a = word(random, minLength + random.nextInt(maxLength - minLength + 1));
+            String b = (random.nextBoolean()) ? word(random, minLength + random.nextInt(maxLength - minLength + 1)) : edit(random, a);
+            int expected = matrix(a, b);
+            String pair = a + " / " + b;
+
+            assertEquals(pair, expected, EditDistance.distance(a, b));
+            for (int max = Math.max(0, expected - 2); max <= expected + 2; max++) {
+                assertEquals(pair + " within " + max, Math.min(expected, max + 1), EditDistance.bounded(a, b, max));
+                assertEquals(pair + " within " + max, Math.min(expected, max + 1), EditDistance.bounded(b, a, max));
+            }
+        }
+    }
+
+    private static String word(Random random, int length) {
+
+        StringBuilder word = new StringBuilder(length);
+
+        for (int i = 0; i < length; i++) word.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+
+        return word.toString();
+    }
+
+    /**
+     * Inserts, deletes or replaces a few characters of the word.
+     */
+    private static String edit(Random random, String word) {
+
+        StringBuilder edited = new StringBuilder(word);
+
+        for (int i = random.nextInt(5); i > 0; i--) {
+            int at = random.nextInt(edited.length() + 1);
+            char c = ALPHABET[random.nextInt(ALPHABET.length)];
+            switch (random.nextInt(3)) {
+                case 0: edited.insert(at, c); break;
+                case 1: if (at < edited.length()) edited.deleteCharAt(at); break;
+                default: if (at < edited.length()) edited.setCharAt(at, c);
+            }
+        }
+        return edited.toString();
+    }
+
+    /**
+     * The plain dynamic program over the whole matrix.
+     */
+    private static int matrix(String a, String b) {
+
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+
+        for (int i = 0; i <= a.length(); i++) d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) d[0][j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int replace = d[i - 1][j - 1] + ((a.charAt(i - 1) == b.charAt(j - 1)) ? 0 : 1);
+                d[i][j] = Math.min(replace, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,48 @@
+import Crawler.Frontier;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrontierTest {
+
+    @Test
+    public void it_canonicalises_urls() throws Exception {
+        assertEquals("http://itu.dk/", Frontier.canonicalise("HTTP://ITU.dk:80"));
+        assertEquals("https://itu.dk/courses", Frontier.canonicalise("https://itu.dk:443/courses/#top"));
+        assertEquals("http://itu.dk:8080/a/c?x=1&y=2", Frontier.canonicalise("http://itu.dk:8080/a/b/../c/?y=2&x=1"));
+        assertNull(Frontier.canonicalise("mailto:someone@itu.dk"));
+        assertNull(Frontier.canonicalise("/relative/link"));
+    }
+
+    @Test
+    public void it_queues_every_page_of_the_site_once() throws Exception {
+        Frontier frontier = new Frontier("http://www.itu.dk/");
+
+        assertTrue(frontier.add("http://www.itu.dk/"));
+        assertTrue(frontier.add("http://itu.dk/research"));
+        assertFalse(frontier.add("http://itu.dk/research/"));
+        assertFalse(frontier.add("http://itu.dk/research#staff"));
+        assertFalse(frontier.add("http://google.com/?q=itu.dk"));
+        assertFalse(frontier.add("not a url"));
+
+        for (int i = 0; i < 10000; i++) frontier.add("http://itu.dk/page?id=" + (i % 5000));
+
+        assertEquals(5002, frontier.size());
+        assertEquals("http://www.itu.dk/", frontier.poll());
+        assertEquals("http://itu.dk/research", frontier.poll());
+    }
+
+    @Test
+    public void it_queues_a_page_once_whatever_the_scheme_and_www_prefix() throws Exception {
+        Frontier frontier = new Frontier("http://x.dk/");
+
+        assertTrue(frontier.add("http://www.x.dk/a"));
+        assertFalse(frontier.add("https://x.dk/a"));
+        assertFalse(frontier.add("https://www.x.dk/a/"));
+        assertTrue(frontier.add("https://x.dk/b"));
+
+        assertEquals(2, frontier.size());
+        assertEquals("http://www.x.dk/a", frontier.poll());
+        assertEquals("https://x.dk/b", frontier.poll());
+    }
+}
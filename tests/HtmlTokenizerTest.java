@@ -0,0 +1,64 @@
+import Crawler.HtmlTokenizer;
+import Index.Analyzer;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HtmlTokenizerTest {
+
+    private List<String> words = new ArrayList<String>();
+    private List<String> links = new ArrayList<String>();
+
+    private void tokenize(String html) throws Exception {
+        tokenize(html, null);
+    }
+
+    private void tokenize(String html, Analyzer analyzer) throws Exception {
+        HtmlTokenizer.Handler handler = new HtmlTokenizer.Handler() {
+            public void word(String word) {
+                words.add(word);
+            }
+
+            public void link(String href) {
+                links.add(href);
+            }
+        };
+        if (analyzer == null) HtmlTokenizer.tokenize(new StringReader(html), handler);
+        else HtmlTokenizer.tokenize(new StringReader(html), analyzer, handler);
+    }
+
+    @Test
+    public void it_emits_the_words_of_the_text() throws Exception {
+        tokenize("<!DOCTYPE html><html><head><title>Home Page</title>"
+                + "<script type=\"text/javascript\">var hidden = '<b>words</b>';</script>"
+                + "<style>body { color: red }</style></head>"
+                + "<body><!-- a <comment> --><p>IT University&nbsp;of Copenhagen, 2015</p>"
+                + "<b>Ru</b>ed snake_case højskolen</body></html>");
+
+        assertEquals(Arrays.asList("home", "page", "university", "copenhagen", "2015"), words);
+    }
+
+    @Test
+    public void it_emits_the_links_of_every_tag() throws Exception {
+        tokenize("<a href=\"/courses\">Courses</a><A HREF='http://itu.dk/research' class=x>Research</A>"
+                + "<link rel=stylesheet href=style.css><a name=\"top\">a < b</a>");
+
+        assertEquals(Arrays.asList("/courses", "http://itu.dk/research", "style.css"), links);
+        assertEquals(Arrays.asList("courses", "research"), words);
+    }
+
+    @Test
+    public void it_emits_the_words_an_analyzer_finds_in_the_text() throws Exception {
+        tokenize("<html><head><title>IT-Universitetet</title><script>var hidden;</script></head>"
+                + "<body><p>Aktuelt på IT&nbsp;i København, 2015</p><a href=\"/højskolen\">Højskolen</a></body></html>",
+                Analyzer.STANDARD);
+
+        assertEquals(Arrays.asList("it", "universitetet", "aktuelt", "på", "it", "i", "københavn", "2015", "højskolen"), words);
+        assertEquals(Arrays.asList("/højskolen"), links);
+    }
+}
@@ -0,0 +1,103 @@
+package Index;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CorpusLoaderTest {
+
+    private static final String[] WORDS = { "alpha", "beta", "gamma", "delta", "højskolen", "København", "Straße", "x-ray", "IT", "på" };
+
+    @Test
+    public void it_loads_many_chunks_like_reading_the_file_in_order() throws Exception {
+        File corpus = corpus();
+        InvertedIndex expected = sequential(corpus);
+
+        for (long chunkSize : new long[] { 1, 200, 4096, 0 }) {
+            InvertedIndex index = new InvertedIndex(true);
+            CorpusLoader.load(corpus.getPath(), index, Analyzer.STANDARD, 0, 1, chunkSize);
+            index.finish();
+
+            assertSameIndex("chunks of " + chunkSize, expected, index);
+        }
+    }
+
+    /**
+     * Pages of random words, with a url that comes back several times, far apart, so it is in several chunks.
+     */
+    private static File corpus() throws Exception {
+
+        File file = File.createTempFile("corpus", ".txt");
+        file.deleteOnExit();
+        Random random = new Random(7);
+
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            out.write("ignored before the first page\n");
+            for (int page = 0; page < 300; page++) {
+                out.write("*PAGE:" + ((page % 100 == 5) ? "http://example.com/repeat" : "http://example.com/" + page) + "\n");
+                for (int i = random.nextInt(30); i >= 0; i--) {
+                    out.write(WORDS[random.nextInt(WORDS.length)]);
+                    out.write((random.nextInt(5) == 0) ? ", " + WORDS[random.nextInt(WORDS.length)] + "!\n" : "\n");
+                }
+                if (page % 7 == 0) out.write("\r\n");
+            }
+        }
+        return file;
+    }
+
+    private static InvertedIndex sequential(File corpus) throws Exception {
+
+        InvertedIndex index = new InvertedIndex(true);
+        String url = null;
+
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(corpus), StandardCharsets.UTF_8))) {
+            for (String line; (line = in.readLine()) != null; ) {
+                if (line.startsWith("*PAGE:")) {
+                    url = line.substring(6);
+                    index.getDocuments().add(url);
+                }
+                else if (url != null) {
+                    for (String word : Analyzer.STANDARD.analyze(line)) index.add(word, url);
+                }
+            }
+        }
+        index.finish();
+
+        return index;
+    }
+
+    private static void assertSameIndex(String message, InvertedIndex expected, InvertedIndex actual) {
+
+        assertEquals(message, expected.documentCount(), actual.documentCount());
+        assertEquals(message, expected.wordCount(), actual.wordCount());
+
+        for (int doc = 0; doc < expected.documentCount(); doc++) {
+            assertEquals(message, expected.url(doc), actual.url(doc));
+            assertEquals(message, expected.documentLength(doc), actual.documentLength(doc));
+        }
+
+        for (String word : expected.keySet()) {
+            PostingList wanted = expected.postings(word), got = actual.postings(word);
+            String context = message + ", " + word;
+
+            assertNotNull(context, got);
+            assertArrayEquals(context, wanted.toArray(), got.toArray());
+            assertNotNull(context, got.positions());
+
+            for (int i = 0; i < wanted.size(); i++) {
+                assertEquals(context, wanted.frequency(i), got.frequency(i));
+                assertArrayEquals(context, wanted.positions().get(i), got.positions().get(i));
+            }
+        }
+    }
+}
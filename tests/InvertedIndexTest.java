@@ -0,0 +1,76 @@
+import Index.InvertedIndex;
+import Index.PostingList;
+import Query.QueryEvaluator;
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class InvertedIndexTest {
+
+    @Test
+    public void it_keeps_posting_lists_sorted_and_free_of_duplicates() throws Exception {
+        PostingList postings = new PostingList();
+        postings.add(5);
+        postings.add(1);
+        postings.add(5);
+        postings.add(9);
+        postings.add(3);
+        assertArrayEquals(new int[]{1, 3, 5, 9}, postings.toArray());
+        assertTrue(postings.contains(3));
+        assertFalse(postings.contains(4));
+    }
+
+    @Test
+    public void it_intersects_and_unites_posting_lists() throws Exception {
+        PostingList one = new PostingList(new int[]{1, 3, 5, 7}, 4);
+        PostingList two = new PostingList(new int[]{2, 3, 7, 8}, 4);
+        PostingList three = new PostingList(new int[]{0, 3, 4, 7, 9, 11, 13, 15, 17}, 9);
+        assertArrayEquals(new int[]{3, 7}, QueryEvaluator.and(one, two).toArray());
+        assertArrayEquals(new int[]{3, 7}, QueryEvaluator.and(three, one, two).toArray());
+        assertArrayEquals(new int[]{1, 2, 3, 5, 7, 8}, QueryEvaluator.or(one, two).toArray());
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 7, 8, 9, 11, 13, 15, 17}, QueryEvaluator.or(one, two, three).toArray());
+    }
+
+    @Test
+    public void it_seeks_to_the_first_id_not_smaller_than_the_target() throws Exception {
+        PostingList postings = new PostingList(new int[]{0, 3, 4, 7, 9, 11, 13, 15, 17}, 9);
+        assertEquals(3, postings.seek(0, 7));
+        assertEquals(4, postings.seek(2, 8));
+        assertEquals(8, postings.seek(1, 17));
+        assertEquals(9, postings.seek(0, 18));
+        assertEquals(5, postings.seek(5, 2));
+    }
+
+    @Test
+    public void it_stores_each_url_once_in_the_document_dictionary() throws Exception {
+        InvertedIndex index = new InvertedIndex();
+        index.add("word", "testUrl");
+        index.add("word2", "testUrl");
+        index.add("word2", "testUrl2");
+        assertEquals(2, index.getDocuments().size());
+
+        HashSet<String> urls = index.urls(index.get("word2"));
+        assertTrue(urls.contains("testUrl") && urls.contains("testUrl2"));
+    }
+
+    @Test
+    public void it_keeps_the_positions_of_a_url_that_is_added_to_again() throws Exception {
+        InvertedIndex index = new InvertedIndex(true);
+        index.add("word", "first");
+        index.add("other", "first");
+        index.add("word", "second");
+        index.add("other", "second");
+        index.add("word", "first");
+        index.add("other", "third");
+        index.add("other", "first");
+
+        assertArrayEquals(new int[] { 0, 1 }, index.postings("word").toArray());
+        assertArrayEquals(new int[] { 0, 2 }, index.positions("word").get(0));
+        assertArrayEquals(new int[] { 0 }, index.positions("word").get(1));
+        assertArrayEquals(new int[] { 1, 3 }, index.positions("other").get(0));
+        assertArrayEquals(new int[] { 1 }, index.positions("other").get(1));
+        assertArrayEquals(new int[] { 0 }, index.positions("other").get(2));
+    }
+}
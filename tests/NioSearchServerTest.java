@@ -0,0 +1,102 @@
+import Index.InvertedIndex;
+import Infrastructure.NioSearchClient;
+import Infrastructure.SearchFrames;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class NioSearchServerTest {
+
+    @Test
+    public void it_answers_many_requests_in_flight_on_one_connection() throws Exception {
+        InvertedIndex index = new InvertedIndex();
+        for (int i = 0; i < 100; i++) index.add("word" + i, "url" + i);
+        index.add("word1", "url100");
+        index.finish();
+        Setup.publish(index);
+
+        try (NioSearchServer server = new NioSearchServer(0, 4).start();
+             NioSearchClient client = new NioSearchClient(new InetSocketAddress("localhost", server.getPort())))
+        {
+            List<CompletableFuture<HashSet<String>>> results = new ArrayList<CompletableFuture<HashSet<String>>>();
+            for (int i = 0; i < 1000; i++) results.add(client.searchAsync("word" + (i % 100)));
+
+            for (int i = 0; i < 1000; i++) {
+                HashSet<String> expected = new HashSet<String>(Arrays.asList("url" + (i % 100)));
+                if (i % 100 == 1) expected.add("url100");
+                assertEquals(expected, results.get(i).get());
+            }
+
+            assertEquals(new HashSet<String>(Arrays.asList("url2", "url3")), client.search("word2 OR word3"));
+            assertNull(client.search("missing"));
+        }
+    }
+
+    @Test
+    public void it_stops_reading_a_client_that_does_not_read_its_responses() throws Exception {
+        InvertedIndex index = new InvertedIndex();
+        for (int i = 0; i < 2000; i++) index.add("word", "http://example.com/pages/" + i);
+        index.finish();
+        Setup.publish(index);
+
+        StringBuilder padded = new StringBuilder("word");
+        for (int i = 0; i < 16000; i++) padded.append(' ');
+        int requests = 2000;
+
+        try (NioSearchServer server = new NioSearchServer(0, 2).start();
+             Socket socket = new Socket("localhost", server.getPort()))
+        {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int id = 0; id < requests; id++) out.write(SearchFrames.request(id, padded.toString()));
+                    out.flush();
+                } catch (Exception e) {
+                    // the test fails on the missing responses
+                }
+            });
+            writer.setDaemon(true);
+            writer.start();
+
+            // 32 MB of requests answered with 100 MB of responses is more than the sockets can buffer
+            writer.join(3000);
+            assertTrue("the server read every request while its responses piled up", writer.isAlive());
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            HashSet<Integer> answered = new HashSet<Integer>();
+            for (int i = 0; i < requests; i++) {
+                int length = in.readInt();
+                answered.add(in.readInt());
+                in.readFully(new byte[length - 4]);
+            }
+            assertEquals(requests, answered.size());
+
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(writer.isAlive());
+        }
+    }
+
+    @Test
+    public void it_closes_a_connection_that_sends_a_bad_frame() throws Exception {
+        try (NioSearchServer server = new NioSearchServer(0, 1).start();
+             Socket socket = new Socket("localhost", server.getPort()))
+        {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(-1);
+            out.flush();
+
+            assertEquals(-1, new DataInputStream(socket.getInputStream()).read());
+        }
+    }
+}
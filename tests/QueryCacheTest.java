@@ -0,0 +1,92 @@
+import Index.InvertedIndex;
+import Query.QueryCache;
+import Query.QueryPlanner;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class QueryCacheTest {
+
+    @Test
+    public void it_keys_queries_by_their_normalised_plan() {
+        assertEquals(key("java AND python"), key("python   java"));
+        assertEquals(key("a OR (b c)"), key("(c AND b) OR a"));
+        assertFalse(key("a NOT b").equals(key("b NOT a")));
+        assertFalse(key("java and python").equals(key("java AND python")));
+    }
+
+    @Test
+    public void it_answers_repeated_queries_until_the_index_changes() {
+        InvertedIndex index = new InvertedIndex();
+        index.add("word", "url1");
+        index.finish();
+
+        QueryCache<HashSet<String>> cache = new QueryCache<HashSet<String>>(10, 1 << 20, urls -> 8L * urls.size());
+
+        assertEquals(1, cache.get("word", index, snapshot -> snapshot.urls(snapshot.postings("word"))).size());
+        assertEquals(1, cache.get("word", index, snapshot -> snapshot.urls(snapshot.postings("word"))).size());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+
+        index.add("word", "url2");
+
+        assertEquals(2, cache.get("word", index, snapshot -> snapshot.urls(snapshot.postings("word"))).size());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    public void it_evicts_the_least_recently_used_results() {
+        InvertedIndex index = new InvertedIndex();
+        QueryCache<String> cache = new QueryCache<String>(2, 1 << 20, value -> value.length());
+
+        cache.get("a", index, snapshot -> "a");
+        cache.get("b", index, snapshot -> "b");
+        cache.get("a", index, snapshot -> "a");
+        cache.get("c", index, snapshot -> "c");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+
+        cache.get("a", index, snapshot -> "a");
+        assertEquals(2, cache.hits());
+    }
+
+    @Test
+    public void it_does_not_keep_a_result_of_an_index_that_changed_while_it_was_evaluated() {
+        final InvertedIndex index = new InvertedIndex();
+        final QueryCache<String> cache = new QueryCache<String>(10, 1 << 20, value -> value.length());
+
+        assertEquals("a", cache.get("a", index, snapshot -> {
+            index.add("word", "url1");
+            cache.get("b", index, changed -> "b");
+            return "a";
+        }));
+
+        assertEquals(1, cache.size());
+        assertEquals("a2", cache.get("a", index, snapshot -> "a2"));
+    }
+
+    @Test
+    public void it_does_not_keep_replaced_indexes_reachable() throws Exception {
+        QueryCache<String> cache = new QueryCache<String>(10, 1 << 20, value -> value.length());
+        InvertedIndex index = new InvertedIndex();
+        WeakReference<InvertedIndex> replaced = new WeakReference<InvertedIndex>(index);
+
+        cache.get("a", index, snapshot -> "a");
+        index = null;
+
+        for (int i = 0; i < 50 && replaced.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(replaced.get());
+        assertEquals("b", cache.get("a", new InvertedIndex(), snapshot -> "b"));
+    }
+
+    private static String key(String query) {
+        return QueryCache.key(QueryPlanner.compile(query));
+    }
+}
@@ -0,0 +1,48 @@
+import Index.InvertedIndex;
+import Query.QueryParser;
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class QueryParserTest {
+
+    @Test
+    public void it_parses_nested_boolean_queries() throws Exception {
+        assertEquals("(a AND (b OR c) AND NOT d)", QueryParser.parse("a AND (b OR c) NOT d").toString());
+        assertEquals("(a OR (b AND c) OR d)", QueryParser.parse("a OR b AND c OR d").toString());
+        assertEquals("(a AND b AND c)", QueryParser.parse("a AND (b AND c)").toString());
+        assertEquals("(\"a b\" OR c)", QueryParser.parse("\"a b\" OR c").toString());
+    }
+
+    @Test
+    public void it_ignores_dangling_operators_and_parentheses() throws Exception {
+        assertEquals("(a OR b)", QueryParser.parse("(a OR b").toString());
+        assertEquals("(a AND b)", QueryParser.parse("a) b AND").toString());
+        assertNull(QueryParser.parse("AND OR"));
+    }
+
+    @Test
+    public void it_searches_with_more_than_two_words() throws Exception {
+        InvertedIndex index = new InvertedIndex();
+        index.add("a", "url1");
+        index.add("b", "url1");
+        index.add("c", "url1");
+        index.add("a", "url2");
+        index.add("c", "url2");
+        index.add("d", "url3");
+
+        HashSet<String> results = Searcher.search("a AND c NOT b", index);
+        assertEquals(1, results.size());
+        assertTrue(results.contains("url2"));
+
+        results = Searcher.search("(a AND b) OR d", index);
+        assertTrue(results.contains("url1") && results.contains("url3") && results.size() == 2);
+
+        results = Searcher.search("NOT a", index);
+        assertTrue(results.contains("url3") && results.size() == 1);
+
+        assertNull(Searcher.search("a AND unknown", index));
+    }
+}
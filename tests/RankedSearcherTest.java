@@ -0,0 +1,44 @@
+import Index.InvertedIndex;
+import Query.RankedSearcher;
+import Query.SearchHit;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RankedSearcherTest {
+
+    @Test
+    public void it_ranks_pages_with_more_occurrences_first() throws Exception {
+        InvertedIndex index = new InvertedIndex();
+        for (int i = 0; i < 100; i++) {
+            index.add("word", "url" + i);
+            index.add("filler", "url" + i);
+        }
+        index.add("word", "url42");
+        index.add("word", "url42");
+        index.add("word", "url7");
+        index.finish();
+
+        List<SearchHit> hits = RankedSearcher.search("word", index, 3);
+        assertEquals(3, hits.size());
+        assertEquals("url42", hits.get(0).getUrl());
+        assertEquals("url7", hits.get(1).getUrl());
+        assertTrue(hits.get(1).getScore() > hits.get(2).getScore());
+    }
+
+    @Test
+    public void it_only_ranks_pages_matching_the_boolean_query() throws Exception {
+        InvertedIndex index = new InvertedIndex();
+        index.add("word", "url1");
+        index.add("word", "url1");
+        index.add("word", "url2");
+        index.add("other", "url2");
+        index.finish();
+
+        List<SearchHit> hits = RankedSearcher.search("word AND other", index, 10);
+        assertEquals(1, hits.size());
+        assertEquals("url2", hits.get(0).getUrl());
+    }
+}
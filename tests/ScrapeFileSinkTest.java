@@ -0,0 +1,58 @@
+import Crawler.InvertedIndexSink;
+import Crawler.ScrapeFileSink;
+import Index.Analyzer;
+import Index.InvertedIndex;
+import Infrastructure.Filesystem;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class ScrapeFileSinkTest {
+
+    private static final String[][] PAGES = {
+            { "http://example.com/", "Aktuelt på IT-Universitetet i København" },
+            { "http://example.com/empty", "" },
+            { "http://example.com/straße", "Die Straße, the street; and (again) the STREET!" },
+    };
+
+    @Test
+    public void it_writes_pages_that_load_back_with_the_same_words() throws Exception {
+        String name = "scrape-test-" + System.nanoTime();
+        ScrapeFileSink sink = new ScrapeFileSink(name);
+        InvertedIndex expected = new InvertedIndex(true);
+        InvertedIndexSink reference = new InvertedIndexSink(expected);
+
+        try {
+            for (String[] page : PAGES) {
+                sink.accept(page[0], Analyzer.STANDARD.analyze(page[1]));
+                reference.accept(page[0], Analyzer.STANDARD.analyze(page[1]));
+            }
+            sink.flush();
+            reference.flush();
+
+            String path = System.getProperty("user.dir") + File.separator + "files" + File.separator + name;
+            InvertedIndex loaded = Setup.initialise(path, true);
+
+            assertTrue(loaded.isPositional());
+            assertFalse(Setup.initialise(path).isPositional());
+
+            assertEquals(PAGES.length, loaded.documentCount());
+            assertEquals(expected.keySet(), loaded.keySet());
+            for (int doc = 0; doc < PAGES.length; doc++) {
+                assertEquals(PAGES[doc][0], loaded.url(doc));
+                assertEquals(expected.documentLength(doc), loaded.documentLength(doc));
+            }
+            for (String word : expected.keySet()) {
+                assertArrayEquals(word, expected.postings(word).toArray(), loaded.postings(word).toArray());
+                for (int i = 0; i < expected.postings(word).size(); i++) {
+                    assertArrayEquals(word, expected.positions(word).get(i), loaded.positions(word).get(i));
+                }
+            }
+        }
+        finally {
+            Filesystem.deleteFile(name);
+        }
+    }
+}
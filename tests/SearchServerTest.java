@@ -0,0 +1,77 @@
+import Index.InvertedIndex;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class SearchServerTest {
+
+    @Test
+    public void it_answers_searches_suggestions_and_stats_as_json() throws Exception {
+        InvertedIndex index = new InvertedIndex();
+        index.add("word", "http://example.com/\"quoted\"");
+        index.add("wording", "http://example.com/2");
+        index.finish();
+        Setup.publish(index);
+
+        SearchServer server = new SearchServer(0);
+        server.start();
+        try {
+            String search = get(server, "/search?q=word&k=5");
+            assertTrue(search.startsWith("{\"query\":\"word\",\"offset\":0,\"hits\":[{\"url\":\"http://example.com/\\\"quoted\\\"\",\"score\":"));
+            assertTrue(search.endsWith("}],\"more\":false}"));
+
+            assertEquals("{\"query\":\"wor\",\"completions\":[\"word\",\"wording\"],\"similar\":[\"word\"]}", get(server, "/suggest?q=wor"));
+
+            assertTrue(get(server, "/stats").startsWith("{\"documents\":2,\"words\":2,"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void it_rejects_bad_parameters() throws Exception {
+        SearchServer server = new SearchServer(0);
+        server.start();
+        try {
+            assertEquals(400, status(server, "/search?k=5"));
+            assertEquals(400, status(server, "/search?q=word&k=0"));
+            assertEquals(400, status(server, "/search?q=100%25%zz"));
+            assertEquals(404, status(server, "/other"));
+        } finally {
+            server.stop();
+        }
+
+        // the HttpServer refuses a malformed escape in the request line itself, but parameters() must not rely on it
+        for (String rawQuery : new String[] { "q=100%zz", "q=word&k=5%" }) {
+            try {
+                SearchServer.parameters(rawQuery);
+                fail(rawQuery);
+            } catch (SearchServer.RequestException e) {
+                assertEquals(400, e.status);
+            }
+        }
+    }
+
+    private static String get(SearchServer server, String path) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+        assertEquals(200, connection.getResponseCode());
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[4096];
+            for (int read; (read = in.read(buffer)) >= 0; ) body.write(buffer, 0, read);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static int status(SearchServer server, String path) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+        return connection.getResponseCode();
+    }
+}
@@ -1,5 +1,7 @@
+import Index.InvertedIndex;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 
@@ -11,6 +13,7 @@ import static org.junit.Assert.*;
 public class SearcherTest {
 
     @Test
+    @SuppressWarnings("deprecation")   // searches maps in the old format, which the deprecated overload still serves
     public void testSearch() throws Exception {
         // test 'simple' search
         LinkedHashMap<String, HashSet> hashMap = new LinkedHashMap<String, HashSet>();
@@ -36,4 +39,21 @@ public class SearcherTest {
         HashSet<String> results4 = Searcher.search("word AND word2", hashMap3);
         assertTrue(results4.contains("testUrl"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @SuppressWarnings("deprecation")   // the old map format is what this test is about
+    public void it_finds_mixed_case_words_of_a_map_as_they_were_added() throws Exception {
+        LinkedHashMap<String, HashSet> hashMap = new LinkedHashMap<String, HashSet>();
+        Setup.addEntryToHashMap(hashMap, "IT", "itUrl");
+        Setup.addEntryToHashMap(hashMap, "Java", "javaUrl");
+
+        assertEquals(new HashSet<String>(Arrays.asList("itUrl")), Searcher.search("IT", hashMap));
+        assertEquals(new HashSet<String>(Arrays.asList("itUrl", "javaUrl")), Searcher.search("IT OR Java", hashMap));
+        assertNull(Searcher.search("it", hashMap));
+
+        InvertedIndex index = new InvertedIndex();
+        index.add("Hello", "helloUrl");
+        index.finish();
+        assertEquals(new HashSet<String>(Arrays.asList("helloUrl")), Searcher.search("Hello", index));
+    }
+}
@@ -0,0 +1,140 @@
+import Index.Analyzer;
+import Index.InvertedIndex;
+import Index.PostingList;
+import Index.SearchIndex;
+import Index.SegmentReader;
+import Index.SegmentWriter;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class SegmentTest {
+
+    @Test
+    public void it_reopens_a_segment_with_the_analyzer_it_was_built_with() throws Exception {
+        Analyzer analyzer = Analyzer.withStopwords(Arrays.asList("og", "I"));
+        InvertedIndex index = new InvertedIndex();
+        index.setAnalyzer(analyzer);
+        for (String word : analyzer.analyze("Aktuelt og IT i København")) index.add(word, "testUrl");
+        index.finish();
+
+        InvertedIndex verbatim = new InvertedIndex();
+        verbatim.add("Hello", "helloUrl");
+        verbatim.finish();
+
+        File file = File.createTempFile("segment", ".idx");
+        File verbatimFile = File.createTempFile("segment", ".idx");
+        file.deleteOnExit();
+        verbatimFile.deleteOnExit();
+        SegmentWriter.write(index, file.getPath());
+        SegmentWriter.write(verbatim, verbatimFile.getPath());
+
+        SegmentReader segment = SegmentReader.open(file.getPath(), analyzer);
+        assertTrue(segment.analyzer().sameAs(analyzer));
+        assertEquals(Arrays.asList("i", "og"), segment.analyzer().stopwords());
+        assertEquals(new HashSet<String>(Arrays.asList("testUrl")), Searcher.search("og IT AND KØBENHAVN", segment));
+
+        assertSame(Analyzer.VERBATIM, SegmentReader.open(verbatimFile.getPath()).analyzer());
+        assertEquals(new HashSet<String>(Arrays.asList("helloUrl")), Searcher.search("Hello", SegmentReader.open(verbatimFile.getPath())));
+
+        try {
+            SegmentReader.open(file.getPath(), Analyzer.STANDARD);
+            fail("opened a segment built with stopwords as a standard one");
+        } catch (IOException e) {
+            // refused
+        }
+
+        InvertedIndex custom = new InvertedIndex();
+        custom.setAnalyzer(new Analyzer(token -> true));
+        custom.finish();
+        try {
+            SegmentWriter.write(custom, file.getPath());
+            fail("wrote a segment with an analyzer it cannot record");
+        } catch (IOException e) {
+            // refused
+        }
+    }
+
+    @Test
+    public void it_answers_queries_from_a_written_segment() throws Exception {
+        InvertedIndex index = new InvertedIndex();
+        index.add("word", "testUrl");
+        index.add("word", "testUrl");
+        index.add("word2", "testUrl2");
+        index.add("højskolen", "testUrl2");
+        index.finish();
+
+        File file = File.createTempFile("segment", ".idx");
+        file.deleteOnExit();
+        SegmentWriter.write(index, file.getPath());
+
+        assertTrue(SegmentReader.isSegment(file.getPath()));
+        SearchIndex segment = SegmentReader.open(file.getPath());
+
+        assertEquals(3, segment.wordCount());
+        assertEquals(2, segment.documentCount());
+        assertEquals(2, segment.postings("word").frequency(0));
+        assertNull(segment.postings("unknown"));
+
+        HashSet<String> results = Searcher.search("word OR højskolen", segment);
+        assertTrue(results.contains("testUrl") && results.contains("testUrl2"));
+    }
+
+    @Test
+    public void it_matches_phrases_by_position_in_memory_and_in_a_segment() throws Exception {
+        InvertedIndex index = new InvertedIndex(true);
+        for (String word : "aktuelt på it højskolen".split(" ")) index.add(word, "inOrder");
+        for (String word : "it på aktuelt højskolen".split(" ")) index.add(word, "reversed");
+        index.finish();
+
+        File file = File.createTempFile("segment", ".idx");
+        file.deleteOnExit();
+        SegmentWriter.write(index, file.getPath());
+        SearchIndex segment = SegmentReader.open(file.getPath());
+
+        for (SearchIndex searched : new SearchIndex[] { index, segment }) {
+            HashSet<String> results = Searcher.search("\"aktuelt på it\"", searched);
+            assertEquals(1, results.size());
+            assertTrue(results.contains("inOrder"));
+            assertEquals(2, Searcher.search("aktuelt på it", searched).size());
+            assertArrayEquals(new int[] { 2 }, searched.positions("it").get(0));
+        }
+    }
+
+    @Test
+    public void it_copies_an_index_larger_than_the_first_buffer_off_the_heap() throws Exception {
+        InvertedIndex index = new InvertedIndex(true);
+        for (int doc = 0; doc < 3000; doc++) {
+            for (String word : ("common word" + doc + " højskolen straße word" + (doc % 7)).split(" ")) index.add(word, "http://example.com/" + doc);
+        }
+        index.add("højskole", "http://example.com/0");
+        index.finish();
+
+        assertTrue(SegmentWriter.toBuffer(index).limit() > 1 << 16);
+        SegmentReader segment = SegmentReader.offHeap(index);
+
+        assertEquals(index.documentCount(), segment.documentCount());
+        assertEquals(index.wordCount(), segment.wordCount());
+        for (int doc = 0; doc < index.documentCount(); doc++) {
+            assertEquals(index.url(doc), segment.url(doc));
+            assertEquals(index.documentLength(doc), segment.documentLength(doc));
+        }
+        for (String word : index.keySet()) {
+            PostingList expected = index.postings(word), actual = segment.postings(word);
+            assertArrayEquals(word, expected.toArray(), actual.toArray());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(word, expected.frequency(i), actual.frequency(i));
+                assertArrayEquals(word, index.positions(word).get(i), segment.positions(word).get(i));
+            }
+        }
+
+        assertEquals(new HashSet<String>(Arrays.asList("højskolen", "højskole")), segment.nearestWords("højskolex", 1));
+        assertEquals(index.nearestWords("strasse", 2), segment.nearestWords("strasse", 2));
+        assertEquals(new HashSet<String>(Arrays.asList("straße")), segment.nearestWords("STRAßEN", 1));
+    }
+}
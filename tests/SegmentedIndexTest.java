@@ -0,0 +1,142 @@
+import Index.InvertedIndex;
+import Index.PostingList;
+import Index.SearchIndex;
+import Index.SegmentedIndex;
+import Query.RankedSearcher;
+import Query.SearchHit;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SegmentedIndexTest {
+
+    @Test
+    public void it_keeps_ids_and_phrases_across_refreshes_and_merges() throws Exception {
+        try (SegmentedIndex index = new SegmentedIndex(null, 0, 2)) {
+            for (int i = 0; i < 8; i++) {
+                assertTrue(index.addDocument("url" + i, words((i % 2 == 0) ? "common aktuelt på it" : "common it på aktuelt")));
+                assertEquals(i, index.documentCount());
+                index.refresh();
+                assertEquals(i + 1, index.documentCount());
+            }
+            assertFalse(index.addDocument("url3", words("other")));
+
+            awaitSegments(index, 1);
+
+            for (int doc = 0; doc < 8; doc++) assertEquals("url" + doc, index.url(doc));
+            assertEquals(new HashSet<String>(Arrays.asList("url0", "url2", "url4", "url6")), Searcher.search("\"aktuelt på it\"", index));
+            assertEquals(8, Searcher.search("aktuelt på it", index).size());
+            assertArrayEquals(new int[] { 3 }, index.positions("it").get(0));
+        }
+    }
+
+    @Test
+    public void it_matches_phrases_across_segments_before_they_are_merged() throws Exception {
+        try (SegmentedIndex index = new SegmentedIndex(null, 0, 10)) {
+            index.addDocument("first", words("aktuelt på it"));
+            index.refresh();
+            index.addDocument("reversed", words("it på aktuelt"));
+            index.refresh();
+            index.addDocument("second", words("nyt aktuelt på it"));
+            index.refresh();
+
+            assertEquals(3, index.segmentCount());
+            assertEquals(new HashSet<String>(Arrays.asList("first", "second")), Searcher.search("\"aktuelt på it\"", index));
+        }
+    }
+
+    @Test
+    public void it_keeps_snapshots_unchanged_while_documents_are_added_and_merged() throws Exception {
+        InvertedIndex base = new InvertedIndex();
+        base.add("common", "url0");
+        base.finish();
+
+        try (SegmentedIndex index = new SegmentedIndex(base, 1, 2)) {
+            SearchIndex before = index.snapshot();
+
+            for (int i = 1; i < 2000; i++) {
+                index.addDocument("url" + i, words("common word" + (i % 10)));
+
+                if (i % 50 == 0) check(index.snapshot());
+            }
+            index.refresh();
+            awaitDocuments(index, 2000);
+            check(index.snapshot());
+
+            assertEquals(1, before.documentCount());
+            assertEquals(1, before.postings("common").size());
+            assertNull(before.postings("word1"));
+        }
+    }
+
+    @Test
+    public void it_searches_the_segments_in_place_like_one_index() throws Exception {
+        InvertedIndex base = new InvertedIndex(true);
+        InvertedIndex reference = new InvertedIndex(true);
+        for (int i = 0; i < 600; i++) {
+            for (String word : page(i)) { base.add(word, "url" + i); reference.add(word, "url" + i); }
+        }
+        base.finish();
+
+        try (SegmentedIndex index = new SegmentedIndex(base, 0, 10)) {
+            for (int i = 600; i < 750; i++) {
+                index.addDocument("url" + i, page(i));
+                for (String word : page(i)) reference.add(word, "url" + i);
+                if (i % 50 == 49) index.refresh();
+            }
+            reference.finish();
+            assertEquals(4, index.segmentCount());
+
+            for (String query : new String[] { "a1 OR b2", "a1 b2", "common NOT b0", "\"a3 a3\"", "missing OR a2" }) {
+                assertEquals(query, Searcher.search(query, reference), Searcher.search(query, index));
+            }
+
+            // every page is three words long, so each segment scores with the same average length as the reference
+            for (String query : new String[] { "a1 OR b2", "a3 OR common OR b1", "a1 b2" }) {
+                List<SearchHit> expected = RankedSearcher.search(query, reference, 10);
+                List<SearchHit> actual = RankedSearcher.search(query, index, 10);
+                assertEquals(query, expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) assertEquals(query, expected.get(i).getScore(), actual.get(i).getScore(), 1e-4f);
+            }
+        }
+    }
+
+    /**
+     * Three words, every fifth page repeating one.
+     */
+    private static List<String> page(int i) {
+        return Arrays.asList((i % 5 == 0) ? "a" + (i % 7) : "common", "a" + (i % 7), "b" + (i % 3));
+    }
+
+    /**
+     * Documents are added by one thread, so their ids are the order they were added in, whatever the segments.
+     */
+    private static void check(SearchIndex snapshot) {
+
+        PostingList common = snapshot.postings("common");
+
+        assertEquals(snapshot.documentCount(), common.size());
+        for (int doc = 0; doc < snapshot.documentCount(); doc++) {
+            assertEquals("url" + doc, snapshot.url(doc));
+            assertEquals(doc, common.get(doc));
+        }
+    }
+
+    private static void awaitSegments(SegmentedIndex index, int segments) throws InterruptedException {
+        for (int i = 0; i < 500 && index.segmentCount() > segments; i++) Thread.sleep(10);
+        assertEquals(segments, index.segmentCount());
+    }
+
+    private static void awaitDocuments(SegmentedIndex index, int documents) throws InterruptedException {
+        for (int i = 0; i < 500 && index.documentCount() < documents; i++) Thread.sleep(10);
+        assertEquals(documents, index.documentCount());
+    }
+
+    private static List<String> words(String text) {
+        return Arrays.asList(text.split(" "));
+    }
+}
@@ -0,0 +1,108 @@
+import Index.Analyzer;
+import Index.CorpusLoader;
+import Index.InvertedIndex;
+import Index.PositionList;
+import Index.PostingList;
+import Index.ShardedIndex;
+import Query.RankedSearcher;
+import Query.SearchHit;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ShardedIndexTest {
+
+    private static final String[] PAGES = {
+            "alpha beta gamma delta",
+            "beta alpha gamma",
+            "unique alpha beta",
+            "alpha beta gamma zeta alpha",
+            "gamma delta",
+            "alpha beta",
+            "delta epsilon alpha beta beta",
+    };
+
+    private static final String[] QUERIES = {
+            "alpha", "unique", "unique AND alpha", "alpha NOT gamma", "delta NOT unique", "gamma OR epsilon",
+            "\"alpha beta\"", "\"beta gamma\"", "\"beta alpha\"", "zeta OR \"alpha beta\"", "missing", "alpha AND missing"
+    };
+
+    @Test
+    public void it_answers_like_a_single_index_with_any_number_of_shards() throws Exception {
+        File corpus = corpus();
+
+        InvertedIndex single = new InvertedIndex(true);
+        CorpusLoader.load(corpus.getPath(), single, Analyzer.STANDARD);
+        single.finish();
+
+        for (int shardCount : new int[] { 1, 3, PAGES.length + 3 }) {
+            ShardedIndex sharded = ShardedIndex.load(corpus.getPath(), shardCount, true);
+            String name = shardCount + " shards";
+
+            assertEquals(name, single.documentCount(), sharded.documentCount());
+            assertEquals(name, single.wordCount(), sharded.wordCount());
+            assertEquals(name, single.averageDocumentLength(), sharded.averageDocumentLength(), 1e-6);
+
+            for (int doc = 0; doc < single.documentCount(); doc++) {
+                assertEquals(name, single.url(doc), sharded.url(doc));
+                assertEquals(name, single.documentLength(doc), sharded.documentLength(doc));
+            }
+
+            for (String word : single.keySet()) {
+                assertEquals(name + " " + word, single.documentFrequency(word), sharded.documentFrequency(word));
+                assertPostingsEqual(name + " " + word, single.postings(word), sharded.postings(word));
+                assertPositionsEqual(name + " " + word, single.positions(word), sharded.positions(word));
+            }
+
+            for (String query : QUERIES) {
+                assertEquals(name + " " + query, Searcher.search(query, single), Searcher.search(query, sharded));
+                assertEquals(name + " " + query, scores(RankedSearcher.search(query, single, 10)), scores(RankedSearcher.search(query, sharded, 10)));
+            }
+        }
+    }
+
+    private static File corpus() throws Exception {
+
+        File file = File.createTempFile("corpus", ".txt");
+        file.deleteOnExit();
+
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < PAGES.length; i++) {
+                out.write("*PAGE:http://example.com/" + i + "\n");
+                for (String word : PAGES[i].split(" ")) out.write(word + "\n");
+            }
+        }
+        return file;
+    }
+
+    private static Map<String, Float> scores(List<SearchHit> hits) {
+
+        Map<String, Float> scores = new HashMap<String, Float>();
+
+        for (SearchHit hit : hits) scores.put(hit.getUrl(), Math.round(hit.getScore() * 1e4f) / 1e4f);
+
+        return scores;
+    }
+
+    private static void assertPostingsEqual(String message, PostingList expected, PostingList actual) {
+        assertEquals(message, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(message, expected.get(i), actual.get(i));
+            assertEquals(message, expected.frequency(i), actual.frequency(i));
+        }
+    }
+
+    private static void assertPositionsEqual(String message, PositionList expected, PositionList actual) {
+        assertEquals(message, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) assertArrayEquals(message, expected.get(i), actual.get(i));
+    }
+}
@@ -1,6 +1,9 @@
+import Index.BkTree;
+import Index.InvertedIndex;
 import org.junit.Test;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -25,6 +28,15 @@ public class SimilarWordsTest {
         assertTrue(similarWords.contains("wordXX"));
     }
 
+    @Test
+    public void it_retrieves_the_nearest_words_from_an_index() throws Exception {
+        InvertedIndex index = new InvertedIndex();
+        for (String word : new String[] { "Search", "searches", "research", "engine", "word" }) index.add(word, "testUrl");
+        assertEquals(new HashSet<String>(Arrays.asList("Search", "searches")), SimilarWords.retrieveSimilarWords(index, "searchs"));
+        assertEquals(new HashSet<String>(Arrays.asList("research")), SimilarWords.retrieveSimilarWords(index, "reserch"));
+        assertTrue(SimilarWords.retrieveSimilarWords(index, "xyzzy").isEmpty());
+    }
+
     @Test
     public void test_distance_algorithm() throws Exception {
         // two words that can be made identical by changing one letter will have a distance of 1
@@ -32,4 +44,55 @@ public class SimilarWordsTest {
         // two words that can be made identical by adding or removing one letter will have a distance of 1
         assertTrue(SimilarWords.distance("testX", "test") == 1);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void it_builds_a_tree_over_keys_that_are_views_of_one_buffer() throws Exception {
+        final String[] words = { "Straße", "STRASSE", "strasse", "Strassen", "gade", "Gader", "vej" };
+
+        BkTree tree = BkTree.build(new BkTree.Words() {
+            final KeyView view = new KeyView();
+
+            public int size() {
+                return words.length;
+            }
+
+            public CharSequence key(int number) {
+                view.key = words[number].toLowerCase();
+                return view;
+            }
+
+            public String word(int number) {
+                return words[number];
+            }
+        });
+
+        assertEquals(6, tree.size());
+        assertEquals(new HashSet<String>(Arrays.asList("STRASSE", "strasse")), tree.nearest("strassen", 2));
+        assertEquals(new HashSet<String>(Arrays.asList("gade")), tree.nearest("GADER", 1));
+    }
+
+    /**
+     * One view for every key, like the flyweight of an off-heap index, that cannot be turned into a String.
+     */
+    private static class KeyView implements CharSequence {
+
+        String key;
+
+        public int length() {
+            return key.length();
+        }
+
+        public char charAt(int index) {
+            return key.charAt(index);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            throw new UnsupportedOperationException("the key is a view");
+        }
+
+        @Override
+        public String toString() {
+            throw new UnsupportedOperationException("the key is a view");
+        }
+    }
+}
@@ -0,0 +1,44 @@
+import Index.TermDictionary;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TermDictionaryTest {
+
+    private TermDictionary dictionary() {
+        List<String> words = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) words.add("word" + i);
+        words.addAll(Arrays.asList("java", "javascript", "jav", "højskolen", "høj", "IT", "java"));
+        return TermDictionary.build(words);
+    }
+
+    @Test
+    public void it_looks_up_words_exactly() throws Exception {
+        TermDictionary dictionary = dictionary();
+        assertEquals(106, dictionary.size());
+        assertTrue(dictionary.ordinal("javascript") >= 0);
+        assertEquals("javascript", dictionary.word(dictionary.ordinal("javascript")));
+        assertEquals(-1, dictionary.ordinal("javas"));
+        assertEquals(-1, dictionary.ordinal("zzz"));
+    }
+
+    @Test
+    public void it_enumerates_prefixes_and_ranges_in_order() throws Exception {
+        TermDictionary dictionary = dictionary();
+        assertEquals(Arrays.asList("jav", "java", "javascript"), dictionary.prefix("jav", 10));
+        assertEquals(Arrays.asList("høj", "højskolen"), dictionary.prefix("høj", 10));
+        assertEquals(Arrays.asList("word1", "word10", "word11"), dictionary.prefix("word1", 3));
+        assertEquals(Arrays.asList("word98", "word99"), dictionary.range("word98", null, 10));
+        assertEquals(Arrays.asList("java", "javascript"), dictionary.range("java", "jb", 10));
+
+        String previous = "";
+        for (String word : dictionary) {
+            assertTrue(previous.compareTo(word) < 0);
+            previous = word;
+        }
+    }
+}